@@ -0,0 +1,32 @@
+package org.framework.rodolfo.freire.git.vertlog.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.framework.rodolfo.freire.git.vertlog.service.BuyCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * This class configures the in-process caches and binds their statistics to the application metrics.
+ * Their bounds are taken from {@link PropertiesCache}.
+ */
+
+@Configuration
+public class CacheConfiguration {
+
+    /**
+     * Creates the cache of buys looked up by user identifier.
+     * <p>
+     * Hits, misses and evictions are published as the `cache.*` metrics tagged `cache=buy-by-id`.
+     *
+     * @param propertiesCache The settings of the caches.
+     * @param meterRegistry   The registry receiving the cache metrics.
+     * @return The cache of buys.
+     */
+    @Bean
+    public BuyCache buyCache(PropertiesCache propertiesCache, MeterRegistry meterRegistry) {
+        BuyCache buyCache = new BuyCache(propertiesCache.getBuyMaximumSize(), propertiesCache.getBuyExpireAfterWrite());
+        CaffeineCacheMetrics.monitor(meterRegistry, buyCache.getNativeCache(), "buy-by-id");
+        return buyCache;
+    }
+}
@@ -0,0 +1,103 @@
+package org.framework.rodolfo.freire.git.vertlog.configuration;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class configures the thread pools used by the file ingest process.
+ * Their sizes are taken from {@link PropertiesIngest}.
+ * <p>
+ * When `spring.threads.virtual.enabled` is true and the application runs on Java 21 or later, the bulk writes and the
+ * pipeline stages of an upload run on virtual threads, like the HTTP requests handled by Tomcat.
+ */
+
+@Configuration
+public class IngestExecutorConfiguration {
+
+    /**
+     * Creates the fork-join pool parsing chunks of files in parallel.
+     *
+     * @param propertiesIngest The settings of the file ingest process.
+     * @return A fork-join pool with the configured parallelism, or one thread per available processor when not set.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool ingestForkJoinPool(PropertiesIngest propertiesIngest) {
+        int parallelism = propertiesIngest.getParallelism() > 0
+                ? propertiesIngest.getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Creates the bounded executor running asynchronous upload jobs.
+     *
+     * @param propertiesIngest The settings of the file ingest process.
+     * @return An executor with the configured number of threads, refusing jobs once its queue is full.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor ingestJobExecutor(PropertiesIngest propertiesIngest) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(propertiesIngest.getJobThreads());
+        executor.setMaxPoolSize(propertiesIngest.getJobThreads());
+        executor.setQueueCapacity(propertiesIngest.getJobQueueCapacity());
+        executor.setThreadNamePrefix("ingest-job-");
+        return executor;
+    }
+
+    /**
+     * Creates the executor running the bulk writes of an upload on platform threads.
+     *
+     * @param propertiesIngest The settings of the file ingest process.
+     * @return An executor with one thread per concurrent bulk write.
+     */
+    @Bean
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public TaskExecutor ingestSaveExecutor(PropertiesIngest propertiesIngest) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, propertiesIngest.getSaveConcurrency()));
+        executor.setMaxPoolSize(Math.max(1, propertiesIngest.getSaveConcurrency()));
+        executor.setThreadNamePrefix("ingest-save-");
+        return executor;
+    }
+
+    /**
+     * Creates the executor running the bulk writes of an upload on virtual threads.
+     *
+     * @return An executor starting a virtual thread per bulk write.
+     */
+    @Bean(name = "ingestSaveExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public TaskExecutor ingestSaveVirtualExecutor() {
+        return new VirtualThreadTaskExecutor("ingest-save-");
+    }
+
+    /**
+     * Creates the executor running the aggregator and writer stages of pipeline ingests on platform threads.
+     *
+     * @return An executor starting a thread per stage; the stages of an upload live as long as the upload.
+     */
+    @Bean
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public TaskExecutor ingestStageExecutor() {
+        return new SimpleAsyncTaskExecutor("ingest-stage-");
+    }
+
+    /**
+     * Creates the executor running the aggregator and writer stages of pipeline ingests on virtual threads.
+     *
+     * @return An executor starting a virtual thread per stage.
+     */
+    @Bean(name = "ingestStageExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public TaskExecutor ingestStageVirtualExecutor() {
+        return new VirtualThreadTaskExecutor("ingest-stage-");
+    }
+}
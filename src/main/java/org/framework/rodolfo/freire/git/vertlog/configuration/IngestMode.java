@@ -0,0 +1,31 @@
+package org.framework.rodolfo.freire.git.vertlog.configuration;
+
+/**
+ * Defines how an uploaded file is turned into persisted `Buy` documents.
+ */
+public enum IngestMode {
+
+    /**
+     * Parses the whole file into an in-memory map before anything is saved.
+     */
+    MAP,
+
+    /**
+     * Reads the file line by line and saves completed buys in bounded chunks, keeping heap usage flat.
+     * Lines of the same user are expected to be contiguous, as the legacy export writes them.
+     */
+    STREAMING,
+
+    /**
+     * Parses the whole file into compact primitive columns and builds the documents batch by batch while saving,
+     * so much larger files than in {@link #MAP} mode fit in the heap. Lines of a user need not be contiguous.
+     */
+    COLUMNAR,
+
+    /**
+     * Reads, parses, aggregates and writes the file in concurrent stages connected by bounded queues, so parsing
+     * overlaps with the bulk writes and a slow database throttles the reading. Lines of the same user are expected to
+     * be contiguous, as in {@link #STREAMING} mode.
+     */
+    PIPELINE
+}
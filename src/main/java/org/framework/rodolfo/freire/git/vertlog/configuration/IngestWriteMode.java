@@ -0,0 +1,18 @@
+package org.framework.rodolfo.freire.git.vertlog.configuration;
+
+/**
+ * Defines how the `Buy` documents of an uploaded file are combined with the documents already stored.
+ */
+public enum IngestWriteMode {
+
+    /**
+     * Replaces the stored document of each user of the file, so the file must carry the full history of its users.
+     */
+    REPLACE,
+
+    /**
+     * Adds the orders of the file to the stored documents: new orders are pushed, products of existing orders are
+     * appended and their totals incremented, so each file only carries its own orders.
+     */
+    MERGE
+}
@@ -0,0 +1,56 @@
+package org.framework.rodolfo.freire.git.vertlog.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+import org.framework.rodolfo.freire.git.vertlog.document.QuarantinedLine;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+
+/**
+ * This class creates the MongoDB indexes needed by the queries of the application once it is started.
+ * Creating an index that already exists with the same definition is a no-op.
+ */
+
+@Slf4j
+@Configuration
+public class MongoIndexConfiguration {
+
+    /**
+     * Name of the multikey index on the dates of the orders of a buy.
+     */
+    public static final String ORDERS_DATE_INDEX = "orders_date";
+
+    /**
+     * Name of the index on the upload and position of quarantined lines.
+     */
+    public static final String QUARANTINE_UPLOAD_INDEX = "uploadId_offset";
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Constructor that injects the `MongoTemplate` dependency.
+     *
+     * @param mongoTemplate The template used to create the indexes.
+     */
+    public MongoIndexConfiguration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Creates the multikey index on `orders.date` backing the date-range query and the index listing the quarantined
+     * lines of an upload.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        String name = mongoTemplate.indexOps(Buy.class)
+                .ensureIndex(new Index().on("orders.date", Sort.Direction.ASC).named(ORDERS_DATE_INDEX));
+        log.info("Index {} ready on {}", name, mongoTemplate.getCollectionName(Buy.class));
+        name = mongoTemplate.indexOps(QuarantinedLine.class).ensureIndex(new Index()
+                .on("uploadId", Sort.Direction.ASC).on("offset", Sort.Direction.ASC).named(QUARANTINE_UPLOAD_INDEX));
+        log.info("Index {} ready on {}", name, mongoTemplate.getCollectionName(QuarantinedLine.class));
+    }
+}
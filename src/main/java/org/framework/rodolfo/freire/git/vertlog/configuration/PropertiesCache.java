@@ -0,0 +1,26 @@
+package org.framework.rodolfo.freire.git.vertlog.configuration;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * This class represents property settings for the in-process caches of the VertLog system.
+ * <p>
+ * It uses values injected via @Value annotations to bound the size and the lifetime of the cached entries.
+ */
+
+@Configuration
+@Getter
+@NoArgsConstructor
+public class PropertiesCache {
+
+    @Value("${vertlog-cache.buy.maximum-size:10000}")
+    private long buyMaximumSize;
+    @Value("${vertlog-cache.buy.expire-after-write:5m}")
+    private Duration buyExpireAfterWrite;
+
+}
@@ -0,0 +1,82 @@
+package org.framework.rodolfo.freire.git.vertlog.configuration;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * This class represents property settings for the file ingest process of the VertLog system.
+ * <p>
+ * It uses values injected via @Value annotations to define how uploaded files are parsed and persisted.
+ * The setters configure it outside of a Spring context, as the benchmarks do.
+ */
+
+@Configuration
+@Getter
+@Setter
+@NoArgsConstructor
+public class PropertiesIngest {
+
+    @Value("${vertlog-ingest.mode:MAP}")
+    private IngestMode mode;
+    @Value("${vertlog-ingest.chunk-size:1000}")
+    private int chunkSize;
+    @Value("${vertlog-ingest.bulk.write-mode:REPLACE}")
+    private IngestWriteMode writeMode;
+    @Value("${vertlog-ingest.bulk.batch-size:1000}")
+    private int bulkBatchSize;
+    @Value("${vertlog-ingest.bulk.ordered:false}")
+    private boolean bulkOrdered;
+    @Value("${vertlog-ingest.bulk.concurrency:1}")
+    private int saveConcurrency;
+    @Value("${vertlog-ingest.bulk.prepare-ahead:2}")
+    private int prepareAhead;
+    @Value("${vertlog-ingest.jobs.checkpoint-interval:64MB}")
+    private DataSize checkpointInterval;
+    @Value("${vertlog-ingest.jobs.resume-on-startup:true}")
+    private boolean resumeOnStartup;
+    @Value("${vertlog-ingest.jobs.max-attempts:3}")
+    private int jobMaxAttempts;
+    @Value("${vertlog-ingest.pipeline.block-size:1MB}")
+    private DataSize pipelineBlockSize;
+    @Value("${vertlog-ingest.pipeline.parse-queue-capacity:8}")
+    private int pipelineParseQueueCapacity;
+    @Value("${vertlog-ingest.pipeline.write-queue-capacity:4}")
+    private int pipelineWriteQueueCapacity;
+    @Value("${vertlog-ingest.tolerant.enabled:false}")
+    private boolean tolerantEnabled;
+    @Value("${vertlog-ingest.tolerant.error-budget:1000}")
+    private long errorBudget;
+    @Value("${vertlog-ingest.fingerprint.enabled:true}")
+    private boolean fingerprintEnabled;
+    @Value("${vertlog-ingest.fingerprint.lease:1h}")
+    private Duration fingerprintLease;
+    @Value("${vertlog-ingest.log.progress-interval:10s}")
+    private Duration progressInterval;
+    @Value("${vertlog-ingest.log.debug-sample-rate:1000}")
+    private int debugSampleRate;
+    @Value("${vertlog-ingest.parallelism:0}")
+    private int parallelism;
+    @Value("${vertlog-ingest.batch-directory:batch}")
+    private String batchDirectory;
+    @Value("${vertlog-ingest.spool-directory:spool}")
+    private String spoolDirectory;
+    @Value("${vertlog-ingest.jobs.threads:2}")
+    private int jobThreads;
+    @Value("${vertlog-ingest.jobs.queue-capacity:16}")
+    private int jobQueueCapacity;
+    @Value("${vertlog-ingest.sessions.chunk-size:8MB}")
+    private DataSize sessionChunkSize;
+    @Value("${vertlog-ingest.sessions.max-chunk-size:64MB}")
+    private DataSize sessionMaxChunkSize;
+    @Value("${vertlog-ingest.sessions.expire-after:24h}")
+    private Duration sessionExpireAfter;
+    @Value("${vertlog-ingest.sessions.purge-interval:1h}")
+    private Duration sessionPurgeInterval;
+
+}
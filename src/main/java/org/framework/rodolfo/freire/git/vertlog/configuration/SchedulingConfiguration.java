@@ -0,0 +1,14 @@
+package org.framework.rodolfo.freire.git.vertlog.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * This class enables the periodic tasks of the application, such as the discarding of expired upload sessions.
+ * They run on the scheduler configured by Spring Boot under `spring.task.scheduling`.
+ */
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
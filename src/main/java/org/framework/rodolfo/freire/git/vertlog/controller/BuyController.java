@@ -1,5 +1,7 @@
 package org.framework.rodolfo.freire.git.vertlog.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -8,24 +10,45 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+import org.framework.rodolfo.freire.git.vertlog.document.QuarantinedLine;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadJob;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadSession;
 import org.framework.rodolfo.freire.git.vertlog.exception.BadRequestException;
 import org.framework.rodolfo.freire.git.vertlog.exception.BuyParseException;
 import org.framework.rodolfo.freire.git.vertlog.exception.ResourceNotFoundException;
+import org.framework.rodolfo.freire.git.vertlog.exception.UploadInProgressException;
 import org.framework.rodolfo.freire.git.vertlog.response.BadRequestResponse;
+import org.framework.rodolfo.freire.git.vertlog.response.BuyPageResponse;
+import org.framework.rodolfo.freire.git.vertlog.response.ConflictResponse;
 import org.framework.rodolfo.freire.git.vertlog.response.FileRequestResponse;
 import org.framework.rodolfo.freire.git.vertlog.response.InternalServerErrorResponse;
 import org.framework.rodolfo.freire.git.vertlog.response.NotFoundResponse;
+import org.framework.rodolfo.freire.git.vertlog.response.ServiceUnavailableResponse;
 import org.framework.rodolfo.freire.git.vertlog.service.BuyService;
+import org.framework.rodolfo.freire.git.vertlog.service.IngestReport;
+import org.framework.rodolfo.freire.git.vertlog.service.QuarantineService;
+import org.framework.rodolfo.freire.git.vertlog.service.UploadJobService;
+import org.framework.rodolfo.freire.git.vertlog.service.UploadSessionService;
+import org.framework.rodolfo.freire.git.vertlog.util.UploadCompression;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Path;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.framework.rodolfo.freire.git.vertlog.util.BuyParseDate.parseDate;
 import static org.framework.rodolfo.freire.git.vertlog.util.BuyParseDate.parseDateApi;
@@ -43,16 +66,33 @@ import static org.framework.rodolfo.freire.git.vertlog.util.BuyParseDate.parseDa
 @RequestMapping(value = "/api")
 public class BuyController {
 
+    static final int MAX_PAGE_SIZE = 1000;
+    private static final String ALLOWED_FILES_MESSAGE = "Only .txt, .txt.gz and .txt.zst files are allowed";
+
     final BuyService buyService;
+    final UploadJobService uploadJobService;
+    final UploadSessionService uploadSessionService;
+    final QuarantineService quarantineService;
+    final ObjectMapper objectMapper;
 
     /**
      * Constructor that initializes the controller with an instance of {@link BuyService}.
      *
-     * @param buyService Service responsible for business logic related to purchases.
+     * @param buyService           Service responsible for business logic related to purchases.
+     * @param uploadJobService     Service responsible for asynchronous uploads.
+     * @param uploadSessionService Service responsible for uploads sent in chunks.
+     * @param quarantineService    Service keeping the malformed lines of tolerant uploads.
+     * @param objectMapper         Mapper writing the buys of streamed responses.
      */
 
-    public BuyController(BuyService buyService) {
+    public BuyController(BuyService buyService, UploadJobService uploadJobService,
+                         UploadSessionService uploadSessionService, QuarantineService quarantineService,
+                         ObjectMapper objectMapper) {
         this.buyService = buyService;
+        this.uploadJobService = uploadJobService;
+        this.uploadSessionService = uploadSessionService;
+        this.quarantineService = quarantineService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -93,6 +133,66 @@ public class BuyController {
         }
     }
 
+    /**
+     * Retrieves a page of buy orders ordered by user identifier (keyset pagination).
+     * The next page is requested with the `next_after` value of the current one; it is null on the last page.
+     *
+     * @param after The last user identifier of the previous page, omitted for the first page. Any identifier is
+     *              accepted, so users with an identifier of 0 or below are paged too.
+     * @param limit The maximum number of buys of the page, between 1 and {@value #MAX_PAGE_SIZE}.
+     * @return A ResponseEntity containing the page or an appropriate error response.
+     */
+
+    @Operation(description = "check orders page by page, ordered by user identifier")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "OK", content = @Content(schema = @Schema(implementation = BuyPageResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(implementation = BadRequestResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error", content = @Content(schema = @Schema(implementation = InternalServerErrorResponse.class)))
+    })
+    @GetMapping(value = "/buy/page")
+    public ResponseEntity<?> getBuyPage(@RequestParam(required = false) Integer after,
+                                        @RequestParam(defaultValue = "100") int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BadRequestResponse("Invalid page. limit must be between 1 and "
+                            + MAX_PAGE_SIZE, "/buy/page"));
+        }
+        try {
+            return ResponseEntity.ok(new BuyPageResponse(buyService.findPage(after, limit), limit));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new InternalServerErrorResponse("Error when searching for buys", "/buy/page"));
+        }
+    }
+
+    /**
+     * Streams all buy orders as newline-delimited JSON, one buy per line, ordered by user identifier.
+     * The buys are written as they are read from the database cursor, so the memory used does not depend
+     * on the number of stored buys.
+     *
+     * @return A ResponseEntity writing the buys to the response body.
+     */
+
+    @Operation(description = "stream all orders as newline-delimited JSON")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "OK", content = @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = Buy.class)))
+    })
+    @GetMapping(value = "/buy/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAllBuy() {
+        StreamingResponseBody body = outputStream -> {
+            ObjectWriter writer = objectMapper.writerFor(Buy.class);
+            try (Stream<Buy> buys = buyService.streamAll()) {
+                Iterator<Buy> iterator = buys.iterator();
+                while (iterator.hasNext()) {
+                    outputStream.write(writer.writeValueAsBytes(iterator.next()));
+                    outputStream.write('\n');
+                }
+            }
+            outputStream.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
     /**
      * Retrieves a buy order by its identifier.
      *
@@ -181,11 +281,12 @@ public class BuyController {
     }
 
 
-    @Operation(description = "Uploaded file only .txt files are allowed")
+    @Operation(description = "Uploaded file only .txt files are allowed, possibly compressed as .txt.gz or .txt.zst")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "OK", content = @Content(schema = @Schema(implementation = FileRequestResponse.class))),
             @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(implementation = BadRequestResponse.class))),
             @ApiResponse(responseCode = "404", description = "Not Found", content = @Content(schema = @Schema(implementation = NotFoundResponse.class))),
+            @ApiResponse(responseCode = "409", description = "Conflict", content = @Content(schema = @Schema(implementation = ConflictResponse.class))),
             @ApiResponse(responseCode = "500", description = "Internal Server Error", content = @Content(schema = @Schema(implementation = InternalServerErrorResponse.class)))
     })
     @PostMapping(consumes = "multipart/form-data", value = "/upload")
@@ -196,17 +297,30 @@ public class BuyController {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                         .body(new BadRequestResponse("Uploaded file is empty","/buy/upload/"));
             }
-            if (!file.getOriginalFilename().toLowerCase().endsWith(".txt")) {
-                log.error("Only .txt files are allowed");
+            if (UploadCompression.fromFileName(file.getOriginalFilename()) == null) {
+                log.error(ALLOWED_FILES_MESSAGE);
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                        .body(new BadRequestResponse("Only .txt files are allowed","/buy/upload/"));
+                        .body(new BadRequestResponse(ALLOWED_FILES_MESSAGE,"/buy/upload/"));
             }
-            InputStream inputStream = file.getInputStream();
-            buyService.uploadFile(inputStream);
-            log.info("Successful processing the file");
+            IngestReport report = buyService.uploadFile(file, file.getOriginalFilename(),
+                    new IngestReport(file.getOriginalFilename()));
+            log.info("Successful processing the file: {}", report);
             return ResponseEntity.status(HttpStatus.OK)
-                    .body(new FileRequestResponse("Successful processing the file","/buy/upload/"));
-        } catch (IOException e) {
+                    .body(new FileRequestResponse(processingMessage(report), "/buy/upload/",
+                            report.getInserted(), report.getUpdated(), report.getFailed(), report.getSkipped(),
+                            report.getQuarantined(), report.getUploadId()));
+        } catch (UploadInProgressException e) {
+            log.error(e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ConflictResponse(e.getMessage(), "/buy/upload/"));
+        } catch (IOException | UncheckedIOException e) {
+            if (UploadCompression.isMalformedContent(e)) {
+                log.error("Uploaded file {} is not a valid {} file", file.getOriginalFilename(),
+                        UploadCompression.fromFileName(file.getOriginalFilename()).getExtension());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(new BadRequestResponse(malformedContentMessage(file.getOriginalFilename()),
+                                "/buy/upload/"));
+            }
             log.error("Failed to process uploaded file");
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new InternalServerErrorResponse("Failed to process uploaded file", "/buy/upload/)"));
@@ -216,4 +330,369 @@ public class BuyController {
                     .body(new InternalServerErrorResponse("Unexpected error during file upload", "/buy/upload/)"));
         }
     }
+
+    /**
+     * Processes a file sent as the raw request body while it is received, without multipart parsing nor temporary
+     * file: the first users are saved while the client is still sending the rest of the file. The lines of a user must
+     * be contiguous, and the body is not checked against the files already processed: sent again, it writes the same
+     * buys in REPLACE mode, and in MERGE mode its product lines are found already stored and reported as skipped.
+     * A body that is not in the compression format of `fileName`, or is truncated, is refused as a bad request.
+     *
+     * @param fileName      The name of the file, telling its compression and naming its quarantined lines.
+     * @param contentLength The length of the body, when sent.
+     * @param body          The content of the .txt file, possibly compressed as .txt.gz or .txt.zst.
+     * @return A ResponseEntity containing the counts of saved buys or an appropriate error response.
+     */
+
+    @Operation(description = "Upload a .txt file as the request body, processed while it is received")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "OK", content = @Content(schema = @Schema(implementation = FileRequestResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(implementation = BadRequestResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error", content = @Content(schema = @Schema(implementation = InternalServerErrorResponse.class)))
+    })
+    @PostMapping(consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE, MediaType.TEXT_PLAIN_VALUE}, value = "/upload/stream")
+    public ResponseEntity<?> uploadStream(@RequestParam(value = "fileName", defaultValue = "upload.txt") String fileName,
+                                          @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength,
+                                          InputStream body) {
+        if (contentLength != null && contentLength == 0) {
+            log.error("Uploaded file is empty");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BadRequestResponse("Uploaded file is empty", "/upload/stream"));
+        }
+        UploadCompression compression = UploadCompression.fromFileName(fileName);
+        if (compression == null) {
+            log.error(ALLOWED_FILES_MESSAGE);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BadRequestResponse(ALLOWED_FILES_MESSAGE, "/upload/stream"));
+        }
+        InputStream content;
+        try {
+            content = compression.decompress(body);
+        } catch (IOException e) {
+            // the header of a .txt.gz body is read here: a body that is not gzip fails before any line is read
+            log.error("Streamed file {} is not a valid {} file", fileName, compression.getExtension());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BadRequestResponse(malformedContentMessage(fileName), "/upload/stream"));
+        }
+        try (content) {
+            IngestReport report = buyService.uploadStream(content, new IngestReport(fileName));
+            log.info("Successful processing the streamed file: {}", report);
+            return ResponseEntity.status(HttpStatus.OK)
+                    .body(new FileRequestResponse(processingMessage(report), "/upload/stream",
+                            report.getInserted(), report.getUpdated(), report.getFailed(), report.getSkipped(),
+                            report.getQuarantined(), report.getUploadId()));
+        } catch (BuyParseException e) {
+            // the users read before the malformed line are already saved
+            log.error("Malformed streamed file {}: {}", fileName, e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BadRequestResponse(e.getMessage(), "/upload/stream"));
+        } catch (Exception e) {
+            if (UploadCompression.isMalformedContent(e)) {
+                // the users read before the corrupt part are already saved
+                log.error("Streamed file {} is not a valid {} file", fileName, compression.getExtension());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(new BadRequestResponse(malformedContentMessage(fileName), "/upload/stream"));
+            }
+            log.error("Failed to process streamed file {}", fileName, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new InternalServerErrorResponse("Failed to process streamed file", "/upload/stream"));
+        }
+    }
+
+    /**
+     * Processes a file already present in the batch directory of the server, parsing it in parallel from disk.
+     *
+     * @param fileName The name of the file within the batch directory.
+     * @return A ResponseEntity containing the counts of saved buys or an appropriate error response.
+     */
+
+    @Operation(description = "Process a file of the server batch directory")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "OK", content = @Content(schema = @Schema(implementation = FileRequestResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(implementation = BadRequestResponse.class))),
+            @ApiResponse(responseCode = "409", description = "Conflict", content = @Content(schema = @Schema(implementation = ConflictResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error", content = @Content(schema = @Schema(implementation = InternalServerErrorResponse.class)))
+    })
+    @PostMapping(value = "/upload/batch")
+    public ResponseEntity<?> uploadBatchFile(@RequestParam("fileName") String fileName) {
+        try {
+            IngestReport report = buyService.uploadBatchFile(fileName);
+            log.info("Successful processing the batch file {}: {}", fileName, report);
+            return ResponseEntity.status(HttpStatus.OK)
+                    .body(new FileRequestResponse(processingMessage(report), "/buy/upload/batch/",
+                            report.getInserted(), report.getUpdated(), report.getFailed(), report.getSkipped(),
+                            report.getQuarantined(), report.getUploadId()));
+        } catch (BadRequestException e) {
+            log.error(e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BadRequestResponse(e.getMessage(), "/buy/upload/batch/"));
+        } catch (UploadInProgressException e) {
+            log.error(e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ConflictResponse(e.getMessage(), "/buy/upload/batch/"));
+        } catch (Exception e) {
+            log.error("Failed to process batch file {}", fileName, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new InternalServerErrorResponse("Failed to process batch file", "/buy/upload/batch/"));
+        }
+    }
+
+    /**
+     * Receives a file and processes it asynchronously, returning the identifier of the upload job right away.
+     *
+     * @param file The uploaded .txt file, possibly compressed as .txt.gz or .txt.zst.
+     * @return A ResponseEntity containing the queued job, with the location of its status, or an appropriate error response.
+     */
+
+    @Operation(description = "Upload a .txt file processed in the background, returning the upload job")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Accepted", content = @Content(schema = @Schema(implementation = UploadJob.class))),
+            @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(implementation = BadRequestResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error", content = @Content(schema = @Schema(implementation = InternalServerErrorResponse.class))),
+            @ApiResponse(responseCode = "503", description = "Service Unavailable", content = @Content(schema = @Schema(implementation = ServiceUnavailableResponse.class)))
+    })
+    @PostMapping(consumes = "multipart/form-data", value = "/upload/async")
+    public ResponseEntity<?> uploadDocumentAsync(@RequestParam("file") MultipartFile file) {
+        if (file.isEmpty()) {
+            log.error("Uploaded file is empty");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BadRequestResponse("Uploaded file is empty", "/buy/upload/async/"));
+        }
+        if (UploadCompression.fromFileName(file.getOriginalFilename()) == null) {
+            log.error(ALLOWED_FILES_MESSAGE);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BadRequestResponse(ALLOWED_FILES_MESSAGE, "/buy/upload/async/"));
+        }
+        try {
+            Path spoolFile = uploadJobService.createSpoolFile();
+            file.transferTo(spoolFile);
+            UploadJob job = uploadJobService.submit(file.getOriginalFilename(), spoolFile);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/upload/jobs/" + job.getJobId()))
+                    .body(job);
+        } catch (TaskRejectedException e) {
+            log.error("Too many upload jobs waiting");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new ServiceUnavailableResponse("Too many upload jobs waiting, try again later", "/buy/upload/async/"));
+        } catch (Exception e) {
+            log.error("Failed to queue uploaded file", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new InternalServerErrorResponse("Failed to queue uploaded file", "/buy/upload/async/"));
+        }
+    }
+
+    /**
+     * Retrieves the status and progress of an upload job.
+     *
+     * @param id The unique identifier of the upload job. (Path Variable)
+     * @return A ResponseEntity containing the job or an appropriate error response.
+     */
+
+    @Operation(description = "Status and progress of an upload job")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "OK", content = @Content(schema = @Schema(implementation = UploadJob.class))),
+            @ApiResponse(responseCode = "404", description = "Not Found", content = @Content(schema = @Schema(implementation = NotFoundResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error", content = @Content(schema = @Schema(implementation = InternalServerErrorResponse.class)))
+    })
+    @GetMapping(value = "/upload/jobs/{id}")
+    public ResponseEntity<?> getUploadJob(@PathVariable String id) {
+        Optional<UploadJob> job;
+        try {
+            job = uploadJobService.findById(id);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new InternalServerErrorResponse("Error when searching for upload job", "/upload/jobs/" + id));
+        }
+        if (job.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new NotFoundResponse("Upload job not found with ID: " + id, "/upload/jobs/" + id));
+        }
+        return ResponseEntity.ok(job.get());
+    }
+
+    /**
+     * Opens a session receiving a file in chunks, each chunk sent and retried on its own.
+     *
+     * @param fileName  The name of the .txt file, possibly compressed as .txt.gz or .txt.zst.
+     * @param totalSize The number of bytes of the file, as sent.
+     * @param chunkSize The number of bytes of every chunk but the last one, optional.
+     * @return A ResponseEntity containing the open session, with its location, or an appropriate error response.
+     */
+
+    @Operation(description = "Open a session uploading a .txt file in chunks")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Created", content = @Content(schema = @Schema(implementation = UploadSession.class))),
+            @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(implementation = BadRequestResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error", content = @Content(schema = @Schema(implementation = InternalServerErrorResponse.class)))
+    })
+    @PostMapping(value = "/upload/sessions")
+    public ResponseEntity<?> openUploadSession(@RequestParam("fileName") String fileName,
+                                               @RequestParam("totalSize") long totalSize,
+                                               @RequestParam(value = "chunkSize", required = false) Long chunkSize) {
+        if (UploadCompression.fromFileName(fileName) == null) {
+            log.error(ALLOWED_FILES_MESSAGE);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BadRequestResponse(ALLOWED_FILES_MESSAGE, "/upload/sessions"));
+        }
+        try {
+            UploadSession session = uploadSessionService.open(fileName, totalSize, chunkSize);
+            return ResponseEntity.created(URI.create("/api/upload/sessions/" + session.getSessionId()))
+                    .body(session);
+        } catch (BadRequestException e) {
+            log.error(e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BadRequestResponse(e.getMessage(), "/upload/sessions"));
+        } catch (Exception e) {
+            log.error("Failed to open upload session for {}", fileName, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new InternalServerErrorResponse("Failed to open upload session", "/upload/sessions"));
+        }
+    }
+
+    /**
+     * Receives a chunk of the file of a session, streamed from the request body to the spool file of the session.
+     * A chunk sent again replaces the previous copy.
+     *
+     * @param id    The unique identifier of the session. (Path Variable)
+     * @param index The index of the chunk, from 0. (Path Variable)
+     * @param body  The bytes of the chunk.
+     * @return A ResponseEntity containing the session or an appropriate error response.
+     */
+
+    @Operation(description = "Send a chunk of a session file, again if its previous request failed")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "OK", content = @Content(schema = @Schema(implementation = UploadSession.class))),
+            @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(implementation = BadRequestResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Not Found", content = @Content(schema = @Schema(implementation = NotFoundResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error", content = @Content(schema = @Schema(implementation = InternalServerErrorResponse.class)))
+    })
+    @PutMapping(consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE, value = "/upload/sessions/{id}/chunks/{index}")
+    public ResponseEntity<?> uploadChunk(@PathVariable String id, @PathVariable int index, InputStream body) {
+        String path = "/upload/sessions/" + id + "/chunks/" + index;
+        try {
+            return ResponseEntity.ok(uploadSessionService.writeChunk(id, index, body));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new NotFoundResponse(e.getMessage(), path));
+        } catch (BadRequestException e) {
+            log.error(e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BadRequestResponse(e.getMessage(), path));
+        } catch (Exception e) {
+            log.error("Failed to receive chunk {} of upload session {}", index, id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new InternalServerErrorResponse("Failed to receive chunk, send it again", path));
+        }
+    }
+
+    /**
+     * Retrieves an upload session, listing the chunks already received.
+     *
+     * @param id The unique identifier of the session. (Path Variable)
+     * @return A ResponseEntity containing the session or an appropriate error response.
+     */
+
+    @Operation(description = "Status and received chunks of an upload session")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "OK", content = @Content(schema = @Schema(implementation = UploadSession.class))),
+            @ApiResponse(responseCode = "404", description = "Not Found", content = @Content(schema = @Schema(implementation = NotFoundResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error", content = @Content(schema = @Schema(implementation = InternalServerErrorResponse.class)))
+    })
+    @GetMapping(value = "/upload/sessions/{id}")
+    public ResponseEntity<?> getUploadSession(@PathVariable String id) {
+        Optional<UploadSession> session;
+        try {
+            session = uploadSessionService.findById(id);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new InternalServerErrorResponse("Error when searching for upload session", "/upload/sessions/" + id));
+        }
+        if (session.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new NotFoundResponse("Upload session not found with ID: " + id, "/upload/sessions/" + id));
+        }
+        return ResponseEntity.ok(session.get());
+    }
+
+    /**
+     * Completes an upload session whose chunks were all received, processing the file in the background.
+     *
+     * @param id The unique identifier of the session. (Path Variable)
+     * @return A ResponseEntity containing the queued job, with the location of its status, or an appropriate error response.
+     */
+
+    @Operation(description = "Complete an upload session, processing its file in the background")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Accepted", content = @Content(schema = @Schema(implementation = UploadJob.class))),
+            @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(implementation = BadRequestResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Not Found", content = @Content(schema = @Schema(implementation = NotFoundResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error", content = @Content(schema = @Schema(implementation = InternalServerErrorResponse.class))),
+            @ApiResponse(responseCode = "503", description = "Service Unavailable", content = @Content(schema = @Schema(implementation = ServiceUnavailableResponse.class)))
+    })
+    @PostMapping(value = "/upload/sessions/{id}/complete")
+    public ResponseEntity<?> completeUploadSession(@PathVariable String id) {
+        String path = "/upload/sessions/" + id + "/complete";
+        try {
+            UploadJob job = uploadSessionService.complete(id);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/upload/jobs/" + job.getJobId()))
+                    .body(job);
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new NotFoundResponse(e.getMessage(), path));
+        } catch (BadRequestException e) {
+            log.error(e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BadRequestResponse(e.getMessage(), path));
+        } catch (TaskRejectedException e) {
+            log.error("Too many upload jobs waiting");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new ServiceUnavailableResponse("Too many upload jobs waiting, upload the file again later", path));
+        } catch (Exception e) {
+            log.error("Failed to complete upload session {}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new InternalServerErrorResponse("Failed to complete upload session", path));
+        }
+    }
+
+    /**
+     * Retrieves the malformed lines of an upload set aside by a tolerant ingest, in file order.
+     *
+     * @param uploadId The identifier of the upload: the `uploadId` of the upload response, or the job identifier of
+     *                 an asynchronous upload.
+     * @param limit    The maximum number of lines, between 1 and {@value #MAX_PAGE_SIZE}.
+     * @return A ResponseEntity containing the quarantined lines or an appropriate error response.
+     */
+
+    @Operation(description = "Malformed lines of an upload set aside by a tolerant ingest")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "OK", content = @Content(schema = @Schema(implementation = QuarantinedLine.class))),
+            @ApiResponse(responseCode = "400", description = "Bad Request", content = @Content(schema = @Schema(implementation = BadRequestResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error", content = @Content(schema = @Schema(implementation = InternalServerErrorResponse.class)))
+    })
+    @GetMapping(value = "/upload/quarantine")
+    public ResponseEntity<?> getQuarantinedLines(@RequestParam("uploadId") String uploadId,
+                                                 @RequestParam(defaultValue = "100") int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BadRequestResponse("Invalid limit. limit must be between 1 and " + MAX_PAGE_SIZE,
+                            "/upload/quarantine"));
+        }
+        try {
+            return ResponseEntity.ok(quarantineService.findByUploadId(uploadId, limit));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new InternalServerErrorResponse("Error when searching for quarantined lines",
+                            "/upload/quarantine"));
+        }
+    }
+
+    private static String malformedContentMessage(String fileName) {
+        return "Content is not a valid " + UploadCompression.fromFileName(fileName).getExtension()
+                + " file, or it is truncated";
+    }
+
+    private static String processingMessage(IngestReport report) {
+        return report.isDuplicate() ? "File already uploaded, skipped" : "Successful processing the file";
+    }
 }
@@ -2,10 +2,14 @@ package org.framework.rodolfo.freire.git.vertlog.document;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
+import org.framework.rodolfo.freire.git.vertlog.util.Cents;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.convert.ValueConverter;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import java.util.Date;
@@ -34,11 +38,14 @@ public class BuyOrder {
     private int buyId;
 
     /**
-     * The total amount of the purchase order.
+     * The total amount of the purchase order, in cents.
      */
-    @Schema(description = "Total amount of the purchase order", example = "1024.48")
+    @Schema(description = "Total amount of the purchase order", example = "1024.48", type = "number")
     @JsonProperty("total")
-    private double total;
+    @JsonSerialize(using = Cents.Serializer.class)
+    @JsonDeserialize(using = Cents.Deserializer.class)
+    @ValueConverter(Cents.MongoConverter.class)
+    private long total;
 
     /**
      * The date when the purchase order was placed.
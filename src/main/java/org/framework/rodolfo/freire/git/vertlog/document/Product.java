@@ -1,10 +1,14 @@
 package org.framework.rodolfo.freire.git.vertlog.document;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
+import org.framework.rodolfo.freire.git.vertlog.util.Cents;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.convert.ValueConverter;
 
 /**
  * Represents a product within the system. Each product has a unique identifier and a value.
@@ -29,10 +33,13 @@ public class Product {
     private int productId;
 
     /**
-     * The price of this product.
+     * The price of this product, in cents.
      */
-    @Schema(description = "Price of this product", example = "1024.48")
+    @Schema(description = "Price of this product", example = "1024.48", type = "number")
     @JsonProperty("value")
-    private double productValue;
+    @JsonSerialize(using = Cents.Serializer.class)
+    @JsonDeserialize(using = Cents.Deserializer.class)
+    @ValueConverter(Cents.MongoConverter.class)
+    private long productValue;
 
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package org.framework.rodolfo.freire.git.vertlog.document;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Represents a malformed line of an uploaded file, set aside by a tolerant ingest instead of failing the upload.
+ */
+
+@Slf4j
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@EqualsAndHashCode
+@Document(value = "DocumentQuarantinedLine")
+@Schema(title = "QuarantinedLine")
+public class QuarantinedLine {
+
+    /**
+     * The unique identifier of this record: the identifier of the upload and the number of the line, so each upload
+     * keeps its own quarantined lines, whatever the name of its file, and a resumed job replaces the lines it rejects
+     * again.
+     */
+    @Schema(description = "Unique identifier of this record, the upload identifier and the line number", example = "5f0c6a1e-8d3b-4c1a-9e57-2b1f0d7c3a44:1024")
+    @JsonProperty("id")
+    @Id
+    private String id;
+
+    /**
+     * The name of the file holding the line.
+     */
+    @Schema(description = "Name of the file holding the line", example = "data_1.txt")
+    @JsonProperty("source")
+    private String source;
+
+    /**
+     * The identifier of the upload that set the line aside: the job identifier of an asynchronous upload, the one
+     * returned by the response otherwise.
+     */
+    @Schema(description = "Identifier of the upload that set the line aside", example = "5f0c6a1e-8d3b-4c1a-9e57-2b1f0d7c3a44")
+    @JsonProperty("upload_id")
+    private String uploadId;
+
+    /**
+     * The number of the line within the file, counting from 1 and including empty lines.
+     */
+    @Schema(description = "Number of the line within the file, counting from 1", example = "1024")
+    @JsonProperty("line_number")
+    private Long lineNumber;
+
+    /**
+     * The position of the first byte of the line within the file.
+     */
+    @Schema(description = "Position of the first byte of the line within the file", example = "97280")
+    @JsonProperty("offset")
+    private long offset;
+
+    /**
+     * The bytes of the line, without its terminator.
+     */
+    @Schema(description = "Bytes of the line, without its terminator, Base64 encoded")
+    @JsonProperty("raw")
+    private byte[] raw;
+
+    /**
+     * Why the line could not be parsed.
+     */
+    @Schema(description = "Why the line could not be parsed", example = "Invalid date format: 20211399")
+    @JsonProperty("reason")
+    private String reason;
+
+    /**
+     * The date when the line was set aside.
+     */
+    @Schema(description = "Date when the line was set aside")
+    @JsonProperty("created_at")
+    private Date createdAt;
+
+}
@@ -0,0 +1,56 @@
+package org.framework.rodolfo.freire.git.vertlog.document;
+
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Represents an uploaded file claimed for processing, identified by the fingerprint of its content.
+ * A new upload with the same fingerprint is skipped once the file is completed; until then, it claims the file again.
+ */
+
+@Slf4j
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@EqualsAndHashCode
+@Document(value = "DocumentUploadFingerprint")
+public class UploadFingerprint {
+
+    /**
+     * The hexadecimal SHA-256 digest of the file content.
+     */
+    @Id
+    private String fingerprint;
+
+    /**
+     * The name of the file when it was first uploaded.
+     */
+    private String fileName;
+
+    /**
+     * The date when the file was first uploaded.
+     */
+    private Date createdAt;
+
+    /**
+     * Whether the processing of the file ended; false while the first upload is still running.
+     */
+    private boolean completed;
+
+    /**
+     * The number of lines of the file, known once the processing ended.
+     */
+    private long lines;
+
+    /**
+     * The date when the last processing of the file started, later than `createdAt` once the file was claimed again.
+     */
+    private Date claimedAt;
+
+}
@@ -0,0 +1,199 @@
+package org.framework.rodolfo.freire.git.vertlog.document;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Represents an asynchronous upload job. The job records the progress of the processing of an uploaded file and
+ * remains queryable after the processing ends.
+ */
+
+@Slf4j
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@EqualsAndHashCode
+@Document(value = "DocumentUploadJob")
+@Schema(title = "UploadJob")
+public class UploadJob {
+
+    /**
+     * The unique identifier of this job.
+     */
+    @Schema(description = "Unique identifier of this job", example = "5b1c0c55-8e0c-4b5d-9d25-35c7a9b0c1f2")
+    @JsonProperty("job_id")
+    @Id
+    private String jobId;
+
+    /**
+     * The name of the uploaded file.
+     */
+    @Schema(description = "Name of the uploaded file", example = "data_1.txt")
+    @JsonProperty("file_name")
+    private String fileName;
+
+    /**
+     * The current status of this job.
+     */
+    @Schema(description = "Current status of this job", example = "RUNNING")
+    @JsonProperty("status")
+    private UploadJobStatus status;
+
+    /**
+     * The moment the file was received.
+     */
+    @Schema(description = "Moment the file was received")
+    @JsonProperty("created_at")
+    private Date createdAt;
+
+    /**
+     * The moment the processing started.
+     */
+    @Schema(description = "Moment the processing started")
+    @JsonProperty("started_at")
+    private Date startedAt;
+
+    /**
+     * The moment the processing ended.
+     */
+    @Schema(description = "Moment the processing ended")
+    @JsonProperty("finished_at")
+    private Date finishedAt;
+
+    /**
+     * The number of lines read from the file.
+     */
+    @Schema(description = "Number of lines read from the file", example = "1000000")
+    @JsonProperty("lines_processed")
+    private long linesProcessed;
+
+    /**
+     * The average number of lines processed per second.
+     */
+    @Schema(description = "Average number of lines processed per second", example = "250000.0")
+    @JsonProperty("lines_per_second")
+    private double linesPerSecond;
+
+    /**
+     * The number of users saved.
+     */
+    @Schema(description = "Number of users saved", example = "5000")
+    @JsonProperty("users_saved")
+    private long usersSaved;
+
+    /**
+     * The number of orders saved.
+     */
+    @Schema(description = "Number of orders saved", example = "40000")
+    @JsonProperty("orders_saved")
+    private long ordersSaved;
+
+    /**
+     * The number of products saved.
+     */
+    @Schema(description = "Number of products saved", example = "160000")
+    @JsonProperty("products_saved")
+    private long productsSaved;
+
+    /**
+     * The number of buys created.
+     */
+    @Schema(description = "Number of buys created", example = "120")
+    @JsonProperty("inserted")
+    private long inserted;
+
+    /**
+     * The number of existing buys replaced.
+     */
+    @Schema(description = "Number of existing buys replaced", example = "30")
+    @JsonProperty("updated")
+    private long updated;
+
+    /**
+     * The number of buys that could not be saved.
+     */
+    @Schema(description = "Number of buys that could not be saved", example = "0")
+    @JsonProperty("failed")
+    private long failed;
+
+    /**
+     * The number of lines left out because they were already stored.
+     */
+    @Schema(description = "Number of lines left out because they were already stored", example = "0")
+    @JsonProperty("skipped")
+    private long skipped;
+
+    /**
+     * The number of malformed lines set aside instead of failing the upload.
+     */
+    @Schema(description = "Number of malformed lines set aside instead of failing the upload", example = "0")
+    @JsonProperty("quarantined")
+    private long quarantined;
+
+    /**
+     * Whether the file was skipped because the same content was already uploaded.
+     */
+    @Schema(description = "Whether the file was skipped because the same content was already uploaded", example = "false")
+    @JsonProperty("duplicate")
+    private boolean duplicate;
+
+    /**
+     * The number of bytes of the file, decompressed, saved before the last checkpoint.
+     */
+    @Schema(description = "Number of bytes of the file, decompressed, saved before the last checkpoint", example = "67108864")
+    @JsonProperty("checkpoint_offset")
+    private long checkpointOffset;
+
+    /**
+     * The number of lines of the file saved before the last checkpoint.
+     */
+    @Schema(description = "Number of lines of the file saved before the last checkpoint", example = "706000")
+    @JsonProperty("checkpoint_line")
+    private long checkpointLine;
+
+    /**
+     * The number of lines parsed before the last checkpoint, leaving out the empty and malformed ones.
+     */
+    @Schema(description = "Number of lines parsed before the last checkpoint, empty and malformed lines left out", example = "705990")
+    @JsonProperty("checkpoint_parsed_lines")
+    private long checkpointParsedLines;
+
+    /**
+     * The moment of the last checkpoint.
+     */
+    @Schema(description = "Moment of the last checkpoint")
+    @JsonProperty("checkpointed_at")
+    private Date checkpointedAt;
+
+    /**
+     * The number of times the processing was started, more than 1 once resumed after an interruption.
+     */
+    @Schema(description = "Number of times the processing was started, more than 1 once resumed after an interruption", example = "1")
+    @JsonProperty("attempts")
+    private int attempts;
+
+    /**
+     * The path of the spooled copy of the file, kept until the job ends.
+     */
+    @JsonIgnore
+    private String spoolFile;
+
+    /**
+     * The errors raised while processing the file.
+     */
+    @Schema(description = "Errors raised while processing the file")
+    @JsonProperty("errors")
+    private List<String> errors = new ArrayList<>();
+
+}
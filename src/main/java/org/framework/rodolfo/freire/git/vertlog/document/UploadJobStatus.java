@@ -0,0 +1,27 @@
+package org.framework.rodolfo.freire.git.vertlog.document;
+
+/**
+ * Represents the lifecycle of an asynchronous upload job.
+ */
+public enum UploadJobStatus {
+
+    /**
+     * The file was received and waits for a free ingest thread.
+     */
+    QUEUED,
+
+    /**
+     * The file is being parsed and saved.
+     */
+    RUNNING,
+
+    /**
+     * The file was processed to the end.
+     */
+    COMPLETED,
+
+    /**
+     * The processing stopped because of an error.
+     */
+    FAILED
+}
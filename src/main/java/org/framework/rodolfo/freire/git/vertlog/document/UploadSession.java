@@ -0,0 +1,107 @@
+package org.framework.rodolfo.freire.git.vertlog.document;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Represents a chunked upload session. The file is sent in chunks of a fixed size, in any order and each one retried
+ * on its own, then the session is completed and the file is processed by an {@link UploadJob}.
+ */
+
+@Slf4j
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@EqualsAndHashCode
+@Document(value = "DocumentUploadSession")
+@Schema(title = "UploadSession")
+public class UploadSession {
+
+    /**
+     * The unique identifier of this session.
+     */
+    @Schema(description = "Unique identifier of this session", example = "0f8e6a3c-2b7d-4f3e-9a51-7c1d2e4b6a90")
+    @JsonProperty("session_id")
+    @Id
+    private String sessionId;
+
+    /**
+     * The name of the uploaded file.
+     */
+    @Schema(description = "Name of the uploaded file", example = "data_1.txt.gz")
+    @JsonProperty("file_name")
+    private String fileName;
+
+    /**
+     * The current status of this session.
+     */
+    @Schema(description = "Current status of this session", example = "OPEN")
+    @JsonProperty("status")
+    private UploadSessionStatus status;
+
+    /**
+     * The number of bytes of the file, as uploaded.
+     */
+    @Schema(description = "Number of bytes of the file, as uploaded", example = "1073741824")
+    @JsonProperty("total_size")
+    private long totalSize;
+
+    /**
+     * The number of bytes of every chunk but the last one.
+     */
+    @Schema(description = "Number of bytes of every chunk but the last one", example = "8388608")
+    @JsonProperty("chunk_size")
+    private long chunkSize;
+
+    /**
+     * The number of chunks of the file.
+     */
+    @Schema(description = "Number of chunks of the file", example = "128")
+    @JsonProperty("chunk_count")
+    private int chunkCount;
+
+    /**
+     * The indexes of the chunks received, from 0, in order of arrival.
+     */
+    @Schema(description = "Indexes of the chunks received, from 0, in order of arrival")
+    @JsonProperty("received_chunks")
+    private List<Integer> receivedChunks = new ArrayList<>();
+
+    /**
+     * The moment the session was opened.
+     */
+    @Schema(description = "Moment the session was opened")
+    @JsonProperty("created_at")
+    private Date createdAt;
+
+    /**
+     * The moment the last chunk was received or the status changed.
+     */
+    @Schema(description = "Moment the last chunk was received or the status changed")
+    @JsonProperty("updated_at")
+    private Date updatedAt;
+
+    /**
+     * The identifier of the job processing the file, once the session is committed.
+     */
+    @Schema(description = "Identifier of the job processing the file, once the session is committed", example = "5b1c0c55-8e0c-4b5d-9d25-35c7a9b0c1f2")
+    @JsonProperty("job_id")
+    private String jobId;
+
+    /**
+     * The path of the spool file receiving the chunks, handed to the job once the session is committed.
+     */
+    @JsonIgnore
+    private String spoolFile;
+}
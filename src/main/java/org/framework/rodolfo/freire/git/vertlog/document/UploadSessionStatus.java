@@ -0,0 +1,22 @@
+package org.framework.rodolfo.freire.git.vertlog.document;
+
+/**
+ * Represents the lifecycle of a chunked upload session.
+ */
+public enum UploadSessionStatus {
+
+    /**
+     * The session accepts chunks and waits for all of them before being completed.
+     */
+    OPEN,
+
+    /**
+     * All chunks were received and the file was handed to an upload job.
+     */
+    COMMITTED,
+
+    /**
+     * The file could not be handed to an upload job; its chunks were discarded.
+     */
+    ABORTED
+}
@@ -0,0 +1,22 @@
+package org.framework.rodolfo.freire.git.vertlog.exception;
+
+/**
+ * A custom exception class thrown when a file is uploaded while another upload of the same content is still running.
+ * The client may send the file again once the running upload ended: it is then skipped if that upload succeeded.
+ *
+ * @extends RuntimeException
+ */
+
+public class UploadInProgressException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new UploadInProgressException with the specified message.
+     *
+     * @param message The message naming the running upload.
+     */
+    public UploadInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,69 @@
+package org.framework.rodolfo.freire.git.vertlog.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Represents the outcome of a bulk write of `Buy` entities.
+ */
+
+@Getter
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class BulkSaveResult {
+
+    /**
+     * The number of documents created by the bulk write.
+     */
+    private final int inserted;
+
+    /**
+     * The number of existing documents replaced by the bulk write.
+     */
+    private final int updated;
+
+    /**
+     * The number of documents the bulk write could not persist.
+     */
+    private final int failed;
+
+    /**
+     * The positions, within the written batch, of the entities that could not be persisted.
+     */
+    private final Set<Integer> failedIndexes;
+
+    /**
+     * The number of product lines left out because they were already stored (merge write mode only).
+     */
+    private final int skipped;
+
+    /**
+     * Constructs a BulkSaveResult without skipped product lines.
+     *
+     * @param inserted      The number of documents created.
+     * @param updated       The number of existing documents replaced.
+     * @param failed        The number of documents that could not be persisted.
+     * @param failedIndexes The positions of the entities that could not be persisted.
+     */
+    public BulkSaveResult(int inserted, int updated, int failed, Set<Integer> failedIndexes) {
+        this(inserted, updated, failed, failedIndexes, 0);
+    }
+
+    /**
+     * Constructs a BulkSaveResult without the positions of the failed entities.
+     *
+     * @param inserted The number of documents created.
+     * @param updated  The number of existing documents replaced.
+     * @param failed   The number of documents that could not be persisted.
+     */
+    public BulkSaveResult(int inserted, int updated, int failed) {
+        this(inserted, updated, failed, Collections.emptySet(), 0);
+    }
+
+}
@@ -2,7 +2,7 @@ package org.framework.rodolfo.freire.git.vertlog.repository;
 
 import org.framework.rodolfo.freire.git.vertlog.document.Buy;
 import org.springframework.data.mongodb.repository.MongoRepository;
-import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.stereotype.Repository;
 
 import java.util.Date;
@@ -12,16 +12,33 @@ import java.util.List;
  * Spring Data Mongo repository for managing `Buy` entities.
  * <p>
  * This interface provides common CRUD (Create, Read, Update, Delete) operations for `Buy` entities in a MongoDB database.
- * It extends the `MongoRepository` class, which offers additional features like query methods and sorting options.
+ * It extends the `MongoRepository` class, which offers additional features like query methods and sorting options,
+ * and the `BuyRepositoryCustom` fragment, which adds bulk writes.
  *
  * @see Buy
  * @see MongoRepository
+ * @see BuyRepositoryCustom
  */
 
 @Repository
-public interface BuyRepository extends MongoRepository<Buy, Integer> {
+public interface BuyRepository extends MongoRepository<Buy, Integer>, BuyRepositoryCustom {
 
-    @Query("{'orders.date': {$eq: ?0, $eq: ?1}}")
+    /**
+     * Finds the buys with at least one order placed between the given dates (inclusive), keeping only those orders.
+     * <p>
+     * The `$elemMatch` lets MongoDB bound both ends of the range on the multikey `orders.date` index created by
+     * {@link org.framework.rodolfo.freire.git.vertlog.configuration.MongoIndexConfiguration}.
+     *
+     * @param startDate The first day of the range.
+     * @param endDate   The last day of the range.
+     * @return The matching buys ordered by user identifier, each with only the orders inside the range.
+     */
+    @Aggregation(pipeline = {
+            "{ $match: { 'orders': { $elemMatch: { 'date': { $gte: ?0, $lte: ?1 } } } } }",
+            "{ $addFields: { 'orders': { $filter: { input: '$orders', as: 'order', "
+                    + "cond: { $and: [ { $gte: ['$$order.date', ?0] }, { $lte: ['$$order.date', ?1] } ] } } } } }",
+            "{ $sort: { '_id': 1 } }"
+    })
     List<Buy> findByDate(Date startDate, Date endDate);
 
 }
@@ -0,0 +1,81 @@
+package org.framework.rodolfo.freire.git.vertlog.repository;
+
+import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Custom repository fragment for `Buy` entities, providing operations not covered by derived queries.
+ *
+ * @see BuyRepository
+ * @see BuyRepositoryCustomImpl
+ */
+public interface BuyRepositoryCustom {
+
+    /**
+     * Upserts a batch of `Buy` entities with a single bulk write, replacing the documents that already exist.
+     *
+     * @param buys    The entities to be upserted.
+     * @param ordered Whether the bulk write stops at the first error (ordered) or attempts every entity (unordered).
+     * @return The number of inserted, updated and failed documents.
+     */
+    BulkSaveResult bulkUpsert(List<Buy> buys, boolean ordered);
+
+    /**
+     * Converts a batch of `Buy` entities into the documents written by {@link #bulkUpsert(PreparedBuys, boolean)}.
+     * <p>
+     * The conversion does not access the database, so it can run on another thread than the bulk write.
+     *
+     * @param buys The entities to be converted.
+     * @return The entities with their documents.
+     */
+    PreparedBuys prepareUpsert(List<Buy> buys);
+
+    /**
+     * Upserts a batch of already converted `Buy` entities with a single bulk write.
+     *
+     * @param prepared The entities and their documents.
+     * @param ordered  Whether the bulk write stops at the first error (ordered) or attempts every entity (unordered).
+     * @return The number of inserted, updated and failed documents.
+     * @see #bulkUpsert(List, boolean)
+     */
+    BulkSaveResult bulkUpsert(PreparedBuys prepared, boolean ordered);
+
+    /**
+     * Merges a batch of `Buy` entities into the stored documents.
+     * <p>
+     * A first ordered bulk write upserts the users with their name and pushes the orders not yet stored. A second
+     * bulk write appends each product line to its stored order and increments the order total by its value, unless
+     * the line is already stored. A line is identified by its order, its product and its occurrence among the lines of
+     * the same product in that order, and is already stored when the stored order holds as many lines of the product.
+     * Uploading files that overlap, or the same file again, thus only writes the lines not stored yet, as long as a
+     * file carries the lines of each of its orders from the first one: a file continuing an order repeats the lines
+     * already exported, as the cumulative daily exports do, and a new line of a product already in the order is
+     * written as its next occurrence.
+     *
+     * @param buys The entities to be merged.
+     * @return The number of created users (inserted), of existing users merged (updated), of failed users and of
+     * product lines already stored (skipped).
+     */
+    BulkSaveResult bulkMerge(List<Buy> buys);
+
+    /**
+     * Finds a page of `Buy` entities ordered by user identifier, starting after the given identifier (keyset pagination).
+     *
+     * @param afterUserId The last user identifier of the previous page, null for the first page.
+     * @param limit       The maximum number of entities of the page.
+     * @return The entities with a user identifier greater than `afterUserId`, or the lowest ones for the first page,
+     * in ascending order.
+     */
+    List<Buy> findPageAfter(Integer afterUserId, int limit);
+
+    /**
+     * Streams every `Buy` entity ordered by user identifier, reading them from a database cursor.
+     * <p>
+     * The stream holds the cursor open and must be closed by the caller.
+     *
+     * @return A stream of all `Buy` entities.
+     */
+    Stream<Buy> streamAll();
+}
@@ -0,0 +1,273 @@
+package org.framework.rodolfo.freire.git.vertlog.repository;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+import org.framework.rodolfo.freire.git.vertlog.document.BuyOrder;
+import org.framework.rodolfo.freire.git.vertlog.document.Product;
+import org.framework.rodolfo.freire.git.vertlog.util.Cents;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of {@link BuyRepositoryCustom} backed by {@link MongoTemplate} bulk operations.
+ */
+
+@Slf4j
+public class BuyRepositoryCustomImpl implements BuyRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Constructor that injects the `MongoTemplate` dependency.
+     *
+     * @param mongoTemplate The template used to run bulk operations.
+     */
+    public BuyRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Inherited method from `BuyRepositoryCustom`.
+     *
+     * @see BuyRepositoryCustom#bulkUpsert(List, boolean)
+     */
+    @Override
+    public BulkSaveResult bulkUpsert(List<Buy> buys, boolean ordered) {
+        return bulkUpsert(prepareUpsert(buys), ordered);
+    }
+
+    /**
+     * Inherited method from `BuyRepositoryCustom`.
+     *
+     * @see BuyRepositoryCustom#prepareUpsert(List)
+     */
+    @Override
+    public PreparedBuys prepareUpsert(List<Buy> buys) {
+        MongoConverter converter = mongoTemplate.getConverter();
+        List<Document> documents = new ArrayList<>(buys.size());
+        for (Buy buy : buys) {
+            Document document = new Document();
+            converter.write(buy, document);
+            documents.add(document);
+        }
+        return new PreparedBuys(buys, documents);
+    }
+
+    /**
+     * Inherited method from `BuyRepositoryCustom`.
+     *
+     * @see BuyRepositoryCustom#bulkUpsert(PreparedBuys, boolean)
+     */
+    @Override
+    public BulkSaveResult bulkUpsert(PreparedBuys prepared, boolean ordered) {
+        List<Buy> buys = prepared.getBuys();
+        if (buys.isEmpty()) {
+            return new BulkSaveResult(0, 0, 0);
+        }
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(
+                ordered ? BulkOperations.BulkMode.ORDERED : BulkOperations.BulkMode.UNORDERED, Buy.class);
+        for (int index = 0; index < buys.size(); index++) {
+            bulkOperations.replaceOne(Query.query(Criteria.where("_id").is(buys.get(index).getUserId())),
+                    prepared.getDocuments().get(index), FindAndReplaceOptions.options().upsert());
+        }
+        BulkWriteResult result;
+        Set<Integer> failedIndexes = new TreeSet<>();
+        try {
+            result = bulkOperations.execute();
+        } catch (BulkOperationException e) {
+            log.error("Bulk write failed for {} of {} buys", e.getErrors().size(), buys.size());
+            result = e.getResult();
+            for (BulkWriteError error : e.getErrors()) {
+                failedIndexes.add(error.getIndex());
+            }
+            if (ordered && !failedIndexes.isEmpty()) {
+                for (int index = failedIndexes.iterator().next(); index < buys.size(); index++) {
+                    failedIndexes.add(index);
+                }
+            }
+        }
+        int inserted = result.getUpserts().size();
+        int updated = result.getMatchedCount();
+        return new BulkSaveResult(inserted, updated, buys.size() - inserted - updated, failedIndexes);
+    }
+
+    /**
+     * Inherited method from `BuyRepositoryCustom`.
+     *
+     * @see BuyRepositoryCustom#bulkMerge(List)
+     */
+    @Override
+    public BulkSaveResult bulkMerge(List<Buy> buys) {
+        if (buys.isEmpty()) {
+            return new BulkSaveResult(0, 0, 0);
+        }
+        BulkOperations orderOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Buy.class);
+        // position of the first operation of each user, to map a failed operation back to its user
+        int[] firstOperation = new int[buys.size()];
+        int operations = 0;
+        for (int index = 0; index < buys.size(); index++) {
+            Buy buy = buys.get(index);
+            firstOperation[index] = operations;
+            orderOperations.upsert(Query.query(Criteria.where("_id").is(buy.getUserId())), new Update()
+                    .set("userName", buy.getUserName())
+                    .setOnInsert("orders", new ArrayList<>()));
+            operations++;
+            for (BuyOrder order : buy.getOrders()) {
+                BuyOrder emptyOrder = new BuyOrder(order.getBuyId(), 0, order.getDate(), new ArrayList<>());
+                orderOperations.updateOne(
+                        Query.query(Criteria.where("_id").is(buy.getUserId()).and("orders._id").ne(order.getBuyId())),
+                        new Update().push("orders", emptyOrder));
+                operations++;
+            }
+        }
+        BulkWriteResult result;
+        Set<Integer> failedIndexes = new TreeSet<>();
+        try {
+            result = orderOperations.execute();
+        } catch (BulkOperationException e) {
+            result = e.getResult();
+            int failedOperation = e.getErrors().get(0).getIndex();
+            int failedUser = 0;
+            while (failedUser + 1 < buys.size() && firstOperation[failedUser + 1] <= failedOperation) {
+                failedUser++;
+            }
+            log.error("Bulk merge failed at user {}, {} of {} buys not merged", buys.get(failedUser).getUserId(),
+                    buys.size() - failedUser, buys.size());
+            for (int index = failedUser; index < buys.size(); index++) {
+                failedIndexes.add(index);
+            }
+        }
+        int skipped = mergeProductLines(buys, failedIndexes);
+        int inserted = 0;
+        for (BulkWriteUpsert upsert : result.getUpserts()) {
+            if (!failedIndexes.contains(Arrays.binarySearch(firstOperation, upsert.getIndex()))) {
+                inserted++;
+            }
+        }
+        int failed = failedIndexes.size();
+        return new BulkSaveResult(inserted, buys.size() - inserted - failed, failed, failedIndexes, skipped);
+    }
+
+    /**
+     * Appends the product lines of the merged users to their stored orders, skipping the lines already stored.
+     * <p>
+     * A line is identified by its order, its product and its occurrence among the lines of the same product in that
+     * order: the n-th line of a product is written only while the stored order holds fewer than n lines of it. The
+     * lines are written in file order by an ordered bulk write, so each one sees the lines written before it.
+     *
+     * @param buys          The merged entities.
+     * @param failedIndexes The positions of the entities that could not be merged; updated with new failures.
+     * @return The number of product lines already stored.
+     */
+    private int mergeProductLines(List<Buy> buys, Set<Integer> failedIndexes) {
+        BulkOperations lineOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Buy.class);
+        // user of each operation, to map a failed operation back to its user
+        int[] operationUser = new int[64];
+        int operations = 0;
+        Map<Integer, Integer> occurrences = new HashMap<>();
+        for (int index = 0; index < buys.size(); index++) {
+            if (failedIndexes.contains(index)) {
+                continue;
+            }
+            Buy buy = buys.get(index);
+            for (BuyOrder order : buy.getOrders()) {
+                occurrences.clear();
+                for (Product product : order.getProducts()) {
+                    int occurrence = occurrences.merge(product.getProductId(), 1, Integer::sum) - 1;
+                    lineOperations.updateOne(lineQuery(buy.getUserId(), order.getBuyId(), product, occurrence),
+                            lineUpdate(order.getBuyId(), product));
+                    if (operations == operationUser.length) {
+                        operationUser = Arrays.copyOf(operationUser, operations * 2);
+                    }
+                    operationUser[operations++] = index;
+                }
+            }
+        }
+        if (operations == 0) {
+            return 0;
+        }
+        BulkWriteResult result;
+        int executed = operations;
+        try {
+            result = lineOperations.execute();
+        } catch (BulkOperationException e) {
+            result = e.getResult();
+            // an ordered bulk write stops at the first error: the users from the failed one on are not merged
+            executed = e.getErrors().get(0).getIndex();
+            for (int index = operationUser[executed]; index < buys.size(); index++) {
+                failedIndexes.add(index);
+            }
+            log.error("Bulk merge failed at product line {} of {}", executed, operations);
+        }
+        // a line already stored matches no user, so it modifies nothing
+        return executed - result.getModifiedCount();
+    }
+
+    /**
+     * Matches the user of a product line while its order holds at most `occurrence` lines of the product.
+     */
+    private static Query lineQuery(int userId, int buyId, Product product, int occurrence) {
+        Document order = new Document("$filter", new Document("input", "$orders")
+                .append("as", "order")
+                .append("cond", new Document("$eq", List.of("$$order._id", buyId))));
+        Document orderLines = new Document("$reduce", new Document("input", order)
+                .append("initialValue", List.of())
+                .append("in", new Document("$concatArrays", List.of("$$value", "$$this.products"))));
+        Document storedLines = new Document("$size", new Document("$filter", new Document("input", orderLines)
+                .append("as", "product")
+                .append("cond", new Document("$eq", List.of("$$product._id", product.getProductId())))));
+        return new BasicQuery(new Document("_id", userId)
+                .append("$expr", new Document("$lte", List.of(storedLines, occurrence))));
+    }
+
+    private static Update lineUpdate(int buyId, Product product) {
+        return new Update().push("orders.$[order].products", product)
+                .inc("orders.$[order].total", new Decimal128(Cents.toBigDecimal(product.getProductValue())))
+                .filterArray(Criteria.where("order._id").is(buyId));
+    }
+
+    /**
+     * Inherited method from `BuyRepositoryCustom`.
+     *
+     * @see BuyRepositoryCustom#findPageAfter(Integer, int)
+     */
+    @Override
+    public List<Buy> findPageAfter(Integer afterUserId, int limit) {
+        Query query = afterUserId == null ? new Query() : Query.query(Criteria.where("_id").gt(afterUserId));
+        query.with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(limit);
+        return mongoTemplate.find(query, Buy.class);
+    }
+
+    /**
+     * Inherited method from `BuyRepositoryCustom`.
+     *
+     * @see BuyRepositoryCustom#streamAll()
+     */
+    @Override
+    public Stream<Buy> streamAll() {
+        return mongoTemplate.stream(new Query().with(Sort.by(Sort.Direction.ASC, "_id")), Buy.class);
+    }
+}
@@ -0,0 +1,30 @@
+package org.framework.rodolfo.freire.git.vertlog.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.bson.Document;
+import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+
+import java.util.List;
+
+/**
+ * A batch of `Buy` entities together with their MongoDB documents, converted ahead of the bulk write.
+ *
+ * @see BuyRepositoryCustom#prepareUpsert(List)
+ */
+
+@Getter
+@AllArgsConstructor
+public class PreparedBuys {
+
+    /**
+     * The entities of the batch.
+     */
+    private final List<Buy> buys;
+
+    /**
+     * The documents of the entities, in the same order.
+     */
+    private final List<Document> documents;
+
+}
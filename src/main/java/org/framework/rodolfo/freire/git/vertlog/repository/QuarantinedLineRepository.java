@@ -0,0 +1,32 @@
+package org.framework.rodolfo.freire.git.vertlog.repository;
+
+import org.framework.rodolfo.freire.git.vertlog.document.QuarantinedLine;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Spring Data Mongo repository for managing `QuarantinedLine` entities.
+ * <p>
+ * It extends the `QuarantinedLineRepositoryCustom` fragment, which adds bulk writes.
+ *
+ * @see QuarantinedLine
+ * @see MongoRepository
+ * @see QuarantinedLineRepositoryCustom
+ */
+
+@Repository
+public interface QuarantinedLineRepository extends MongoRepository<QuarantinedLine, String>,
+        QuarantinedLineRepositoryCustom {
+
+    /**
+     * Finds the quarantined lines of an upload.
+     *
+     * @param uploadId The identifier of the upload.
+     * @param pageable The page and order of the lines.
+     * @return The quarantined lines of the page.
+     */
+    List<QuarantinedLine> findByUploadId(String uploadId, Pageable pageable);
+}
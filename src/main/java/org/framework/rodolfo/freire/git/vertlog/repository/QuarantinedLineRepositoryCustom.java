@@ -0,0 +1,22 @@
+package org.framework.rodolfo.freire.git.vertlog.repository;
+
+import org.framework.rodolfo.freire.git.vertlog.document.QuarantinedLine;
+
+import java.util.List;
+
+/**
+ * Custom repository fragment for `QuarantinedLine` entities, providing bulk writes of the lines set aside.
+ *
+ * @see QuarantinedLineRepository
+ * @see QuarantinedLineRepositoryCustomImpl
+ */
+public interface QuarantinedLineRepositoryCustom {
+
+    /**
+     * Writes quarantined lines in one unordered bulk write, replacing the lines stored with the same identifier.
+     * A line is identified by its upload and its number, so a resumed job does not store its malformed lines twice.
+     *
+     * @param lines The lines to write, with their identifier set.
+     */
+    void bulkUpsert(List<QuarantinedLine> lines);
+}
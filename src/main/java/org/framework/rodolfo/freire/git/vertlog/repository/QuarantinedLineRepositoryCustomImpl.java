@@ -0,0 +1,46 @@
+package org.framework.rodolfo.freire.git.vertlog.repository;
+
+import org.framework.rodolfo.freire.git.vertlog.document.QuarantinedLine;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+
+/**
+ * Implementation of {@link QuarantinedLineRepositoryCustom} backed by {@link MongoTemplate} bulk operations.
+ */
+public class QuarantinedLineRepositoryCustomImpl implements QuarantinedLineRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Constructor that injects the `MongoTemplate` dependency.
+     *
+     * @param mongoTemplate The template used to run the bulk writes.
+     */
+    public QuarantinedLineRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Inherited method from `QuarantinedLineRepositoryCustom`.
+     *
+     * @see QuarantinedLineRepositoryCustom#bulkUpsert(List)
+     */
+    @Override
+    public void bulkUpsert(List<QuarantinedLine> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED,
+                QuarantinedLine.class);
+        for (QuarantinedLine line : lines) {
+            bulkOperations.replaceOne(Query.query(Criteria.where("_id").is(line.getId())), line,
+                    FindAndReplaceOptions.options().upsert());
+        }
+        bulkOperations.execute();
+    }
+}
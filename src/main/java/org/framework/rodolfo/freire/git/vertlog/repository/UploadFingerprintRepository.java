@@ -0,0 +1,25 @@
+package org.framework.rodolfo.freire.git.vertlog.repository;
+
+import org.framework.rodolfo.freire.git.vertlog.document.UploadFingerprint;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data Mongo repository for managing `UploadFingerprint` entities.
+ *
+ * @see UploadFingerprint
+ * @see MongoRepository
+ */
+
+@Repository
+public interface UploadFingerprintRepository extends MongoRepository<UploadFingerprint, String>,
+        UploadFingerprintRepositoryCustom {
+
+    /**
+     * Deletes a fingerprint unless its processing completed.
+     *
+     * @param fingerprint The fingerprint of the uploaded file.
+     * @return The number of deleted fingerprints, 0 or 1.
+     */
+    long deleteByFingerprintAndCompletedFalse(String fingerprint);
+}
@@ -0,0 +1,33 @@
+package org.framework.rodolfo.freire.git.vertlog.repository;
+
+import org.framework.rodolfo.freire.git.vertlog.document.UploadFingerprint;
+
+import java.util.Date;
+
+/**
+ * Custom repository fragment for `UploadFingerprint` entities, providing atomic updates of a claimed fingerprint.
+ *
+ * @see UploadFingerprintRepository
+ * @see UploadFingerprintRepositoryCustomImpl
+ */
+public interface UploadFingerprintRepositoryCustom {
+
+    /**
+     * Claims again a fingerprint whose processing never completed, as left by a failed or interrupted upload.
+     *
+     * @param fingerprint   The fingerprint of the uploaded file.
+     * @param fileName      The name of the uploaded file.
+     * @param claimedBefore The date the last claim must be older than, or null to claim again whatever its date.
+     * @return The claimed fingerprint, or null if the fingerprint is completed, claimed since `claimedBefore` or not
+     * registered.
+     */
+    UploadFingerprint reclaim(String fingerprint, String fileName, Date claimedBefore);
+
+    /**
+     * Marks a fingerprint as completed in a single upsert, registering it if it was released meanwhile.
+     *
+     * @param fingerprint The fingerprint of the uploaded file.
+     * @param lines       The number of lines of the file.
+     */
+    void complete(String fingerprint, long lines);
+}
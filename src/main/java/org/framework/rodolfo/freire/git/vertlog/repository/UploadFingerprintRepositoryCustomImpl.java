@@ -0,0 +1,58 @@
+package org.framework.rodolfo.freire.git.vertlog.repository;
+
+import org.framework.rodolfo.freire.git.vertlog.document.UploadFingerprint;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+
+/**
+ * Implementation of {@link UploadFingerprintRepositoryCustom} backed by {@link MongoTemplate} atomic updates.
+ */
+public class UploadFingerprintRepositoryCustomImpl implements UploadFingerprintRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Constructor that injects the `MongoTemplate` dependency.
+     *
+     * @param mongoTemplate The template used to run the updates.
+     */
+    public UploadFingerprintRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Inherited method from `UploadFingerprintRepositoryCustom`.
+     *
+     * @see UploadFingerprintRepositoryCustom#reclaim(String, String, Date)
+     */
+    @Override
+    public UploadFingerprint reclaim(String fingerprint, String fileName, Date claimedBefore) {
+        Criteria criteria = Criteria.where("_id").is(fingerprint).and("completed").is(false);
+        if (claimedBefore != null) {
+            // a claim registered without its date is as old as can be
+            criteria.orOperator(Criteria.where("claimedAt").lt(claimedBefore), Criteria.where("claimedAt").is(null));
+        }
+        return mongoTemplate.findAndModify(Query.query(criteria),
+                new Update().set("fileName", fileName).set("claimedAt", new Date()),
+                FindAndModifyOptions.options().returnNew(true), UploadFingerprint.class);
+    }
+
+    /**
+     * Inherited method from `UploadFingerprintRepositoryCustom`.
+     *
+     * @see UploadFingerprintRepositoryCustom#complete(String, long)
+     */
+    @Override
+    public void complete(String fingerprint, long lines) {
+        Date now = new Date();
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(fingerprint)),
+                new Update().set("completed", true).set("lines", lines)
+                        .setOnInsert("createdAt", now).setOnInsert("claimedAt", now),
+                UploadFingerprint.class);
+    }
+}
@@ -0,0 +1,28 @@
+package org.framework.rodolfo.freire.git.vertlog.repository;
+
+import org.framework.rodolfo.freire.git.vertlog.document.UploadJob;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadJobStatus;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Spring Data Mongo repository for managing `UploadJob` entities.
+ *
+ * @see UploadJob
+ * @see MongoRepository
+ */
+
+@Repository
+public interface UploadJobRepository extends MongoRepository<UploadJob, String> {
+
+    /**
+     * Finds the jobs in any of the given statuses.
+     *
+     * @param statuses The statuses of the jobs.
+     * @return The jobs in those statuses.
+     */
+    List<UploadJob> findByStatusIn(Collection<UploadJobStatus> statuses);
+}
@@ -0,0 +1,27 @@
+package org.framework.rodolfo.freire.git.vertlog.repository;
+
+import org.framework.rodolfo.freire.git.vertlog.document.UploadSession;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Spring Data Mongo repository for managing `UploadSession` entities.
+ *
+ * @see UploadSession
+ * @see MongoRepository
+ */
+
+@Repository
+public interface UploadSessionRepository extends MongoRepository<UploadSession, String>, UploadSessionRepositoryCustom {
+
+    /**
+     * Finds the sessions left untouched since a given moment.
+     *
+     * @param updatedAt The moment.
+     * @return The sessions updated for the last time before that moment.
+     */
+    List<UploadSession> findByUpdatedAtBefore(Date updatedAt);
+}
@@ -0,0 +1,32 @@
+package org.framework.rodolfo.freire.git.vertlog.repository;
+
+import org.framework.rodolfo.freire.git.vertlog.document.UploadSession;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadSessionStatus;
+
+/**
+ * Custom repository fragment for `UploadSession` entities, providing atomic updates of a session shared by the
+ * requests sending its chunks.
+ *
+ * @see UploadSessionRepository
+ * @see UploadSessionRepositoryCustomImpl
+ */
+public interface UploadSessionRepositoryCustom {
+
+    /**
+     * Records the reception of a chunk by an open session. A chunk received again is recorded once.
+     *
+     * @param sessionId The unique identifier of the session.
+     * @param index     The index of the chunk.
+     * @return The updated session, or null if no open session has this identifier.
+     */
+    UploadSession addReceivedChunk(String sessionId, int index);
+
+    /**
+     * Moves an open session to another status, so that only one request completes it.
+     *
+     * @param sessionId The unique identifier of the session.
+     * @param status    The new status of the session.
+     * @return The updated session, or null if no open session has this identifier.
+     */
+    UploadSession close(String sessionId, UploadSessionStatus status);
+}
@@ -0,0 +1,56 @@
+package org.framework.rodolfo.freire.git.vertlog.repository;
+
+import org.framework.rodolfo.freire.git.vertlog.document.UploadSession;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadSessionStatus;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+
+/**
+ * Implementation of {@link UploadSessionRepositoryCustom} backed by {@link MongoTemplate} atomic updates.
+ */
+public class UploadSessionRepositoryCustomImpl implements UploadSessionRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Constructor that injects the `MongoTemplate` dependency.
+     *
+     * @param mongoTemplate The template used to run the updates.
+     */
+    public UploadSessionRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Inherited method from `UploadSessionRepositoryCustom`.
+     *
+     * @see UploadSessionRepositoryCustom#addReceivedChunk(String, int)
+     */
+    @Override
+    public UploadSession addReceivedChunk(String sessionId, int index) {
+        return mongoTemplate.findAndModify(openSession(sessionId),
+                new Update().addToSet("receivedChunks", index).set("updatedAt", new Date()),
+                FindAndModifyOptions.options().returnNew(true), UploadSession.class);
+    }
+
+    /**
+     * Inherited method from `UploadSessionRepositoryCustom`.
+     *
+     * @see UploadSessionRepositoryCustom#close(String, UploadSessionStatus)
+     */
+    @Override
+    public UploadSession close(String sessionId, UploadSessionStatus status) {
+        return mongoTemplate.findAndModify(openSession(sessionId),
+                new Update().set("status", status).set("updatedAt", new Date()),
+                FindAndModifyOptions.options().returnNew(true), UploadSession.class);
+    }
+
+    private static Query openSession(String sessionId) {
+        return Query.query(Criteria.where("_id").is(sessionId).and("status").is(UploadSessionStatus.OPEN));
+    }
+}
@@ -0,0 +1,49 @@
+package org.framework.rodolfo.freire.git.vertlog.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+
+import java.util.List;
+
+/**
+ * Represents a page of buys returned by keyset pagination, with the cursor of the next page.
+ */
+
+@Slf4j
+@Setter
+@Getter
+@EqualsAndHashCode
+public class BuyPageResponse {
+
+    @Schema(description = "Buys of the page ordered by user identifier")
+    private List<Buy> items;
+    @Schema(description = "Number of buys of the page", example = "100")
+    private int size;
+    @Schema(description = "Value of the `after` parameter for the next page, null on the last page", example = "100")
+    @JsonProperty("next_after")
+    private Integer nextAfter;
+
+    /**
+     * Default constructor.
+     */
+    public BuyPageResponse() {
+    }
+
+    /**
+     * Constructs a BuyPageResponse from the buys of a page.
+     *
+     * @param items The buys of the page, ordered by user identifier.
+     * @param limit The requested page size; a full page means more buys may follow.
+     */
+    public BuyPageResponse(List<Buy> items, int limit) {
+        this.items = items;
+        this.size = items.size();
+        this.nextAfter = items.size() < limit ? null : items.get(items.size() - 1).getUserId();
+    }
+
+}
@@ -0,0 +1,48 @@
+package org.framework.rodolfo.freire.git.vertlog.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Represents a HTTP 409 Conflict response format for API responses.
+ */
+
+@Slf4j
+@Setter
+@Getter
+@EqualsAndHashCode
+public class ConflictResponse {
+
+    @Schema(description = "409", example = "409")
+    private int status;
+    @Schema(description = "Conflict", example = "Conflict")
+    private String error;
+    @Schema(description = "File buys.txt is already being uploaded, try again later", example = "File buys.txt is already being uploaded, try again later")
+    private String message;
+    @Schema(description = "/buy/upload/", example = "/buy/upload/")
+    private String path;
+
+    /**
+     * Default constructor initializes the status and error fields for HTTP 409.
+     */
+    public ConflictResponse() {
+        this.status = 409;
+        this.error = "Conflict";
+    }
+
+    /**
+     * Constructs a ConflictResponse with a specific message and path.
+     *
+     * @param message Description of the conflicting request.
+     * @param path    Path where the request was refused.
+     */
+    public ConflictResponse(String message, String path) {
+        this();
+        this.message = message;
+        this.path = path;
+    }
+
+}
@@ -20,6 +20,18 @@ public class FileRequestResponse {
     private String message;
     @Schema(description = "/buy/upload", example = "/buy/upload")
     private String path;
+    @Schema(description = "Number of buys created", example = "120")
+    private long inserted;
+    @Schema(description = "Number of existing buys replaced", example = "30")
+    private long updated;
+    @Schema(description = "Number of buys that could not be saved", example = "0")
+    private long failed;
+    @Schema(description = "Number of lines left out because they were already stored", example = "0")
+    private long skipped;
+    @Schema(description = "Number of malformed lines set aside instead of failing the upload", example = "0")
+    private long quarantined;
+    @Schema(description = "Identifier of the upload, listing its quarantined lines", example = "5f0c6a1e-8d3b-4c1a-9e57-2b1f0d7c3a44")
+    private String uploadId;
 
     /**
      * Default constructor initializes the status and error fields for HTTP 400.
@@ -41,4 +53,72 @@ public class FileRequestResponse {
         this.path = path;
     }
 
+    /**
+     * Constructs a FileRequestResponse with a specific message, path and the counts of saved buys.
+     *
+     * @param message  Description of the processing result.
+     * @param path     Path where the file was processed.
+     * @param inserted Number of buys created.
+     * @param updated  Number of existing buys replaced.
+     * @param failed   Number of buys that could not be saved.
+     */
+    public FileRequestResponse(String message, String path, long inserted, long updated, long failed) {
+        this(message, path);
+        this.inserted = inserted;
+        this.updated = updated;
+        this.failed = failed;
+    }
+
+    /**
+     * Constructs a FileRequestResponse with a specific message, path, the counts of saved buys and of skipped lines.
+     *
+     * @param message  Description of the processing result.
+     * @param path     Path where the file was processed.
+     * @param inserted Number of buys created.
+     * @param updated  Number of existing buys replaced.
+     * @param failed   Number of buys that could not be saved.
+     * @param skipped  Number of lines left out because they were already stored.
+     */
+    public FileRequestResponse(String message, String path, long inserted, long updated, long failed, long skipped) {
+        this(message, path, inserted, updated, failed);
+        this.skipped = skipped;
+    }
+
+    /**
+     * Constructs a FileRequestResponse with a specific message, path, the counts of saved buys, of skipped lines and
+     * of quarantined lines.
+     *
+     * @param message     Description of the processing result.
+     * @param path        Path where the file was processed.
+     * @param inserted    Number of buys created.
+     * @param updated     Number of existing buys replaced.
+     * @param failed      Number of buys that could not be saved.
+     * @param skipped     Number of lines left out because they were already stored.
+     * @param quarantined Number of malformed lines set aside instead of failing the upload.
+     */
+    public FileRequestResponse(String message, String path, long inserted, long updated, long failed, long skipped,
+                               long quarantined) {
+        this(message, path, inserted, updated, failed, skipped);
+        this.quarantined = quarantined;
+    }
+
+    /**
+     * Constructs a FileRequestResponse with a specific message, path, the counts of saved buys, of skipped lines and
+     * of quarantined lines, and the identifier of the upload.
+     *
+     * @param message     Description of the processing result.
+     * @param path        Path where the file was processed.
+     * @param inserted    Number of buys created.
+     * @param updated     Number of existing buys replaced.
+     * @param failed      Number of buys that could not be saved.
+     * @param skipped     Number of lines left out because they were already stored.
+     * @param quarantined Number of malformed lines set aside instead of failing the upload.
+     * @param uploadId    Identifier of the upload, listing its quarantined lines.
+     */
+    public FileRequestResponse(String message, String path, long inserted, long updated, long failed, long skipped,
+                               long quarantined, String uploadId) {
+        this(message, path, inserted, updated, failed, skipped, quarantined);
+        this.uploadId = uploadId;
+    }
+
 }
@@ -0,0 +1,48 @@
+package org.framework.rodolfo.freire.git.vertlog.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Represents a HTTP 503 Service Unavailable response format for API responses.
+ */
+
+@Slf4j
+@Setter
+@Getter
+@EqualsAndHashCode
+public class ServiceUnavailableResponse {
+
+    @Schema(description = "503", example = "503")
+    private int status;
+    @Schema(description = "Service Unavailable", example = "Service Unavailable")
+    private String error;
+    @Schema(description = "Too many upload jobs waiting, try again later", example = "Too many upload jobs waiting, try again later")
+    private String message;
+    @Schema(description = "/buy/upload/async", example = "/buy/upload/async")
+    private String path;
+
+    /**
+     * Default constructor initializes the status and error fields for HTTP 503.
+     */
+    public ServiceUnavailableResponse() {
+        this.status = 503;
+        this.error = "Service Unavailable";
+    }
+
+    /**
+     * Constructs a ServiceUnavailableResponse with a specific message and path.
+     *
+     * @param message Description of the reason the service is unavailable.
+     * @param path    Path where the request was refused.
+     */
+    public ServiceUnavailableResponse(String message, String path) {
+        this();
+        this.message = message;
+        this.path = path;
+    }
+
+}
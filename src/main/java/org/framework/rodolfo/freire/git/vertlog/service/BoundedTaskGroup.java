@@ -0,0 +1,88 @@
+package org.framework.rodolfo.freire.git.vertlog.service;
+
+import org.springframework.core.task.TaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs a group of tasks on an executor with a bounded number of tasks in flight.
+ * <p>
+ * {@link #run(Runnable)} blocks while the bound is reached, so the caller is throttled by the slowest task.
+ * With a concurrency of one the tasks run on the calling thread. Not thread-safe: tasks are expected to be
+ * submitted by a single thread.
+ */
+class BoundedTaskGroup {
+
+    private final TaskExecutor executor;
+    private final int concurrency;
+    private final Semaphore permits;
+    private final List<CompletableFuture<Void>> pending = new ArrayList<>();
+    private volatile Throwable failure;
+
+    /**
+     * Creates a group running at most `concurrency` tasks at the same time.
+     *
+     * @param executor    The executor running the tasks when the concurrency is above one.
+     * @param concurrency The maximum number of tasks in flight.
+     */
+    BoundedTaskGroup(TaskExecutor executor, int concurrency) {
+        this.executor = executor;
+        this.concurrency = Math.max(1, concurrency);
+        this.permits = new Semaphore(this.concurrency);
+    }
+
+    /**
+     * Runs a task, waiting for a free slot first.
+     *
+     * @param task The task to run.
+     * @throws RuntimeException Thrown if a previous task of the group failed.
+     */
+    void run(Runnable task) {
+        rethrowFailure();
+        if (concurrency == 1) {
+            task.run();
+            return;
+        }
+        permits.acquireUninterruptibly();
+        pending.add(CompletableFuture.runAsync(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                failure = e;
+                throw e;
+            } finally {
+                permits.release();
+            }
+        }, executor));
+        pending.removeIf(CompletableFuture::isDone);
+    }
+
+    /**
+     * Waits for every task of the group to end.
+     *
+     * @throws RuntimeException Thrown if a task of the group failed.
+     */
+    void await() {
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            // the failure is rethrown below
+        }
+        pending.clear();
+        rethrowFailure();
+    }
+
+    private void rethrowFailure() {
+        Throwable cause = failure;
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+    }
+}
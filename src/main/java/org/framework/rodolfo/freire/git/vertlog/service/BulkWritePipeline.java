@@ -0,0 +1,105 @@
+package org.framework.rodolfo.freire.git.vertlog.service;
+
+import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+import org.framework.rodolfo.freire.git.vertlog.repository.PreparedBuys;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Prepares batches of buys for their bulk write on a fork-join pool and hands them to the writer in submission order.
+ * <p>
+ * Up to `depth` batches are prepared ahead of the one being written, so converting the next batches overlaps with the
+ * current bulk write; {@link #submit(List)} blocks on the oldest batch once the queue is full. With a depth of zero
+ * the batches are handed to the writer unprepared, from the calling thread. Not thread-safe: batches are expected to
+ * be submitted by a single thread.
+ */
+class BulkWritePipeline {
+
+    private final ForkJoinPool pool;
+    private final int depth;
+    private final Function<List<Buy>, PreparedBuys> preparation;
+    private final Consumer<PreparedBuys> writer;
+    private final BoundedTaskGroup writeTasks;
+    private final ArrayDeque<ForkJoinTask<PreparedBuys>> queue = new ArrayDeque<>();
+
+    /**
+     * Creates a pipeline preparing at most `depth` batches ahead of the writer.
+     *
+     * @param pool        The pool preparing the batches.
+     * @param depth       The maximum number of prepared batches waiting for the writer.
+     * @param preparation The conversion of a batch into its documents.
+     * @param writeTasks  The group running the writes, bounding the writes in flight.
+     * @param writer      The bulk write of a batch, prepared or not.
+     */
+    BulkWritePipeline(ForkJoinPool pool, int depth, Function<List<Buy>, PreparedBuys> preparation,
+                      BoundedTaskGroup writeTasks, Consumer<PreparedBuys> writer) {
+        this.pool = pool;
+        this.depth = Math.max(0, depth);
+        this.preparation = preparation;
+        this.writeTasks = writeTasks;
+        this.writer = writer;
+    }
+
+    /**
+     * Queues a batch for preparation, writing the oldest prepared batch first when the queue is full.
+     *
+     * @param batch The buys of one bulk write.
+     * @throws RuntimeException Thrown if the preparation or the write of a previous batch failed.
+     */
+    void submit(List<Buy> batch) {
+        if (depth == 0) {
+            write(new PreparedBuys(batch, null));
+            return;
+        }
+        if (queue.size() == depth) {
+            write(queue.poll().join());
+        }
+        queue.add(pool.submit(() -> preparation.apply(batch)));
+    }
+
+    /**
+     * Writes the batches still queued and waits for every write to end.
+     * <p>
+     * The writes already started are waited for even if a batch failed, so none of them is left running once this
+     * method returns; the failure of the preparation is then thrown with the one of the writes suppressed.
+     *
+     * @throws RuntimeException Thrown if the preparation or the write of a batch failed.
+     */
+    void await() {
+        Throwable failure = null;
+        try {
+            while (!queue.isEmpty()) {
+                write(queue.poll().join());
+            }
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            queue.forEach(task -> task.cancel(false));
+            queue.clear();
+            awaitWrites(failure);
+        }
+    }
+
+    private void awaitWrites(Throwable failure) {
+        try {
+            writeTasks.await();
+        } catch (RuntimeException | Error e) {
+            if (failure == null) {
+                throw e;
+            }
+            if (e != failure) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    private void write(PreparedBuys prepared) {
+        writeTasks.run(() -> writer.accept(prepared));
+    }
+}
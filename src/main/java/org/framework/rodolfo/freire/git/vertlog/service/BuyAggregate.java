@@ -0,0 +1,137 @@
+package org.framework.rodolfo.freire.git.vertlog.service;
+
+import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+import org.framework.rodolfo.freire.git.vertlog.document.BuyOrder;
+import org.framework.rodolfo.freire.git.vertlog.document.QuarantinedLine;
+import org.framework.rodolfo.freire.git.vertlog.document.Product;
+import org.framework.rodolfo.freire.git.vertlog.util.BuyRecord;
+import org.framework.rodolfo.freire.git.vertlog.util.BuyRecordParser;
+import org.framework.rodolfo.freire.git.vertlog.util.IntObjectMap;
+
+import java.util.*;
+
+/**
+ * Aggregation of the lines of one region of a file into users and orders.
+ * <p>
+ * Aggregations of consecutive regions are combined with {@link #merge(BuyAggregate)}; merging them in file order
+ * gives the same result as {@link FileService#parserFileToMap} reading the whole file: an order belongs to the first
+ * user it appears with, a user keeps the last name read and products keep their line order.
+ * <p>
+ * Malformed lines are admitted by the quarantine as they are found and kept numbered within the regions aggregated,
+ * so they can be set aside with their number within the file once every region is merged.
+ */
+class BuyAggregate {
+
+    private final IntObjectMap<String> userNames = new IntObjectMap<>();
+    private final IntObjectMap<OrderPart> orders = new IntObjectMap<>();
+    private final List<QuarantinedLine> rejected = new ArrayList<>();
+    private long lines;
+    private long regionLines;
+
+    /**
+     * Counts a line of the region, empty and malformed lines included.
+     */
+    void addRegionLine() {
+        regionLines++;
+    }
+
+    /**
+     * Keeps a malformed line admitted by the quarantine, numbered as the last line counted by {@link #addRegionLine}.
+     *
+     * @param line The admitted line.
+     */
+    void addRejected(QuarantinedLine line) {
+        line.setLineNumber(regionLines);
+        rejected.add(line);
+    }
+
+    /**
+     * Adds a parsed line to this aggregation.
+     *
+     * @param record The parsed line.
+     */
+    void add(BuyRecord record) {
+        lines++;
+        userNames.put(record.getUserId(), record.getUserName());
+        OrderPart order = orders.computeIfAbsent(record.getBuyId(),
+                buyId -> new OrderPart(record.getUserId(), BuyRecordParser.toDate(record)));
+        order.products.add(new Product(record.getProductId(), record.getProductValue()));
+    }
+
+    /**
+     * Merges the aggregation of the region following this one into this aggregation.
+     *
+     * @param next The aggregation of the following region.
+     * @return This aggregation, holding the lines of both regions.
+     */
+    BuyAggregate merge(BuyAggregate next) {
+        lines += next.lines;
+        for (QuarantinedLine line : next.rejected) {
+            line.setLineNumber(regionLines + line.getLineNumber());
+            rejected.add(line);
+        }
+        regionLines += next.regionLines;
+        next.userNames.forEachEntry((userId, userName) -> userNames.put(userId, userName));
+        next.orders.forEachEntry((buyId, nextOrder) -> {
+            OrderPart order = orders.get(buyId);
+            if (order == null) {
+                orders.put(buyId, nextOrder);
+            } else {
+                order.products.addAll(nextOrder.products);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * @return The number of lines added to this aggregation.
+     */
+    long getLines() {
+        return lines;
+    }
+
+    /**
+     * Sets the malformed lines of the aggregated regions aside; once every region is merged, their numbers are the
+     * numbers of the lines within the file.
+     *
+     * @param quarantine The quarantine that admitted the lines.
+     */
+    void setAside(LineQuarantine quarantine) {
+        rejected.forEach(quarantine::setAside);
+    }
+
+    /**
+     * Builds the Buy objects of this aggregation, computing each order total in cents.
+     *
+     * @return A map where keys are user IDs and values are Buy objects.
+     */
+    Map<Integer, Buy> toBuys() {
+        IntObjectMap<Buy> buysMap = new IntObjectMap<>(userNames.size());
+        userNames.forEachEntry((userId, userName) -> {
+            Buy buy = new Buy();
+            buy.setUserId(userId);
+            buy.setUserName(userName);
+            buysMap.put(userId, buy);
+        });
+        orders.forEachEntry((buyId, order) -> {
+            long total = 0;
+            for (Product product : order.products) {
+                total += product.getProductValue();
+            }
+            buysMap.get(order.userId).addOrder(new BuyOrder(buyId, total, order.date, order.products));
+        });
+        return buysMap;
+    }
+
+    private static class OrderPart {
+
+        private final int userId;
+        private final Date date;
+        private final List<Product> products = new ArrayList<>();
+
+        private OrderPart(int userId, Date date) {
+            this.userId = userId;
+            this.date = date;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.framework.rodolfo.freire.git.vertlog.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of buys by user identifier, backed by Caffeine (W-TinyLFU eviction).
+ * <p>
+ * Missing users are cached too, so every write of a user must be followed by {@link #invalidate(int)}. A load
+ * and an invalidation of the same user are serialized by the cache, so an invalidation issued after a write
+ * never leaves the value read before the write in the cache.
+ */
+public class BuyCache {
+
+    private final Cache<Integer, Optional<Buy>> cache;
+
+    /**
+     * Creates a cache holding at most `maximumSize` users, each for at most `expireAfterWrite`.
+     *
+     * @param maximumSize      The maximum number of cached users.
+     * @param expireAfterWrite The time after which a cached user is read again from the database.
+     */
+    public BuyCache(long maximumSize, Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached buy of a user, loading it on a miss.
+     *
+     * @param userId The user identifier.
+     * @param loader The function reading the buy from the database.
+     * @return The buy of the user, or an empty `Optional` if the user does not exist.
+     */
+    public Optional<Buy> get(int userId, Function<Integer, Optional<Buy>> loader) {
+        return cache.get(userId, loader);
+    }
+
+    /**
+     * Removes the cached buy of a user, after the user was written.
+     *
+     * @param userId The user identifier.
+     */
+    public void invalidate(int userId) {
+        cache.invalidate(userId);
+    }
+
+    /**
+     * Removes every cached buy.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Returns the underlying Caffeine cache, to bind its statistics to metrics.
+     *
+     * @return The Caffeine cache.
+     */
+    public Cache<Integer, Optional<Buy>> getNativeCache() {
+        return cache;
+    }
+}
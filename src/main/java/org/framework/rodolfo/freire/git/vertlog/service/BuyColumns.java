@@ -0,0 +1,153 @@
+package org.framework.rodolfo.freire.git.vertlog.service;
+
+import org.framework.rodolfo.freire.git.vertlog.configuration.IngestMode;
+import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+import org.framework.rodolfo.freire.git.vertlog.document.BuyOrder;
+import org.framework.rodolfo.freire.git.vertlog.document.Product;
+import org.framework.rodolfo.freire.git.vertlog.util.BuyParseDate;
+import org.framework.rodolfo.freire.git.vertlog.util.BuyRecord;
+import org.framework.rodolfo.freire.git.vertlog.util.IntObjectMap;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Compact staging of the parsed lines of a file, kept between parsing and persistence.
+ * <p>
+ * Each column is a primitive array indexed by line, and user names are stored once in a dictionary, so a line costs
+ * 28 bytes, plus 8 while the documents are built, instead of the `Product`, list and order objects of a fully built
+ * {@link Buy}. The documents are only built by {@link #forEachBatch(int, Consumer)}, one batch at a time, while they
+ * are written.
+ * <p>
+ * Values are kept in cents and dates as the `yyyyMMdd` number read by the parser.
+ */
+public class BuyColumns {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Map<String, Integer> nameIndexes = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private String lastName;
+    private int lastNameIndex;
+
+    private int[] userIds = new int[INITIAL_CAPACITY];
+    private int[] userNames = new int[INITIAL_CAPACITY];
+    private int[] buyIds = new int[INITIAL_CAPACITY];
+    private int[] productIds = new int[INITIAL_CAPACITY];
+    private long[] cents = new long[INITIAL_CAPACITY];
+    private int[] dates = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Appends a parsed line.
+     *
+     * @param record The parsed line.
+     */
+    public void add(BuyRecord record) {
+        if (size == userIds.length) {
+            grow();
+        }
+        userIds[size] = record.getUserId();
+        userNames[size] = nameIndex(record.getUserName());
+        buyIds[size] = record.getBuyId();
+        productIds[size] = record.getProductId();
+        cents[size] = record.getProductValue();
+        dates[size] = record.getDate();
+        size++;
+    }
+
+    /**
+     * @return The number of staged lines.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of distinct user names of the staged lines.
+     */
+    public int nameCount() {
+        return names.size();
+    }
+
+    /**
+     * Builds the Buy objects of the staged lines and hands them to a consumer in batches, in user identifier order.
+     * <p>
+     * The result matches {@link FileService#parserFileToMap} for the same file: a user keeps the last name read and
+     * products keep their line order. An order identifier is expected to belong to a single user; repeated under
+     * another user it becomes an order of each, as in {@link IngestMode#STREAMING} mode.
+     *
+     * @param batchSize The maximum number of Buy objects handed to the consumer at once.
+     * @param consumer  The consumer receiving each batch; batches are not reused after the call.
+     */
+    public void forEachBatch(int batchSize, Consumer<List<Buy>> consumer) {
+        long[] lines = linesByUser();
+        IntObjectMap<BuyOrder> orders = new IntObjectMap<>();
+        List<Buy> batch = new ArrayList<>(batchSize);
+        int from = 0;
+        while (from < lines.length) {
+            int userId = (int) (lines[from] >> 32);
+            int to = from;
+            Buy buy = new Buy();
+            buy.setUserId(userId);
+            orders.clear();
+            for (; to < lines.length && (int) (lines[to] >> 32) == userId; to++) {
+                int line = (int) lines[to];
+                BuyOrder order = orders.get(buyIds[line]);
+                if (order == null) {
+                    order = new BuyOrder(buyIds[line], 0, BuyParseDate.toDate(dates[line]), new ArrayList<>());
+                    orders.put(buyIds[line], order);
+                    buy.addOrder(order);
+                }
+                order.getProducts().add(new Product(productIds[line], cents[line]));
+                order.setTotal(order.getTotal() + cents[line]);
+            }
+            buy.setUserName(names.get(userNames[(int) lines[to - 1]]));
+            batch.add(buy);
+            if (batch.size() == batchSize) {
+                consumer.accept(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+            from = to;
+        }
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
+        }
+    }
+
+    /**
+     * Sorts the lines by user identifier, keeping the line order within a user.
+     *
+     * @return The user identifier of every line in the high 32 bits and the line index in the low 32 bits.
+     */
+    private long[] linesByUser() {
+        long[] lines = new long[size];
+        for (int line = 0; line < size; line++) {
+            lines[line] = (long) userIds[line] << 32 | line;
+        }
+        Arrays.sort(lines);
+        return lines;
+    }
+
+    private int nameIndex(String name) {
+        // the parser reuses the String of the previous line while the name does not change
+        if (name != lastName) {
+            lastNameIndex = nameIndexes.computeIfAbsent(name, key -> {
+                names.add(key);
+                return names.size() - 1;
+            });
+            lastName = name;
+        }
+        return lastNameIndex;
+    }
+
+    private void grow() {
+        int capacity = userIds.length + (userIds.length >> 1);
+        userIds = Arrays.copyOf(userIds, capacity);
+        userNames = Arrays.copyOf(userNames, capacity);
+        buyIds = Arrays.copyOf(buyIds, capacity);
+        productIds = Arrays.copyOf(productIds, capacity);
+        cents = Arrays.copyOf(cents, capacity);
+        dates = Arrays.copyOf(dates, capacity);
+    }
+}
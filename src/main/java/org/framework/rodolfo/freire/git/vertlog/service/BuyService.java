@@ -1,14 +1,39 @@
 package org.framework.rodolfo.freire.git.vertlog.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.framework.rodolfo.freire.git.vertlog.configuration.IngestMode;
+import org.framework.rodolfo.freire.git.vertlog.configuration.IngestWriteMode;
+import org.framework.rodolfo.freire.git.vertlog.configuration.PropertiesIngest;
 import org.framework.rodolfo.freire.git.vertlog.document.Buy;
 import org.framework.rodolfo.freire.git.vertlog.document.BuyOrder;
-import org.framework.rodolfo.freire.git.vertlog.document.Product;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadFingerprint;
+import org.framework.rodolfo.freire.git.vertlog.exception.BadRequestException;
+import org.framework.rodolfo.freire.git.vertlog.exception.BuyParseException;
+import org.framework.rodolfo.freire.git.vertlog.exception.UploadInProgressException;
+import org.framework.rodolfo.freire.git.vertlog.repository.BulkSaveResult;
 import org.framework.rodolfo.freire.git.vertlog.repository.BuyRepository;
+import org.framework.rodolfo.freire.git.vertlog.repository.PreparedBuys;
+import org.framework.rodolfo.freire.git.vertlog.util.FileFingerprint;
+import org.framework.rodolfo.freire.git.vertlog.util.UploadCompression;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 
 /**
@@ -31,16 +56,48 @@ public class BuyService implements GenericsInterfaceService<Buy> {
      */
     private final BuyRepository buyRepository;
     private final FileService fileService;
+    private final PropertiesIngest propertiesIngest;
+    private final TaskExecutor ingestSaveExecutor;
+    private final ForkJoinPool ingestForkJoinPool;
+    private final TaskExecutor ingestStageExecutor;
+    private final BuyCache buyCache;
+    private final UploadFingerprintService uploadFingerprintService;
+    private final QuarantineService quarantineService;
+    private final IngestProgressLogger ingestProgressLogger;
+    private final IngestMetrics ingestMetrics;
 
     /**
      * Constructor that injects the `BuyRepository` dependency.
      *
-     * @param buyRepository The repository providing access to `Buy` entities.
-     * @param fileService
+     * @param buyRepository            The repository providing access to `Buy` entities.
+     * @param fileService              The service parsing uploaded files into `Buy` entities.
+     * @param propertiesIngest         The settings of the file ingest process.
+     * @param ingestSaveExecutor       The executor running concurrent bulk writes.
+     * @param ingestForkJoinPool       The pool converting buys into documents ahead of their bulk write.
+     * @param ingestStageExecutor      The executor running the stages of pipeline ingests.
+     * @param buyCache                 The cache of buys looked up by user identifier.
+     * @param uploadFingerprintService The registry of processed files.
+     * @param quarantineService        The store of the malformed lines set aside by tolerant ingests.
+     * @param ingestProgressLogger     The logger of the progress of running ingests.
+     * @param ingestMetrics            The meters of the file ingest process.
      */
-    public BuyService(BuyRepository buyRepository, FileService fileService) {
+    public BuyService(BuyRepository buyRepository, FileService fileService, PropertiesIngest propertiesIngest,
+                      @Qualifier("ingestSaveExecutor") TaskExecutor ingestSaveExecutor,
+                      ForkJoinPool ingestForkJoinPool,
+                      @Qualifier("ingestStageExecutor") TaskExecutor ingestStageExecutor, BuyCache buyCache,
+                      UploadFingerprintService uploadFingerprintService, QuarantineService quarantineService,
+                      IngestProgressLogger ingestProgressLogger, IngestMetrics ingestMetrics) {
         this.buyRepository = buyRepository;
         this.fileService = fileService;
+        this.propertiesIngest = propertiesIngest;
+        this.ingestSaveExecutor = ingestSaveExecutor;
+        this.ingestForkJoinPool = ingestForkJoinPool;
+        this.ingestStageExecutor = ingestStageExecutor;
+        this.buyCache = buyCache;
+        this.uploadFingerprintService = uploadFingerprintService;
+        this.quarantineService = quarantineService;
+        this.ingestProgressLogger = ingestProgressLogger;
+        this.ingestMetrics = ingestMetrics;
     }
 
     /**
@@ -53,25 +110,47 @@ public class BuyService implements GenericsInterfaceService<Buy> {
         return buyRepository.findAll();
     }
 
+    /**
+     * Finds a page of buys ordered by user identifier, starting after the given identifier.
+     *
+     * @param afterUserId The last user identifier of the previous page, null for the first page.
+     * @param limit       The maximum number of buys of the page.
+     * @return The buys of the page, empty once the last page was read.
+     */
+    public List<Buy> findPage(Integer afterUserId, int limit) {
+        return buyRepository.findPageAfter(afterUserId, limit);
+    }
+
+    /**
+     * Streams every buy ordered by user identifier, keeping only the current cursor batch in memory.
+     *
+     * @return A stream of all buys, to be closed by the caller.
+     */
+    public Stream<Buy> streamAll() {
+        return buyRepository.streamAll();
+    }
+
     /**
      * Inherited method from `GenericsInterfaceService`.
+     * <p>
+     * Reads through the {@link BuyCache}; the cached user is invalidated whenever the user is saved.
      *
      * @see GenericsInterfaceService#findById(int)
      */
     @Override
     public Optional<Buy> findById(int id) {
-        return buyRepository.findById(id);
+        return buyCache.get(id, buyRepository::findById);
     }
 
     /**
-     * Finds buy orders within a specified date range (not implemented yet).
+     * Finds buy orders within a specified date range.
      * <p>
-     * This method is intended to retrieve buy orders whose dates fall between the provided `ini` and `end` dates (inclusive).
-     * However, the current implementation returns an empty `Optional`. You should replace this with your logic to query the repository based on dates.
+     * Retrieves the buys with orders whose dates fall between the provided `ini` and `end` dates (inclusive); each buy
+     * only carries the orders inside the range.
      *
      * @param ini The start date of the search range.
      * @param end The end date of the search range.
-     * @return An `Optional` object containing a list of `Buy` objects found within the date range (to be implemented).
+     * @return A list of `Buy` objects with the orders found within the date range, empty if there are none.
      */
     public List<Buy> findBetweenDate(Date ini, Date end) {
         return buyRepository.findByDate(ini, end);
@@ -84,46 +163,454 @@ public class BuyService implements GenericsInterfaceService<Buy> {
      */
     @Override
     public Buy save(Buy buy) {
-        return buyRepository.save(buy);
+        try {
+            return buyRepository.save(buy);
+        } finally {
+            buyCache.invalidate(buy.getUserId());
+        }
     }
 
 
     /**
      * Uploads and processes a file containing buy data.
+     * <p>
+     * In {@link IngestMode#STREAMING} mode the file is saved in chunks while it is read, in
+     * {@link IngestMode#COLUMNAR} mode it is staged in compact columns first, in {@link IngestMode#PIPELINE} mode it
+     * is parsed and saved by concurrent stages, otherwise it is parsed into a map first and saved afterwards. When
+     * tolerant ingests are enabled, malformed lines are set aside by the {@link QuarantineService} instead of failing
+     * the upload.
      *
      * @param inputStream The InputStream of the file to be uploaded and processed.
+     * @return The number of inserted, updated and failed documents.
+     */
+    public IngestReport uploadFile(InputStream inputStream) {
+        return uploadFile(inputStream, new IngestReport());
+    }
+
+    /**
+     * Uploads and processes a file containing buy data, updating the given report while the file is processed.
+     *
+     * @param inputStream The InputStream of the file to be uploaded and processed.
+     * @param report      The report receiving the progress and outcome of the processing.
+     * @return The given report.
+     * @see #uploadFile(InputStream)
+     */
+    public IngestReport uploadFile(InputStream inputStream, IngestReport report) {
+        return uploadFile(inputStream, report, IngestCheckpoint.START, null);
+    }
+
+    /**
+     * Uploads and processes the rest of a file, taking checkpoints while the file is processed.
+     * <p>
+     * Checkpoints are taken in {@link IngestMode#STREAMING} mode only, every `vertlog-ingest.jobs.checkpoint-interval`
+     * bytes: the bulk writes in flight are awaited first, so every buy before a checkpoint is saved. A file resumed
+     * from a checkpoint is processed in {@link IngestMode#STREAMING} mode whatever the configured mode, as only that
+     * mode took the checkpoint.
+     *
+     * @param inputStream The InputStream of the file, positioned at `from`.
+     * @param report      The report receiving the progress and outcome of the processing.
+     * @param from        The checkpoint the InputStream starts at, {@link IngestCheckpoint#START} for a whole file.
+     * @param checkpoints The consumer receiving the checkpoints taken, null to take none.
+     * @return The given report.
+     * @see #uploadFile(InputStream)
+     */
+    public IngestReport uploadFile(InputStream inputStream, IngestReport report, IngestCheckpoint from,
+                                   Consumer<IngestCheckpoint> checkpoints) {
+        IngestMode mode = from.isStart() ? propertiesIngest.getMode() : IngestMode.STREAMING;
+        return process(inputStream, report, mode, from, checkpoints);
+    }
+
+    /**
+     * Processes a file while it is still being received, such as the body of a request, saving its first users
+     * before its end is read.
+     * <p>
+     * The file is read once, in {@link IngestMode#PIPELINE} mode when configured, in {@link IngestMode#STREAMING}
+     * mode otherwise: {@link IngestMode#MAP} and {@link IngestMode#COLUMNAR} would hold the whole file before saving.
+     * Whatever the configured mode, the lines of a user must therefore be contiguous, or the processing fails when the
+     * user reappears.
+     * <p>
+     * A file read once cannot be fingerprinted beforehand, so it is never skipped as a duplicate: sent again, it
+     * replaces its users with the same buys in {@link IngestWriteMode#REPLACE} mode, and its product lines are found
+     * already stored in {@link IngestWriteMode#MERGE} mode.
+     *
+     * @param inputStream The InputStream of the file, read up to its end.
+     * @param report      The report receiving the progress and outcome of the processing.
+     * @return The given report.
+     * @throws BuyParseException Thrown if a line is malformed beyond the quarantine budget, or if the lines of a user
+     *                           are not contiguous.
+     * @see #uploadFile(InputStream)
+     */
+    public IngestReport uploadStream(InputStream inputStream, IngestReport report) {
+        IngestMode mode = propertiesIngest.getMode() == IngestMode.PIPELINE
+                ? IngestMode.PIPELINE : IngestMode.STREAMING;
+        return process(inputStream, report, mode, IngestCheckpoint.START, null);
+    }
+
+    private IngestReport process(InputStream inputStream, IngestReport report, IngestMode mode,
+                                 IngestCheckpoint from, Consumer<IngestCheckpoint> checkpoints) {
+        InputStream countingStream = new ByteCountingInputStream(inputStream, report);
+        LineQuarantine quarantine = quarantineService.open(report.getSource(), report.getUploadId());
+        try (IngestProgressLogger.Progress progress = ingestProgressLogger.start(report)) {
+            if (mode == IngestMode.STREAMING) {
+                ingestMetrics.getProcessTimer(mode).record(() -> {
+                    BulkWritePipeline pipeline = newWritePipeline(report);
+                    fileService.parserFileToChunks(countingStream, from, propertiesIngest.getChunkSize(),
+                            chunkSaver(pipeline, quarantine, report, from, checkpoints), report, quarantine);
+                    pipeline.await();
+                });
+                return report;
+            }
+            if (mode == IngestMode.PIPELINE) {
+                ingestMetrics.getProcessTimer(mode).record(() -> newIngestPipeline()
+                        .run(countingStream, report, newWritePipeline(report), quarantine));
+                return report;
+            }
+            if (mode == IngestMode.COLUMNAR) {
+                BuyColumns columns = ingestMetrics.getParseStreamTimer()
+                        .record(() -> fileService.parserFileToColumns(countingStream, report, quarantine));
+                return saveColumns(columns, report);
+            }
+            Map<Integer, Buy> buysMap = ingestMetrics.getParseStreamTimer()
+                    .record(() -> fileService.parserFileToMap(countingStream, report, quarantine));
+            return saveProcessor(buysMap, report);
+        } finally {
+            closeQuarantine(quarantine, report);
+            ingestMetrics.recordIngest(report);
+        }
+    }
+
+    /**
+     * Uploads and processes a file unless the same content was already uploaded.
+     * <p>
+     * The content is fingerprinted first and claimed in the registry of processed files; a file with a known
+     * fingerprint is skipped and reported as a duplicate, while a file whose upload is still running is refused with
+     * an {@link UploadInProgressException}. The fingerprint is released if the processing fails or leaves failed buys,
+     * so the file can be sent again.
+     * <p>
+     * A `.txt.gz` or `.txt.zst` file is decompressed on the fly, both to fingerprint and to parse it, so the same
+     * buys uploaded compressed or not are recognized as a duplicate.
+     *
+     * @param source   The source of the file content, read twice.
+     * @param fileName The name of the uploaded file, telling its {@link UploadCompression}.
+     * @param report   The report receiving the progress and outcome of the processing.
+     * @return The given report.
+     * @throws IOException Thrown if the file cannot be read.
      */
-    public void uploadFile(InputStream inputStream) {
-        Map<Integer, Buy> buysMap = fileService.parserFileToMap(inputStream);
-        saveProcessor(buysMap);
+    public IngestReport uploadFile(InputStreamSource source, String fileName, IngestReport report) throws IOException {
+        return uploadFile(source, fileName, report, null);
+    }
+
+    /**
+     * Uploads and processes a file unless the same content was already uploaded, taking checkpoints while the file
+     * is processed.
+     *
+     * @param source      The source of the file content, read twice.
+     * @param fileName    The name of the uploaded file, telling its {@link UploadCompression}.
+     * @param report      The report receiving the progress and outcome of the processing.
+     * @param checkpoints The consumer receiving the checkpoints taken, null to take none.
+     * @return The given report.
+     * @throws IOException Thrown if the file cannot be read.
+     * @see #uploadFile(InputStreamSource, String, IngestReport)
+     * @see #uploadFile(InputStream, IngestReport, IngestCheckpoint, Consumer)
+     */
+    public IngestReport uploadFile(InputStreamSource source, String fileName, IngestReport report,
+                                   Consumer<IngestCheckpoint> checkpoints) throws IOException {
+        InputStreamSource content = decompressed(source, fileName);
+        return uploadOnce(content, fileName, report, false,
+                () -> processFrom(content, report, IngestCheckpoint.START, checkpoints));
+    }
+
+    /**
+     * Resumes the processing of a file interrupted after a checkpoint, skipping the content before the checkpoint.
+     * <p>
+     * The file was fingerprinted by the interrupted processing, so it is never reported as a duplicate nor refused as
+     * in progress; its fingerprint is claimed again, whatever the age of the claim of the interrupted processing.
+     *
+     * @param source      The source of the file content, read twice.
+     * @param fileName    The name of the uploaded file, telling its {@link UploadCompression}.
+     * @param report      The report receiving the progress and outcome of the processing.
+     * @param from        The last checkpoint of the interrupted processing.
+     * @param checkpoints The consumer receiving the checkpoints taken, null to take none.
+     * @return The given report.
+     * @throws IOException Thrown if the file cannot be read.
+     */
+    public IngestReport resumeFile(InputStreamSource source, String fileName, IngestReport report,
+                                   IngestCheckpoint from, Consumer<IngestCheckpoint> checkpoints) throws IOException {
+        InputStreamSource content = decompressed(source, fileName);
+        return uploadOnce(content, fileName, report, true, () -> processFrom(content, report, from, checkpoints));
+    }
+
+    private static InputStreamSource decompressed(InputStreamSource source, String fileName) {
+        UploadCompression compression = Objects.requireNonNullElse(UploadCompression.fromFileName(fileName),
+                UploadCompression.NONE);
+        return () -> compression.decompress(source.getInputStream());
+    }
+
+    private void processFrom(InputStreamSource content, IngestReport report, IngestCheckpoint from,
+                             Consumer<IngestCheckpoint> checkpoints) {
+        try (InputStream inputStream = content.getInputStream()) {
+            inputStream.skipNBytes(from.getOffset());
+            uploadFile(inputStream, report, from, checkpoints);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Processes a file of the configured batch directory, parsing it in parallel from disk.
+     * <p>
+     * A compressed file cannot be memory-mapped: it is decompressed and parsed while it is read instead, as an
+     * uploaded file would be.
+     *
+     * @param fileName The name of the file within the batch directory.
+     * @return The number of inserted, updated and failed documents.
+     * @throws BadRequestException Thrown if the name points outside the batch directory or to a missing file.
+     */
+    public IngestReport uploadBatchFile(String fileName) {
+        Path directory = Paths.get(propertiesIngest.getBatchDirectory()).toAbsolutePath().normalize();
+        Path path = directory.resolve(fileName).normalize();
+        if (!path.startsWith(directory) || path.equals(directory)) {
+            throw new BadRequestException("File must be inside the batch directory: " + fileName);
+        }
+        if (!Files.isRegularFile(path)) {
+            throw new BadRequestException("File not found in the batch directory: " + fileName);
+        }
+        IngestReport report = new IngestReport(fileName);
+        UploadCompression compression = UploadCompression.fromFileName(fileName);
+        if (compression != null && compression != UploadCompression.NONE) {
+            try {
+                return uploadFile(new FileSystemResource(path), fileName, report);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        try {
+            return uploadOnce(new FileSystemResource(path), fileName, report, false, () -> {
+                LineQuarantine quarantine = quarantineService.open(fileName, report.getUploadId());
+                try (IngestProgressLogger.Progress progress = ingestProgressLogger.start(report)) {
+                    report.addBytes(Files.size(path));
+                    saveProcessor(ingestMetrics.getParsePathTimer()
+                            .record(() -> fileService.parserPathToMap(path, report, quarantine)), report);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    closeQuarantine(quarantine, report);
+                    ingestMetrics.recordIngest(report);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private IngestReport uploadOnce(InputStreamSource source, String fileName, IngestReport report, boolean resumed,
+                                    Runnable processing) throws IOException {
+        if (!propertiesIngest.isFingerprintEnabled()) {
+            processing.run();
+            return report;
+        }
+        String fingerprint;
+        try (InputStream inputStream = source.getInputStream()) {
+            fingerprint = FileFingerprint.sha256(inputStream);
+        }
+        report.setFingerprint(fingerprint);
+        if (resumed) {
+            uploadFingerprintService.resume(fingerprint, fileName);
+        } else {
+            Optional<UploadFingerprint> previous = uploadFingerprintService.register(fingerprint, fileName);
+            if (previous.isPresent()) {
+                report.markDuplicate(previous.get().getLines());
+                return report;
+            }
+        }
+        boolean processed = false;
+        try {
+            processing.run();
+            processed = report.getFailed() == 0;
+        } finally {
+            if (processed) {
+                uploadFingerprintService.complete(fingerprint, report.getLines());
+            } else {
+                uploadFingerprintService.release(fingerprint);
+            }
+        }
+        return report;
     }
 
     /**
      * Processes and saves a map of Buy objects.
      *
      * @param buysMap The map of Buy objects to be processed and saved.
+     * @return The number of inserted, updated and failed documents.
      */
-    public void saveProcessor(Map<Integer, Buy> buysMap) {
+    public IngestReport saveProcessor(Map<Integer, Buy> buysMap) {
+        return saveProcessor(buysMap, new IngestReport());
+    }
+
+    /**
+     * Processes and saves a map of Buy objects, accumulating the outcome into the given report.
+     * <p>
+     * In {@link IngestWriteMode#REPLACE} mode, up to `vertlog-ingest.bulk.prepare-ahead` batches are converted into
+     * documents on the ingest fork-join pool while the current batch is written, so the conversion overlaps with the
+     * MongoDB round trips.
+     *
+     * @param buysMap The map of Buy objects to be processed and saved.
+     * @param report  The report accumulating the outcome of the bulk writes.
+     * @return The given report.
+     */
+    public IngestReport saveProcessor(Map<Integer, Buy> buysMap, IngestReport report) {
         if (!(buysMap == null)) {
-            for (Buy buy : buysMap.values()) {
-                log.info("User Id: {}\tName: {}", buy.getUserId(), buy.getUserName());
-                for (BuyOrder buyOrder : buy.getOrders()) {
-                    double total = 0.0;
-                    log.info("\tBuy: {}\t\tDate: {}", buyOrder.getBuyId(), buyOrder.getDate());
-                    List<Product> products = Collections.unmodifiableList(buyOrder.getProducts());
-                    for (Product product : products) {
-                        log.info("\tProduct: {}\tValue {}", product.getProductId(), product.getProductValue());
-                        total += product.getProductValue();
-                    }
-                    buyOrder.setTotal(total);
-                    log.info("\tTotal: {}", total);
-                }
-                save(buy);
-            }
+            ingestMetrics.getSaveTimer().record(() -> saveChunk(new ArrayList<>(buysMap.values()), report));
         } else {
             log.error("Error Read Map");
         }
+        return report;
+    }
+
+    /**
+     * Builds and saves the Buy objects of staged columns, one bulk write of the configured batch size at a time.
+     * <p>
+     * At most `vertlog-ingest.bulk.concurrency` batches of documents exist at once, whatever the size of the file.
+     *
+     * @param columns The staged lines of a file.
+     * @param report  The report accumulating the outcome of the bulk writes.
+     * @return The given report.
+     */
+    public IngestReport saveColumns(BuyColumns columns, IngestReport report) {
+        ingestMetrics.getSaveTimer().record(() -> {
+            BulkWritePipeline pipeline = newWritePipeline(report);
+            columns.forEachBatch(propertiesIngest.getBulkBatchSize(), pipeline::submit);
+            pipeline.await();
+        });
+        return report;
+    }
+
+    /**
+     * Processes and saves a chunk of Buy objects with bulk writes of the configured batch size.
+     * <p>
+     * Up to `vertlog-ingest.bulk.concurrency` bulk writes run at the same time; the method returns once all of them ended.
+     *
+     * @param buys   The chunk of Buy objects to be processed and saved.
+     * @param report The report accumulating the outcome of the bulk writes.
+     */
+    public void saveChunk(List<Buy> buys, IngestReport report) {
+        BulkWritePipeline pipeline = newWritePipeline(report);
+        saveChunk(buys, pipeline);
+        pipeline.await();
+    }
+
+    private void saveChunk(List<Buy> buys, BulkWritePipeline pipeline) {
+        int batchSize = propertiesIngest.getBulkBatchSize();
+        for (int from = 0; from < buys.size(); from += batchSize) {
+            pipeline.submit(buys.subList(from, Math.min(from + batchSize, buys.size())));
+        }
+    }
+
+    /**
+     * Creates the consumer saving the chunks of a streamed file and taking a checkpoint once
+     * `vertlog-ingest.jobs.checkpoint-interval` bytes were read since the previous one.
+     */
+    private BiConsumer<List<Buy>, IngestCheckpoint> chunkSaver(BulkWritePipeline pipeline, LineQuarantine quarantine,
+                                                               IngestReport report, IngestCheckpoint from,
+                                                               Consumer<IngestCheckpoint> checkpoints) {
+        long interval = propertiesIngest.getCheckpointInterval() == null ? 0
+                : propertiesIngest.getCheckpointInterval().toBytes();
+        if (checkpoints == null || interval <= 0) {
+            return (chunk, checkpoint) -> saveChunk(chunk, pipeline);
+        }
+        AtomicLong lastOffset = new AtomicLong(from.getOffset());
+        return (chunk, checkpoint) -> {
+            saveChunk(chunk, pipeline);
+            if (checkpoint.getOffset() - lastOffset.get() >= interval) {
+                pipeline.await();
+                report.addQuarantined(quarantine.flush());
+                checkpoints.accept(checkpoint);
+                lastOffset.set(checkpoint.getOffset());
+            }
+        };
+    }
+
+    private PreparedBuys prepareBatch(List<Buy> batch) {
+        if (log.isDebugEnabled()) {
+            batch.forEach(this::logSample);
+        }
+        long start = System.nanoTime();
+        PreparedBuys prepared = buyRepository.prepareUpsert(batch);
+        ingestMetrics.recordPreparation(System.nanoTime() - start);
+        return prepared;
+    }
 
+    private void saveBatch(PreparedBuys prepared, IngestReport report) {
+        List<Buy> batch = prepared.getBuys();
+        if (prepared.getDocuments() == null && log.isDebugEnabled()) {
+            batch.forEach(this::logSample);
+        }
+        boolean merge = propertiesIngest.getWriteMode() == IngestWriteMode.MERGE;
+        BulkSaveResult result;
+        long start = System.nanoTime();
+        try {
+            if (merge) {
+                result = buyRepository.bulkMerge(batch);
+            } else if (prepared.getDocuments() != null) {
+                result = buyRepository.bulkUpsert(prepared, propertiesIngest.isBulkOrdered());
+            } else {
+                result = buyRepository.bulkUpsert(batch, propertiesIngest.isBulkOrdered());
+            }
+        } finally {
+            ingestMetrics.recordBulkWrite(merge, batch.size(), System.nanoTime() - start);
+            for (Buy buy : batch) {
+                buyCache.invalidate(buy.getUserId());
+            }
+        }
+        report.add(result);
+        long savedOrders = 0;
+        long savedProducts = 0;
+        for (int index = 0; index < batch.size(); index++) {
+            if (!result.getFailedIndexes().contains(index)) {
+                for (BuyOrder buyOrder : batch.get(index).getOrders()) {
+                    savedOrders++;
+                    savedProducts += buyOrder.getProducts().size();
+                }
+            }
+        }
+        report.addSaved(batch.size() - result.getFailedIndexes().size(), savedOrders, savedProducts);
+    }
+
+    /**
+     * Writes the lines still held by the quarantine of an upload and adds them to its report.
+     */
+    private static void closeQuarantine(LineQuarantine quarantine, IngestReport report) {
+        report.addQuarantined(quarantine.flush());
+    }
+
+    private IngestPipeline newIngestPipeline() {
+        return new IngestPipeline(fileService, ingestForkJoinPool, ingestStageExecutor, ingestMetrics,
+                (int) Math.min(Integer.MAX_VALUE / 2, propertiesIngest.getPipelineBlockSize().toBytes()),
+                propertiesIngest.getPipelineParseQueueCapacity(), propertiesIngest.getPipelineWriteQueueCapacity(),
+                propertiesIngest.getBulkBatchSize());
+    }
+
+    /**
+     * Creates the pipeline of the bulk writes of one upload; merges are never prepared ahead.
+     */
+    private BulkWritePipeline newWritePipeline(IngestReport report) {
+        int depth = propertiesIngest.getWriteMode() == IngestWriteMode.MERGE ? 0 : propertiesIngest.getPrepareAhead();
+        return new BulkWritePipeline(ingestForkJoinPool, depth, this::prepareBatch,
+                new BoundedTaskGroup(ingestSaveExecutor, propertiesIngest.getSaveConcurrency()),
+                prepared -> saveBatch(prepared, report));
+    }
+
+    /**
+     * Logs a sample of the saved buys, one out of `vertlog-ingest.log.debug-sample-rate`.
+     * <p>
+     * Order totals are not computed here: the parsers compute them once, in cents, while aggregating the lines.
+     *
+     * @param buy The Buy object about to be saved.
+     */
+    private void logSample(Buy buy) {
+        if (ThreadLocalRandom.current().nextInt(Math.max(1, propertiesIngest.getDebugSampleRate())) == 0) {
+            log.debug("Ingest sample userId={} name={} orders={}", buy.getUserId(), buy.getUserName(), buy.getOrders());
+        }
     }
 
 }
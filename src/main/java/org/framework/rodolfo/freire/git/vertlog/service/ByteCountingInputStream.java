@@ -0,0 +1,49 @@
+package org.framework.rodolfo.freire.git.vertlog.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream adding the number of bytes read to an {@link IngestReport}.
+ */
+class ByteCountingInputStream extends FilterInputStream {
+
+    private final IngestReport report;
+
+    /**
+     * Wraps a stream.
+     *
+     * @param in     The stream to read.
+     * @param report The report receiving the number of bytes read.
+     */
+    ByteCountingInputStream(InputStream in, IngestReport report) {
+        super(in);
+        this.report = report;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+        if (value != -1) {
+            report.addBytes(1);
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        if (read > 0) {
+            report.addBytes(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        long skipped = super.skip(count);
+        report.addBytes(skipped);
+        return skipped;
+    }
+}
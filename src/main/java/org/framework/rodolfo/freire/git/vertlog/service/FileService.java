@@ -4,18 +4,26 @@ import lombok.extern.slf4j.Slf4j;
 import org.framework.rodolfo.freire.git.vertlog.document.Buy;
 import org.framework.rodolfo.freire.git.vertlog.document.BuyOrder;
 import org.framework.rodolfo.freire.git.vertlog.document.Product;
+import org.framework.rodolfo.freire.git.vertlog.exception.BuyParseException;
+import org.framework.rodolfo.freire.git.vertlog.util.BuyRecord;
+import org.framework.rodolfo.freire.git.vertlog.util.BuyRecordParser;
+import org.framework.rodolfo.freire.git.vertlog.util.FixedWidthLineReader;
+import org.framework.rodolfo.freire.git.vertlog.util.IntObjectMap;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
-import static org.framework.rodolfo.freire.git.vertlog.util.BuyParseDate.parseDate;
+import static org.framework.rodolfo.freire.git.vertlog.util.BuyRecordParser.toDate;
 
 /**
  * Service class responsible for parsing an input stream representing a file into a structured map of Buy objects.
@@ -25,6 +33,21 @@ import static org.framework.rodolfo.freire.git.vertlog.util.BuyParseDate.parseDa
 @Service
 public class FileService {
 
+    private static final long MIN_REGION_BYTES = 1L << 20;
+    private static final long MAX_REGION_BYTES = 1L << 30;
+    private static final int PROGRESS_LINES = 4096;
+
+    private final ForkJoinPool ingestForkJoinPool;
+
+    /**
+     * Constructor that injects the fork-join pool used to parse files in parallel.
+     *
+     * @param ingestForkJoinPool The pool running {@link #parserPathToMap(Path)}.
+     */
+    public FileService(ForkJoinPool ingestForkJoinPool) {
+        this.ingestForkJoinPool = ingestForkJoinPool;
+    }
+
     /**
      * Parses the contents of an InputStream representing a file into a map of Buy objects.
      *
@@ -32,55 +55,436 @@ public class FileService {
      * @return A map where keys are user IDs and values are Buy objects representing parsed data.
      */
     public Map<Integer, Buy> parserFileToMap(InputStream inputStream){
+        return parserFileToMap(inputStream, new IngestReport());
+    }
 
-        Map<Integer, Buy> buysMap = new HashMap<>();
-        Map<Integer, BuyOrder> buyOrdersMap = new HashMap<>();
-        Map<Integer, Product> productsMap = new HashMap<>();
+    /**
+     * Parses the contents of an InputStream representing a file into a map of Buy objects, reporting the lines read.
+     *
+     * @param inputStream The InputStream to parse, representing a file containing buy data.
+     * @param report      The report receiving the number of lines read while parsing.
+     * @return A map where keys are user IDs and values are Buy objects representing parsed data.
+     */
+    public Map<Integer, Buy> parserFileToMap(InputStream inputStream, IngestReport report) {
+        return parserFileToMap(inputStream, report, LineQuarantine.strict());
+    }
 
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
+    /**
+     * Parses the contents of an InputStream into a map of Buy objects, setting malformed lines aside.
+     *
+     * @param inputStream The InputStream to parse, representing a file containing buy data.
+     * @param report      The report receiving the number of lines read while parsing.
+     * @param quarantine  The quarantine receiving the malformed lines.
+     * @return A map where keys are user IDs and values are Buy objects representing parsed data.
+     * @throws BuyParseException Thrown if a malformed line exceeds the error budget of the quarantine.
+     * @see #parserFileToMap(InputStream, IngestReport)
+     */
+    public Map<Integer, Buy> parserFileToMap(InputStream inputStream, IngestReport report,
+                                             LineQuarantine quarantine) {
+
+        IntObjectMap<Buy> buysMap = new IntObjectMap<>();
+        IntObjectMap<BuyOrder> buyOrdersMap = new IntObjectMap<>();
+        BuyRecordParser parser = new BuyRecordParser();
+        BuyRecord record = new BuyRecord();
+        long lines = 0;
+
+        try (FixedWidthLineReader reader = new FixedWidthLineReader(inputStream)) {
             log.info("Starting Mapping");
-            String line;
-            while ((line = reader.readLine()) != null) {
-                int userId = Integer.parseInt(line.substring(0, 10).trim());
-                String userName = line.substring(11, 55).trim();
-                int buyId = Integer.parseInt(line.substring(56, 65).trim());
-                int productId = Integer.parseInt(line.substring(66, 75).trim());
-                double productValue = Double.parseDouble(line.substring(76, 86).trim());
-                Date dateBuy = parseDate(line.substring(87, 95).trim());
-
-                Buy buy = buysMap.getOrDefault(userId, new Buy());
-                buy.setUserId(userId);
-                buy.setUserName(userName);
-
-                BuyOrder currentBuyOrder = buyOrdersMap.get(buyId);
+            while (reader.next()) {
+                try {
+                    parser.parse(reader.buffer(), reader.start(), reader.length(), record);
+                } catch (BuyParseException e) {
+                    quarantine.reject(reader.lineNumber(), reader.offset(), reader.buffer(), reader.start(),
+                            reader.length(), e);
+                    continue;
+                }
+                if (++lines % PROGRESS_LINES == 0) {
+                    report.addLines(PROGRESS_LINES);
+                }
+
+                Buy buy = buysMap.get(record.getUserId());
+                if (buy == null) {
+                    buy = new Buy();
+                    buy.setUserId(record.getUserId());
+                    buysMap.put(record.getUserId(), buy);
+                }
+                buy.setUserName(record.getUserName());
+
+                BuyOrder currentBuyOrder = buyOrdersMap.get(record.getBuyId());
                 if (currentBuyOrder == null) {
-                    currentBuyOrder = new BuyOrder();
-                    currentBuyOrder.setBuyId(buyId);
-                    currentBuyOrder.setTotal(0.0);
-                    currentBuyOrder.setDate(dateBuy);
-                    currentBuyOrder.setProducts(new ArrayList<>());
-                    buyOrdersMap.put(buyId, currentBuyOrder);
-                    buy.getOrders().add(currentBuyOrder);
+                    currentBuyOrder = new BuyOrder(record.getBuyId(), 0, toDate(record), new ArrayList<>());
+                    buyOrdersMap.put(record.getBuyId(), currentBuyOrder);
+                    buy.addOrder(currentBuyOrder);
                 }
+                addProduct(currentBuyOrder, record);
+            }
+            report.addLines(lines % PROGRESS_LINES);
+            log.info("End Mapping");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading buy file", e);
+        }
+        return buysMap;
+    }
 
-                Product product = productsMap.getOrDefault(productId, new Product());
-                product.setProductId(productId);
-                product.setProductValue(productValue);
+    /**
+     * Parses the contents of an InputStream into compact columns, building no Buy object.
+     *
+     * @param inputStream The InputStream to parse, representing a file containing buy data.
+     * @param report      The report receiving the number of lines read while parsing.
+     * @return The staged lines of the file.
+     * @see BuyColumns#forEachBatch(int, Consumer)
+     */
+    public BuyColumns parserFileToColumns(InputStream inputStream, IngestReport report) {
+        return parserFileToColumns(inputStream, report, LineQuarantine.strict());
+    }
 
-                currentBuyOrder.getProducts().add(product);
+    /**
+     * Parses the contents of an InputStream into compact columns, setting malformed lines aside.
+     *
+     * @param inputStream The InputStream to parse, representing a file containing buy data.
+     * @param report      The report receiving the number of lines read while parsing.
+     * @param quarantine  The quarantine receiving the malformed lines.
+     * @return The staged lines of the file.
+     * @throws BuyParseException Thrown if a malformed line exceeds the error budget of the quarantine.
+     * @see #parserFileToColumns(InputStream, IngestReport)
+     */
+    public BuyColumns parserFileToColumns(InputStream inputStream, IngestReport report, LineQuarantine quarantine) {
 
-                double currentTotal = currentBuyOrder.getTotal();
-                double productValueDouble = product.getProductValue();
-                currentBuyOrder.setTotal(currentTotal + productValueDouble);
+        BuyColumns columns = new BuyColumns();
+        BuyRecordParser parser = new BuyRecordParser();
+        BuyRecord record = new BuyRecord();
+        long lines = 0;
 
-                buysMap.put(userId, buy);
-                productsMap.put(productId, product);
+        try (FixedWidthLineReader reader = new FixedWidthLineReader(inputStream)) {
+            log.info("Starting Staging");
+            while (reader.next()) {
+                try {
+                    parser.parse(reader.buffer(), reader.start(), reader.length(), record);
+                } catch (BuyParseException e) {
+                    quarantine.reject(reader.lineNumber(), reader.offset(), reader.buffer(), reader.start(),
+                            reader.length(), e);
+                    continue;
+                }
+                if (++lines % PROGRESS_LINES == 0) {
+                    report.addLines(PROGRESS_LINES);
+                }
+                columns.add(record);
             }
-            log.info("End Mapping");
+            report.addLines(lines % PROGRESS_LINES);
+            log.info("End Staging: {} lines, {} names", columns.size(), columns.nameCount());
         } catch (IOException e) {
-            e.printStackTrace();
+            throw new UncheckedIOException("Error reading buy file", e);
         }
-        return buysMap;
+        return columns;
+    }
+
+    /**
+     * Parses the contents of an InputStream line by line, handing completed Buy objects to a consumer in bounded chunks.
+     * <p>
+     * A buy is considered complete as soon as a line of another user is read, so only the current user and the
+     * pending chunk are kept in memory regardless of the file size. Lines of the same user must be contiguous, as the
+     * legacy export writes them: a user reappearing after its buy was completed fails the parsing, since its chunk
+     * may already be saved and saving the later lines apart would overwrite or split it.
+     *
+     * @param inputStream   The InputStream to parse, representing a file containing buy data.
+     * @param chunkSize     The maximum number of Buy objects handed to the consumer at once.
+     * @param chunkConsumer The consumer receiving each chunk of completed Buy objects.
+     * @return The number of lines read from the InputStream.
+     * @throws BuyParseException Thrown if the lines of a user are not contiguous.
+     */
+    public long parserFileToChunks(InputStream inputStream, int chunkSize, Consumer<List<Buy>> chunkConsumer) {
+        return parserFileToChunks(inputStream, chunkSize, chunkConsumer, new IngestReport());
+    }
+
+    /**
+     * Parses the contents of an InputStream line by line, handing completed Buy objects to a consumer in bounded
+     * chunks and reporting the lines read.
+     *
+     * @param inputStream   The InputStream to parse, representing a file containing buy data.
+     * @param chunkSize     The maximum number of Buy objects handed to the consumer at once.
+     * @param chunkConsumer The consumer receiving each chunk of completed Buy objects.
+     * @param report        The report receiving the number of lines read while parsing.
+     * @return The number of lines read from the InputStream.
+     * @see #parserFileToChunks(InputStream, int, Consumer)
+     */
+    public long parserFileToChunks(InputStream inputStream, int chunkSize, Consumer<List<Buy>> chunkConsumer,
+                                   IngestReport report) {
+        return parserFileToChunks(inputStream, chunkSize, chunkConsumer, report, LineQuarantine.strict());
+    }
+
+    /**
+     * Parses the contents of an InputStream line by line in bounded chunks, setting malformed lines aside.
+     *
+     * @param inputStream   The InputStream to parse, representing a file containing buy data.
+     * @param chunkSize     The maximum number of Buy objects handed to the consumer at once.
+     * @param chunkConsumer The consumer receiving each chunk of completed Buy objects.
+     * @param report        The report receiving the number of lines read while parsing.
+     * @param quarantine    The quarantine receiving the malformed lines.
+     * @return The number of lines parsed from the InputStream.
+     * @throws BuyParseException Thrown if a malformed line exceeds the error budget of the quarantine.
+     * @see #parserFileToChunks(InputStream, int, Consumer, IngestReport)
+     */
+    public long parserFileToChunks(InputStream inputStream, int chunkSize, Consumer<List<Buy>> chunkConsumer,
+                                   IngestReport report, LineQuarantine quarantine) {
+        return parserFileToChunks(inputStream, IngestCheckpoint.START, chunkSize,
+                (chunk, checkpoint) -> chunkConsumer.accept(chunk), report, quarantine);
+    }
+
+    /**
+     * Parses the rest of a file line by line in bounded chunks, handing each chunk with the checkpoint following it.
+     * <p>
+     * A chunk ends between two users, so an ingest interrupted after the chunk was saved can resume from the
+     * checkpoint without reading the chunk again. The contiguity of the lines of a user is checked from `from` on
+     * only.
+     *
+     * @param inputStream   The InputStream of the file, positioned at `from`.
+     * @param from          The position of the first byte of the InputStream within the file.
+     * @param chunkSize     The maximum number of Buy objects handed to the consumer at once.
+     * @param chunkConsumer The consumer receiving each chunk of completed Buy objects and the checkpoint after it.
+     * @param report        The report receiving the number of lines read while parsing.
+     * @param quarantine    The quarantine receiving the malformed lines.
+     * @return The number of lines parsed from the InputStream.
+     * @throws BuyParseException Thrown if a malformed line exceeds the error budget of the quarantine, or if the lines
+     *                           of a user are not contiguous.
+     * @see #parserFileToChunks(InputStream, int, Consumer, IngestReport, LineQuarantine)
+     */
+    public long parserFileToChunks(InputStream inputStream, IngestCheckpoint from, int chunkSize,
+                                   BiConsumer<List<Buy>, IngestCheckpoint> chunkConsumer, IngestReport report,
+                                   LineQuarantine quarantine) {
+
+        List<Buy> chunk = new ArrayList<>(chunkSize);
+        IntObjectMap<BuyOrder> buyOrdersMap = new IntObjectMap<>();
+        IntObjectMap<Boolean> completedUsers = new IntObjectMap<>();
+        BuyRecordParser parser = new BuyRecordParser();
+        BuyRecord record = new BuyRecord();
+        Buy currentBuy = null;
+        long lines = 0;
+
+        try (FixedWidthLineReader reader = new FixedWidthLineReader(inputStream)) {
+            log.info("Starting Streaming at {}", from);
+            while (reader.next()) {
+                try {
+                    parser.parse(reader.buffer(), reader.start(), reader.length(), record);
+                } catch (BuyParseException e) {
+                    quarantine.reject(from.getLineNumber() + reader.lineNumber(), from.getOffset() + reader.offset(),
+                            reader.buffer(), reader.start(), reader.length(), e);
+                    continue;
+                }
+                if (++lines % PROGRESS_LINES == 0) {
+                    report.addLines(PROGRESS_LINES);
+                }
+
+                if (currentBuy == null || currentBuy.getUserId() != record.getUserId()) {
+                    if (completedUsers.containsKey(record.getUserId())) {
+                        throw new BuyParseException(0, "Lines of user " + record.getUserId() + " are not contiguous: "
+                                + "the user reappears at line " + (from.getLineNumber() + reader.lineNumber()));
+                    }
+                    if (currentBuy != null) {
+                        completedUsers.put(currentBuy.getUserId(), Boolean.TRUE);
+                        chunk.add(currentBuy);
+                        if (chunk.size() >= chunkSize) {
+                            // the line just parsed starts the next user, so it follows the checkpoint
+                            chunkConsumer.accept(chunk, new IngestCheckpoint(from.getOffset() + reader.offset(),
+                                    from.getLineNumber() + reader.lineNumber() - 1,
+                                    from.getParsedLines() + lines - 1));
+                            chunk = new ArrayList<>(chunkSize);
+                        }
+                    }
+                    currentBuy = new Buy();
+                    currentBuy.setUserId(record.getUserId());
+                    buyOrdersMap.clear();
+                }
+                currentBuy.setUserName(record.getUserName());
+
+                BuyOrder currentBuyOrder = buyOrdersMap.get(record.getBuyId());
+                if (currentBuyOrder == null) {
+                    currentBuyOrder = new BuyOrder(record.getBuyId(), 0, toDate(record), new ArrayList<>());
+                    buyOrdersMap.put(record.getBuyId(), currentBuyOrder);
+                    currentBuy.addOrder(currentBuyOrder);
+                }
+                addProduct(currentBuyOrder, record);
+            }
+            report.addLines(lines % PROGRESS_LINES);
+            if (currentBuy != null) {
+                chunk.add(currentBuy);
+            }
+            if (!chunk.isEmpty()) {
+                chunkConsumer.accept(chunk, new IngestCheckpoint(from.getOffset() + reader.nextOffset(),
+                        from.getLineNumber() + reader.lineNumber(), from.getParsedLines() + lines));
+            }
+            log.info("End Streaming: {} lines", lines);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading buy file", e);
+        }
+        return lines;
+    }
+
+    /**
+     * Parses a block of whole lines into Buy objects, grouping contiguous lines of the same user.
+     * <p>
+     * A user whose lines continue in the next block is returned incomplete; the {@link IngestPipeline} aggregator
+     * joins it with the first user of the next block. Malformed lines are admitted by the quarantine and kept in the
+     * parsed block, numbered within the block, until the aggregator sets them aside.
+     *
+     * @param block       The bytes of the block, starting at a line start.
+     * @param length      The number of bytes of the block, ending at a line end.
+     * @param blockOffset The position of the block within the file.
+     * @param quarantine  The quarantine admitting the malformed lines.
+     * @return The Buy objects of the block in line order, with the counts and the malformed lines of the block.
+     * @throws BuyParseException Thrown if a malformed line exceeds the error budget of the quarantine.
+     */
+    ParsedBlock parserBlockToBuys(byte[] block, int length, long blockOffset, LineQuarantine quarantine) {
+        IntObjectMap<BuyOrder> buyOrdersMap = new IntObjectMap<>();
+        BuyRecordParser parser = new BuyRecordParser();
+        BuyRecord record = new BuyRecord();
+        ParsedBlock parsed = new ParsedBlock();
+        List<Buy> users = parsed.getUsers();
+        Buy currentBuy = null;
+        int lineStart = 0;
+
+        for (int i = 0; i <= length; i++) {
+            if (i < length && block[i] != '\n') {
+                continue;
+            }
+            if (i < length || lineStart < length) {
+                parsed.addBlockLine();
+            }
+            int lineLength = i - lineStart;
+            if (lineLength > 0 && block[i - 1] == '\r') {
+                lineLength--;
+            }
+            if (lineLength > 0) {
+                try {
+                    parser.parse(block, lineStart, lineLength, record);
+                } catch (BuyParseException e) {
+                    parsed.addRejected(quarantine.admit(blockOffset + lineStart, block, lineStart, lineLength, e));
+                    lineStart = i + 1;
+                    continue;
+                }
+                parsed.addLine();
+                if (currentBuy == null || currentBuy.getUserId() != record.getUserId()) {
+                    currentBuy = new Buy();
+                    currentBuy.setUserId(record.getUserId());
+                    users.add(currentBuy);
+                    buyOrdersMap.clear();
+                }
+                currentBuy.setUserName(record.getUserName());
+
+                BuyOrder currentBuyOrder = buyOrdersMap.get(record.getBuyId());
+                if (currentBuyOrder == null) {
+                    currentBuyOrder = new BuyOrder(record.getBuyId(), 0, toDate(record), new ArrayList<>());
+                    buyOrdersMap.put(record.getBuyId(), currentBuyOrder);
+                    currentBuy.addOrder(currentBuyOrder);
+                }
+                addProduct(currentBuyOrder, record);
+            }
+            lineStart = i + 1;
+        }
+        return parsed;
+    }
+
+    /**
+     * Parses a file on disk into a map of Buy objects, using every thread of the ingest fork-join pool.
+     * <p>
+     * The file is memory-mapped and split into newline-aligned regions which are parsed in parallel. The partial
+     * results are merged in file order, so the map holds the same users, orders and products as
+     * {@link #parserFileToMap(InputStream)} would return for the same file.
+     *
+     * @param path The path of the file containing buy data.
+     * @return A map where keys are user IDs and values are Buy objects representing parsed data.
+     * @throws UncheckedIOException Thrown if the file cannot be read.
+     */
+    public Map<Integer, Buy> parserPathToMap(Path path) {
+        return parserPathToMap(path, new IngestReport());
+    }
+
+    /**
+     * Parses a file on disk into a map of Buy objects in parallel, reporting the lines read.
+     *
+     * @param path   The path of the file containing buy data.
+     * @param report The report receiving the number of lines read.
+     * @return A map where keys are user IDs and values are Buy objects representing parsed data.
+     * @throws UncheckedIOException Thrown if the file cannot be read.
+     * @see #parserPathToMap(Path)
+     */
+    public Map<Integer, Buy> parserPathToMap(Path path, IngestReport report) {
+        return parserPathToMap(path, report, LineQuarantine.strict());
+    }
+
+    /**
+     * Parses a file on disk into a map of Buy objects in parallel, setting malformed lines aside.
+     *
+     * @param path       The path of the file containing buy data.
+     * @param report     The report receiving the number of lines read.
+     * @param quarantine The quarantine receiving the malformed lines.
+     * @return A map where keys are user IDs and values are Buy objects representing parsed data.
+     * @throws UncheckedIOException Thrown if the file cannot be read.
+     * @throws BuyParseException    Thrown if a malformed line exceeds the error budget of the quarantine.
+     * @see #parserPathToMap(Path)
+     */
+    public Map<Integer, Buy> parserPathToMap(Path path, IngestReport report, LineQuarantine quarantine) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            log.info("Starting Mapping of {}", path);
+            long[] boundaries = regionBoundaries(channel, ingestForkJoinPool.getParallelism() * 4);
+            BuyAggregate aggregate = ingestForkJoinPool.invoke(
+                    new MappedChunkTask(channel, boundaries, 0, boundaries.length - 1, quarantine));
+            aggregate.setAside(quarantine);
+            Map<Integer, Buy> buysMap = aggregate.toBuys();
+            report.addLines(aggregate.getLines());
+            log.info("End Mapping of {}: {} regions", path, boundaries.length - 1);
+            return buysMap;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading buy file " + path, e);
+        }
+    }
+
+    /**
+     * Splits a file into regions that start right after a line terminator.
+     *
+     * @param channel The channel of the file to split.
+     * @param regions The preferred number of regions.
+     * @return The start of every region followed by the file size.
+     * @throws IOException Thrown if the file cannot be read.
+     */
+    private static long[] regionBoundaries(FileChannel channel, int regions) throws IOException {
+        long size = channel.size();
+        long regionBytes = Math.min(Math.max(size / regions, MIN_REGION_BYTES), MAX_REGION_BYTES);
+        int count = (int) Math.max(1, (size + regionBytes - 1) / regionBytes);
+        long[] boundaries = new long[count + 1];
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        for (int i = 1; i < count; i++) {
+            long position = Math.max(boundaries[i - 1], i * regionBytes);
+            boundaries[i] = nextLineStart(channel, position, probe);
+        }
+        boundaries[count] = size;
+        return boundaries;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        while (true) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Adds the product of a parsed line to an order and adds its value to the order total, both in cents.
+     *
+     * @param buyOrder The order receiving the product.
+     * @param record   The parsed line holding the product.
+     */
+    private static void addProduct(BuyOrder buyOrder, BuyRecord record) {
+        buyOrder.getProducts().add(new Product(record.getProductId(), record.getProductValue()));
+        buyOrder.setTotal(buyOrder.getTotal() + record.getProductValue());
     }
 
 }
@@ -0,0 +1,48 @@
+package org.framework.rodolfo.freire.git.vertlog.service;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A position within an uploaded file at which an interrupted ingest can resume.
+ * <p>
+ * A checkpoint always falls between two users, so every line before it belongs to a user whose bulk write was
+ * acknowledged and no line after it was written yet. Positions are counted in the decompressed content of the file.
+ */
+
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class IngestCheckpoint {
+
+    /**
+     * The start of the file.
+     */
+    public static final IngestCheckpoint START = new IngestCheckpoint(0, 0, 0);
+
+    /**
+     * The position of the first byte following the checkpoint.
+     */
+    private final long offset;
+
+    /**
+     * The number of lines preceding the checkpoint, empty lines included.
+     */
+    private final long lineNumber;
+
+    /**
+     * The number of lines preceding the checkpoint that were parsed, leaving out the empty and malformed ones, so a
+     * resumed ingest reports the same count of lines as an uninterrupted one.
+     */
+    private final long parsedLines;
+
+    /**
+     * @return Whether the checkpoint is the start of the file.
+     */
+    public boolean isStart() {
+        return offset == 0;
+    }
+}
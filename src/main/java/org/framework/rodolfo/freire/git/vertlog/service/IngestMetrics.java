@@ -0,0 +1,266 @@
+package org.framework.rodolfo.freire.git.vertlog.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.framework.rodolfo.freire.git.vertlog.configuration.IngestMode;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of the file ingest process, published through Micrometer (`/actuator/prometheus`).
+ * <p>
+ * Stage timers publish percentile histograms, so latency quantiles can be aggregated across instances. Counters are
+ * updated once per ingest from its {@link IngestReport}, except the meters of the stages of {@link IngestPipeline},
+ * which are updated once per block or batch so their throughput can be followed live, and the count of malformed
+ * lines, updated by the quarantine as each line is rejected.
+ */
+
+@Component
+public class IngestMetrics {
+
+    /**
+     * Queue of the blocks read and being parsed, waiting for the aggregator.
+     */
+    public static final String PARSE_QUEUE = "parse";
+
+    /**
+     * Queue of the batches of aggregated users waiting for the writer.
+     */
+    public static final String WRITE_QUEUE = "write";
+
+    private final Timer parseStreamTimer;
+    private final Timer parsePathTimer;
+    private final Timer saveTimer;
+    private final Timer processStreamingTimer;
+    private final Timer processPipelineTimer;
+    private final Timer upsertTimer;
+    private final Timer mergeTimer;
+    private final Timer prepareTimer;
+    private final DistributionSummary batchSize;
+    private final Counter lines;
+    private final Counter malformedLines;
+    private final Counter users;
+    private final Counter orders;
+    private final Counter products;
+    private final Counter bytes;
+    private final Counter pipelineReadBytes;
+    private final Counter pipelineParsedLines;
+    private final Counter pipelineAggregatedUsers;
+    private final Counter pipelineWrittenUsers;
+    private final Timer readStallTimer;
+    private final Timer aggregateStallTimer;
+    private final Map<String, Set<Collection<?>>> pipelineQueues = Map.of(
+            PARSE_QUEUE, ConcurrentHashMap.newKeySet(),
+            WRITE_QUEUE, ConcurrentHashMap.newKeySet());
+
+    /**
+     * Constructor that registers the meters.
+     *
+     * @param meterRegistry The registry receiving the meters.
+     */
+    public IngestMetrics(MeterRegistry meterRegistry) {
+        this.parseStreamTimer = stageTimer(meterRegistry, "vertlog.ingest.parse", "Time parsing a file into buys",
+                "source", "stream");
+        this.parsePathTimer = stageTimer(meterRegistry, "vertlog.ingest.parse", "Time parsing a file into buys",
+                "source", "path");
+        this.saveTimer = stageTimer(meterRegistry, "vertlog.ingest.save",
+                "Time preparing and writing the buys of a parsed file");
+        this.processStreamingTimer = stageTimer(meterRegistry, "vertlog.ingest.process",
+                "Time parsing and saving a file saved while it is read", "mode", "streaming");
+        this.processPipelineTimer = stageTimer(meterRegistry, "vertlog.ingest.process",
+                "Time parsing and saving a file saved while it is read", "mode", "pipeline");
+        this.upsertTimer = stageTimer(meterRegistry, "vertlog.ingest.bulk.write", "Time of one bulk write",
+                "operation", "upsert");
+        this.mergeTimer = stageTimer(meterRegistry, "vertlog.ingest.bulk.write", "Time of one bulk write",
+                "operation", "merge");
+        this.prepareTimer = stageTimer(meterRegistry, "vertlog.ingest.bulk.prepare",
+                "Time converting the buys of one bulk write into documents");
+        this.batchSize = DistributionSummary.builder("vertlog.ingest.bulk.batch.size")
+                .description("Buys sent per bulk write")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.lines = counter(meterRegistry, "vertlog.ingest.lines", "Lines read from uploaded files", null);
+        this.malformedLines = counter(meterRegistry, "vertlog.ingest.malformed.lines",
+                "Lines rejected by the parser", null);
+        this.users = counter(meterRegistry, "vertlog.ingest.users", "Users saved", null);
+        this.orders = counter(meterRegistry, "vertlog.ingest.orders", "Orders saved", null);
+        this.products = counter(meterRegistry, "vertlog.ingest.products", "Products saved", null);
+        this.bytes = counter(meterRegistry, "vertlog.ingest.bytes", "Bytes read from uploaded files", "bytes");
+        this.pipelineReadBytes = counter(meterRegistry, "vertlog.ingest.pipeline.read",
+                "Bytes handed to the parsers by the pipeline reader", "bytes");
+        this.pipelineParsedLines = counter(meterRegistry, "vertlog.ingest.pipeline.parse",
+                "Lines parsed by the pipeline parsers", "lines");
+        this.pipelineAggregatedUsers = counter(meterRegistry, "vertlog.ingest.pipeline.aggregate",
+                "Users handed to the writer by the pipeline aggregator", "users");
+        this.pipelineWrittenUsers = counter(meterRegistry, "vertlog.ingest.pipeline.write",
+                "Users submitted to bulk writes by the pipeline writer", "users");
+        this.readStallTimer = stageTimer(meterRegistry, "vertlog.ingest.pipeline.stall",
+                "Time a pipeline stage waited for room in its output queue", "stage", "read");
+        this.aggregateStallTimer = stageTimer(meterRegistry, "vertlog.ingest.pipeline.stall",
+                "Time a pipeline stage waited for room in its output queue", "stage", "aggregate");
+        pipelineQueues.forEach((queue, queues) -> Gauge.builder("vertlog.ingest.pipeline.queue.size", queues,
+                        IngestMetrics::totalSize)
+                .description("Items waiting in the queues of the running pipeline ingests")
+                .tag("queue", queue)
+                .register(meterRegistry));
+    }
+
+    private static Timer stageTimer(MeterRegistry meterRegistry, String name, String description, String... tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static double totalSize(Set<Collection<?>> queues) {
+        long size = 0;
+        for (Collection<?> queue : queues) {
+            size += queue.size();
+        }
+        return size;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String name, String description, String baseUnit) {
+        return Counter.builder(name).description(description).baseUnit(baseUnit).register(meterRegistry);
+    }
+
+    /**
+     * @return The timer of the parsing of uploaded streams into a map.
+     */
+    public Timer getParseStreamTimer() {
+        return parseStreamTimer;
+    }
+
+    /**
+     * @return The timer of the parallel parsing of files of the batch directory.
+     */
+    public Timer getParsePathTimer() {
+        return parsePathTimer;
+    }
+
+    /**
+     * @return The timer of the saving of a parsed map.
+     */
+    public Timer getSaveTimer() {
+        return saveTimer;
+    }
+
+    /**
+     * @param mode {@link IngestMode#STREAMING} or {@link IngestMode#PIPELINE}.
+     * @return The timer of the processing of a file in a mode saving it while it is read, where parsing and saving
+     * overlap and cannot be timed apart.
+     */
+    public Timer getProcessTimer(IngestMode mode) {
+        return mode == IngestMode.PIPELINE ? processPipelineTimer : processStreamingTimer;
+    }
+
+    /**
+     * Records one bulk write.
+     *
+     * @param merge      Whether the bulk write merged (true) or replaced (false) the buys.
+     * @param buyCount   The number of buys of the bulk write.
+     * @param durationNs The duration of the bulk write in nanoseconds.
+     */
+    public void recordBulkWrite(boolean merge, int buyCount, long durationNs) {
+        (merge ? mergeTimer : upsertTimer).record(durationNs, TimeUnit.NANOSECONDS);
+        batchSize.record(buyCount);
+    }
+
+    /**
+     * Records the conversion of the buys of one bulk write into documents.
+     *
+     * @param durationNs The duration of the conversion in nanoseconds.
+     */
+    public void recordPreparation(long durationNs) {
+        prepareTimer.record(durationNs, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Publishes the size of a queue of a running pipeline ingest, added to the other queues of the same name.
+     *
+     * @param queue The name of the queue, {@link #PARSE_QUEUE} or {@link #WRITE_QUEUE}.
+     * @param items The queue.
+     */
+    public void trackQueue(String queue, Collection<?> items) {
+        pipelineQueues.get(queue).add(items);
+    }
+
+    /**
+     * Stops publishing the size of a queue once its pipeline ingest ended.
+     *
+     * @param queue The name of the queue.
+     * @param items The queue.
+     */
+    public void untrackQueue(String queue, Collection<?> items) {
+        pipelineQueues.get(queue).remove(items);
+    }
+
+    /**
+     * Records a block handed to the parsers by the pipeline reader.
+     *
+     * @param blockBytes The size of the block.
+     * @param stallNs    The time the reader waited for room in the parse queue, in nanoseconds.
+     */
+    public void recordPipelineRead(int blockBytes, long stallNs) {
+        pipelineReadBytes.increment(blockBytes);
+        readStallTimer.record(stallNs, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a block parsed by the pipeline parsers.
+     *
+     * @param lines The number of lines of the block.
+     */
+    public void recordPipelineParse(long lines) {
+        pipelineParsedLines.increment(lines);
+    }
+
+    /**
+     * Records a batch handed to the writer by the pipeline aggregator.
+     *
+     * @param users   The number of users of the batch.
+     * @param stallNs The time the aggregator waited for room in the write queue, in nanoseconds.
+     */
+    public void recordPipelineAggregate(int users, long stallNs) {
+        pipelineAggregatedUsers.increment(users);
+        aggregateStallTimer.record(stallNs, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a batch submitted to a bulk write by the pipeline writer.
+     *
+     * @param users The number of users of the batch.
+     */
+    public void recordPipelineWrite(int users) {
+        pipelineWrittenUsers.increment(users);
+    }
+
+    /**
+     * Records a line rejected by the parser, as soon as it is rejected.
+     */
+    public void recordMalformedLine() {
+        malformedLines.increment();
+    }
+
+    /**
+     * Adds the counts of an ended ingest.
+     *
+     * @param report The report of the ingest.
+     */
+    public void recordIngest(IngestReport report) {
+        lines.increment(report.getLines());
+        users.increment(report.getUsers());
+        orders.increment(report.getOrders());
+        products.increment(report.getProducts());
+        bytes.increment(report.getBytes());
+    }
+}
@@ -0,0 +1,328 @@
+package org.framework.rodolfo.freire.git.vertlog.service;
+
+import org.framework.rodolfo.freire.git.vertlog.configuration.IngestMode;
+import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+import org.framework.rodolfo.freire.git.vertlog.document.BuyOrder;
+import org.framework.rodolfo.freire.git.vertlog.exception.BuyParseException;
+import org.framework.rodolfo.freire.git.vertlog.util.IntObjectMap;
+import org.springframework.core.task.TaskExecutor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Staged ingest of a file: a reader, parser workers, an aggregator and a batch writer connected by bounded queues.
+ * <p>
+ * The calling thread reads the file into line-aligned blocks and hands each block to a parse task on the ingest
+ * fork-join pool. The aggregator takes the parsed blocks in file order, joins the users split across two blocks and
+ * queues batches of completed users for the writer, which submits them to a {@link BulkWritePipeline}. Both queues
+ * are bounded, so a slow MongoDB blocks the writer, then the aggregator, then the reader: the file is read only as
+ * fast as it is saved and the heap holds at most the queued blocks and batches. Lines of the same user must be
+ * contiguous, as in {@link IngestMode#STREAMING} mode: a user reappearing after its buy was completed fails the
+ * ingest.
+ * <p>
+ * A failing stage keeps draining its input queue until the end of the file is signalled, so no stage stays blocked;
+ * the reader stops reading once a failure is seen and {@link #run} rethrows the first failure.
+ */
+class IngestPipeline {
+
+    private static final CompletableFuture<ParsedBlock> END_OF_FILE = CompletableFuture.completedFuture(null);
+    private static final List<Buy> END_OF_BATCHES = new ArrayList<>(0);
+
+    private final FileService fileService;
+    private final ForkJoinPool parsePool;
+    private final TaskExecutor stageExecutor;
+    private final IngestMetrics ingestMetrics;
+    private final int blockSize;
+    private final int parseQueueCapacity;
+    private final int writeQueueCapacity;
+    private final int batchSize;
+
+    /**
+     * Creates a pipeline.
+     *
+     * @param fileService        The service parsing the blocks.
+     * @param parsePool          The pool running the parse tasks.
+     * @param stageExecutor      The executor running the aggregator and the writer, one thread each.
+     * @param ingestMetrics      The meters receiving the throughput of the stages and the size of the queues.
+     * @param blockSize          The size of the blocks read, in bytes; a longer line gets a block of its own.
+     * @param parseQueueCapacity The maximum number of blocks read ahead of the aggregator.
+     * @param writeQueueCapacity The maximum number of batches aggregated ahead of the writer.
+     * @param batchSize          The number of users per batch, which is one bulk write.
+     */
+    IngestPipeline(FileService fileService, ForkJoinPool parsePool, TaskExecutor stageExecutor,
+                   IngestMetrics ingestMetrics, int blockSize, int parseQueueCapacity, int writeQueueCapacity,
+                   int batchSize) {
+        this.fileService = fileService;
+        this.parsePool = parsePool;
+        this.stageExecutor = stageExecutor;
+        this.ingestMetrics = ingestMetrics;
+        this.blockSize = Math.max(1, blockSize);
+        this.parseQueueCapacity = Math.max(1, parseQueueCapacity);
+        this.writeQueueCapacity = Math.max(1, writeQueueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Reads, parses, aggregates and writes a file, returning once every batch was written.
+     *
+     * @param inputStream The InputStream of the file.
+     * @param report      The report receiving the lines read; the writes add their outcome to it.
+     * @param writes      The bulk writes of the upload, used by the writer thread only.
+     * @param quarantine  The quarantine admitting the malformed lines in the parse tasks; the aggregator sets them
+     *                    aside once numbered.
+     * @throws RuntimeException Thrown with the first failure of a stage, after every stage ended.
+     */
+    void run(InputStream inputStream, IngestReport report, BulkWritePipeline writes, LineQuarantine quarantine) {
+        BlockingQueue<CompletableFuture<ParsedBlock>> parsed = new ArrayBlockingQueue<>(parseQueueCapacity);
+        BlockingQueue<List<Buy>> batches = new ArrayBlockingQueue<>(writeQueueCapacity);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ingestMetrics.trackQueue(IngestMetrics.PARSE_QUEUE, parsed);
+        ingestMetrics.trackQueue(IngestMetrics.WRITE_QUEUE, batches);
+        try {
+            CompletableFuture<Void> aggregator = CompletableFuture.runAsync(
+                    () -> aggregate(parsed, batches, report, failure, quarantine), stageExecutor);
+            CompletableFuture<Void> writer = CompletableFuture.runAsync(
+                    () -> write(batches, writes, failure), stageExecutor);
+            try {
+                read(inputStream, parsed, failure, quarantine);
+            } catch (IOException e) {
+                failure.compareAndSet(null, new UncheckedIOException("Error reading buy file", e));
+            } catch (RuntimeException | Error e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                put(parsed, END_OF_FILE);
+            }
+            aggregator.join();
+            writer.join();
+        } finally {
+            ingestMetrics.untrackQueue(IngestMetrics.PARSE_QUEUE, parsed);
+            ingestMetrics.untrackQueue(IngestMetrics.WRITE_QUEUE, batches);
+        }
+        Throwable cause = failure.get();
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+    }
+
+    /**
+     * Reader stage: cuts the file into blocks ending at a line end and queues a parse task per block.
+     */
+    private void read(InputStream inputStream, BlockingQueue<CompletableFuture<ParsedBlock>> parsed,
+                      AtomicReference<Throwable> failure, LineQuarantine quarantine) throws IOException {
+        byte[] buffer = new byte[blockSize];
+        int filled = 0;
+        long position = 0;
+        while (failure.get() == null) {
+            int read = inputStream.read(buffer, filled, buffer.length - filled);
+            if (read < 0) {
+                if (filled > 0) {
+                    submit(parsed, buffer, filled, position, quarantine);
+                }
+                return;
+            }
+            filled += read;
+            if (filled < buffer.length) {
+                continue;
+            }
+            int end = lastLineEnd(buffer, filled);
+            if (end == 0) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                continue;
+            }
+            byte[] block = buffer;
+            buffer = new byte[Math.max(blockSize, filled - end)];
+            System.arraycopy(block, end, buffer, 0, filled - end);
+            filled -= end;
+            submit(parsed, block, end, position, quarantine);
+            position += end;
+        }
+    }
+
+    private static int lastLineEnd(byte[] buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private void submit(BlockingQueue<CompletableFuture<ParsedBlock>> parsed, byte[] block, int length,
+                        long position, LineQuarantine quarantine) {
+        CompletableFuture<ParsedBlock> task = CompletableFuture.supplyAsync(
+                () -> parse(block, length, position, quarantine), parsePool);
+        long start = System.nanoTime();
+        put(parsed, task);
+        ingestMetrics.recordPipelineRead(length, System.nanoTime() - start);
+    }
+
+    /**
+     * Parser stage, run on the fork-join pool for each block.
+     */
+    private ParsedBlock parse(byte[] block, int length, long position, LineQuarantine quarantine) {
+        ParsedBlock parsedBlock = fileService.parserBlockToBuys(block, length, position, quarantine);
+        ingestMetrics.recordPipelineParse(parsedBlock.getLines());
+        return parsedBlock;
+    }
+
+    /**
+     * Aggregator stage: takes the parsed blocks in file order, sets their malformed lines aside with their number
+     * within the file and queues batches of completed users.
+     */
+    private void aggregate(BlockingQueue<CompletableFuture<ParsedBlock>> parsed, BlockingQueue<List<Buy>> batches,
+                           IngestReport report, AtomicReference<Throwable> failure, LineQuarantine quarantine) {
+        List<Buy> batch = new ArrayList<>(batchSize);
+        IntObjectMap<Boolean> completedUsers = new IntObjectMap<>();
+        Buy pending = null;
+        long linesBefore = 0;
+        try {
+            CompletableFuture<ParsedBlock> task;
+            while ((task = take(parsed)) != END_OF_FILE) {
+                if (failure.get() != null) {
+                    continue;
+                }
+                try {
+                    ParsedBlock block = task.join();
+                    report.addLines(block.getLines());
+                    block.setAside(quarantine, linesBefore);
+                    linesBefore += block.getBlockLines();
+                    for (Buy user : block.getUsers()) {
+                        if (pending != null && pending.getUserId() == user.getUserId()) {
+                            join(pending, user);
+                            continue;
+                        }
+                        if (completedUsers.containsKey(user.getUserId())) {
+                            throw new BuyParseException(0, "Lines of user " + user.getUserId()
+                                    + " are not contiguous: the user reappears after its buy was completed");
+                        }
+                        if (pending != null) {
+                            completedUsers.put(pending.getUserId(), Boolean.TRUE);
+                            batch.add(pending);
+                            if (batch.size() == batchSize) {
+                                hand(batches, batch);
+                                batch = new ArrayList<>(batchSize);
+                            }
+                        }
+                        pending = user;
+                    }
+                } catch (CompletionException e) {
+                    failure.compareAndSet(null, e.getCause());
+                } catch (RuntimeException | Error e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+            if (failure.get() == null) {
+                if (pending != null) {
+                    batch.add(pending);
+                }
+                if (!batch.isEmpty()) {
+                    hand(batches, batch);
+                }
+            }
+        } finally {
+            put(batches, END_OF_BATCHES);
+        }
+    }
+
+    private void hand(BlockingQueue<List<Buy>> batches, List<Buy> batch) {
+        long start = System.nanoTime();
+        put(batches, batch);
+        ingestMetrics.recordPipelineAggregate(batch.size(), System.nanoTime() - start);
+    }
+
+    /**
+     * Adds the lines of a user continued in the next block to the same user of the previous block.
+     */
+    private static void join(Buy pending, Buy continued) {
+        pending.setUserName(continued.getUserName());
+        for (BuyOrder order : continued.getOrders()) {
+            BuyOrder existing = null;
+            for (BuyOrder pendingOrder : pending.getOrders()) {
+                if (pendingOrder.getBuyId() == order.getBuyId()) {
+                    existing = pendingOrder;
+                    break;
+                }
+            }
+            if (existing == null) {
+                pending.addOrder(order);
+            } else {
+                existing.getProducts().addAll(order.getProducts());
+                existing.setTotal(existing.getTotal() + order.getTotal());
+            }
+        }
+    }
+
+    /**
+     * Writer stage: submits the batches to the bulk writes and waits for the last ones once the file ended.
+     */
+    private void write(BlockingQueue<List<Buy>> batches, BulkWritePipeline writes,
+                       AtomicReference<Throwable> failure) {
+        List<Buy> batch;
+        while ((batch = take(batches)) != END_OF_BATCHES) {
+            if (failure.get() != null) {
+                continue;
+            }
+            try {
+                writes.submit(batch);
+                ingestMetrics.recordPipelineWrite(batch.size());
+            } catch (RuntimeException | Error e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+        try {
+            writes.await();
+        } catch (RuntimeException | Error e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    /**
+     * Puts an item into a queue, waiting for room even if the thread is interrupted, as the stage downstream would
+     * otherwise never see the end of the file.
+     */
+    private static <T> void put(BlockingQueue<T> queue, T item) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(item);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static <T> T take(BlockingQueue<T> queue) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return queue.take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.framework.rodolfo.freire.git.vertlog.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.framework.rodolfo.freire.git.vertlog.configuration.PropertiesIngest;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs the progress of running ingests from the counters of their {@link IngestReport}.
+ * <p>
+ * The ingest itself does no logging work per line: a single background thread reads the report at a fixed
+ * interval and writes one progress record, and a summary record is written when the ingest ends. Records are
+ * `key=value` pairs so they can be parsed by log tooling.
+ */
+
+@Slf4j
+@Component
+public class IngestProgressLogger {
+
+    private final long intervalMillis;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Constructor that reads the progress interval from the ingest settings.
+     *
+     * @param propertiesIngest The settings of the file ingest process.
+     */
+    public IngestProgressLogger(PropertiesIngest propertiesIngest) {
+        this.intervalMillis = propertiesIngest.getProgressInterval().toMillis();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ingest-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts logging the progress of an ingest.
+     *
+     * @param report The report updated by the ingest.
+     * @return The handle ending the logging and writing the summary once closed.
+     */
+    public Progress start(IngestReport report) {
+        return new Progress(report);
+    }
+
+    /**
+     * Stops the background thread.
+     */
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * The progress logging of one ingest.
+     */
+    public class Progress implements AutoCloseable {
+
+        private final IngestReport report;
+        private final long startNanos = System.nanoTime();
+        private final ScheduledFuture<?> task;
+
+        private Progress(IngestReport report) {
+            this.report = report;
+            this.task = intervalMillis > 0
+                    ? scheduler.scheduleAtFixedRate(this::logProgress, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS)
+                    : null;
+        }
+
+        private void logProgress() {
+            log.info("Ingest progress source={} lines={} linesPerSecond={} users={} orders={} products={}",
+                    report.getSource(), report.getLines(), linesPerSecond(), report.getUsers(), report.getOrders(),
+                    report.getProducts());
+        }
+
+        private long linesPerSecond() {
+            long elapsedMillis = elapsedMillis();
+            return elapsedMillis > 0 ? report.getLines() * 1000 / elapsedMillis : 0;
+        }
+
+        private long elapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * Stops the periodic records and writes the summary of the ingest.
+         */
+        @Override
+        public void close() {
+            if (task != null) {
+                task.cancel(false);
+            }
+            log.info("Ingest summary source={} bytes={} lines={} linesPerSecond={} users={} orders={} products={} "
+                            + "inserted={} updated={} failed={} skipped={} elapsedMs={}",
+                    report.getSource(), report.getBytes(), report.getLines(), linesPerSecond(), report.getUsers(),
+                    report.getOrders(), report.getProducts(), report.getInserted(), report.getUpdated(),
+                    report.getFailed(), report.getSkipped(), elapsedMillis());
+        }
+    }
+}
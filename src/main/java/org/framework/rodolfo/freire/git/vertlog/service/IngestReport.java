@@ -0,0 +1,241 @@
+package org.framework.rodolfo.freire.git.vertlog.service;
+
+import lombok.ToString;
+import org.framework.rodolfo.freire.git.vertlog.repository.BulkSaveResult;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulates the progress and outcome of processing an uploaded file.
+ * <p>
+ * Counters are updated by the ingest while it runs and may be read at any time from other threads.
+ */
+
+@ToString
+public class IngestReport {
+
+    private final String source;
+    private final String uploadId;
+    private final AtomicLong lines = new AtomicLong();
+    private final AtomicLong users = new AtomicLong();
+    private final AtomicLong orders = new AtomicLong();
+    private final AtomicLong products = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong inserted = new AtomicLong();
+    private final AtomicLong updated = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong quarantined = new AtomicLong();
+    private volatile boolean duplicate;
+    private volatile String fingerprint;
+
+    /**
+     * Creates a report for an upload without a known file name.
+     */
+    public IngestReport() {
+        this("upload");
+    }
+
+    /**
+     * Creates a report for the processing of a file.
+     *
+     * @param source The name of the processed file, used in logs.
+     */
+    public IngestReport(String source) {
+        this(source, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Creates a report for the processing of a file under a known upload identifier, such as the identifier of the job
+     * processing it.
+     *
+     * @param source   The name of the processed file, used in logs.
+     * @param uploadId The identifier of the upload, keying its quarantined lines.
+     */
+    public IngestReport(String source, String uploadId) {
+        this.source = source;
+        this.uploadId = uploadId;
+    }
+
+    /**
+     * Sets the fingerprint of the processed file, once computed.
+     *
+     * @param fingerprint The fingerprint of the file content.
+     */
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Adds the outcome of a bulk write to this report.
+     *
+     * @param result The outcome of a bulk write.
+     */
+    public void add(BulkSaveResult result) {
+        addWritten(result.getInserted(), result.getUpdated(), result.getFailed(), result.getSkipped());
+    }
+
+    /**
+     * Adds the outcome of bulk writes to this report, such as the writes of an interrupted processing of the file.
+     *
+     * @param insertedCount The number of buys created.
+     * @param updatedCount  The number of existing buys replaced.
+     * @param failedCount   The number of buys that could not be saved.
+     * @param skippedCount  The number of lines left out because they were already stored.
+     */
+    public void addWritten(long insertedCount, long updatedCount, long failedCount, long skippedCount) {
+        inserted.addAndGet(insertedCount);
+        updated.addAndGet(updatedCount);
+        failed.addAndGet(failedCount);
+        skipped.addAndGet(skippedCount);
+    }
+
+    /**
+     * Marks the whole file as skipped, because the same content was already uploaded.
+     *
+     * @param lineCount The number of lines of the previous upload of the file, 0 if still unknown.
+     */
+    public void markDuplicate(long lineCount) {
+        duplicate = true;
+        skipped.addAndGet(lineCount);
+    }
+
+    /**
+     * Adds lines read from the file to this report.
+     *
+     * @param count The number of lines read.
+     */
+    public void addLines(long count) {
+        lines.addAndGet(count);
+    }
+
+    /**
+     * Adds malformed lines set aside instead of failing the upload to this report.
+     *
+     * @param count The number of lines set aside.
+     */
+    public void addQuarantined(long count) {
+        quarantined.addAndGet(count);
+    }
+
+    /**
+     * Adds bytes read from the file to this report.
+     *
+     * @param count The number of bytes read.
+     */
+    public void addBytes(long count) {
+        bytes.addAndGet(count);
+    }
+
+    /**
+     * Adds saved users, their orders and their products to this report.
+     *
+     * @param userCount    The number of users saved.
+     * @param orderCount   The number of orders of those users.
+     * @param productCount The number of products of those orders.
+     */
+    public void addSaved(long userCount, long orderCount, long productCount) {
+        users.addAndGet(userCount);
+        orders.addAndGet(orderCount);
+        products.addAndGet(productCount);
+    }
+
+    /**
+     * @return The name of the processed file.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return The identifier of the upload, keying its quarantined lines; a new one unless given at creation.
+     */
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    /**
+     * @return The number of lines read from the file.
+     */
+    public long getLines() {
+        return lines.get();
+    }
+
+    /**
+     * @return The number of users saved.
+     */
+    public long getUsers() {
+        return users.get();
+    }
+
+    /**
+     * @return The number of orders saved.
+     */
+    public long getOrders() {
+        return orders.get();
+    }
+
+    /**
+     * @return The number of products of the saved orders.
+     */
+    public long getProducts() {
+        return products.get();
+    }
+
+    /**
+     * @return The number of bytes read from the file.
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * @return The number of documents created.
+     */
+    public long getInserted() {
+        return inserted.get();
+    }
+
+    /**
+     * @return The number of existing documents replaced.
+     */
+    public long getUpdated() {
+        return updated.get();
+    }
+
+    /**
+     * @return The number of documents that could not be persisted.
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return The number of lines left out because they were already stored.
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * @return The number of malformed lines set aside instead of failing the upload.
+     */
+    public long getQuarantined() {
+        return quarantined.get();
+    }
+
+    /**
+     * @return Whether the file was skipped because the same content was already uploaded.
+     */
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+
+    /**
+     * @return The fingerprint of the processed file; null when the file was not fingerprinted.
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+}
@@ -0,0 +1,172 @@
+package org.framework.rodolfo.freire.git.vertlog.service;
+
+import org.framework.rodolfo.freire.git.vertlog.document.QuarantinedLine;
+import org.framework.rodolfo.freire.git.vertlog.exception.BuyParseException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The malformed lines of one upload, set aside instead of failing the upload as long as they fit in an error budget.
+ * <p>
+ * The parsers hand every line they cannot decode to {@link #reject}; the line is kept with its position and the
+ * reason, and written to the sink in batches. Once the budget is spent, the next malformed line fails the upload as
+ * it would without a quarantine. With a budget of 0 ({@link #strict()}) every malformed line fails the upload.
+ * <p>
+ * Parsers reading the file in order number each line as they reject it. Parsers working on blocks in parallel only
+ * know the number of a line within its block: they {@link #admit} the line, which spends the budget at once, and
+ * {@link #setAside} it once the lines of the blocks before it are counted.
+ * <p>
+ * Thread-safe, as files are also parsed in parallel. The sink is called outside the lock, so a slow store does not
+ * hold back the parsers rejecting lines meanwhile.
+ */
+public class LineQuarantine {
+
+    private static final int FLUSH_LINES = 1000;
+    private static final Runnable NO_LISTENER = () -> {
+    };
+    private static final LineQuarantine STRICT = new LineQuarantine("upload", null, 0, lines -> {
+    });
+
+    private final String source;
+    private final String uploadId;
+    private final long errorBudget;
+    private final Consumer<List<QuarantinedLine>> sink;
+    private final Runnable rejectListener;
+    private List<QuarantinedLine> pending = new ArrayList<>();
+    private long rejected;
+    private long reported;
+
+    /**
+     * Creates the quarantine of an upload.
+     *
+     * @param source      The name of the uploaded file.
+     * @param uploadId    The identifier of the upload, keying its lines.
+     * @param errorBudget The maximum number of malformed lines set aside.
+     * @param sink        The store receiving the set aside lines, in batches.
+     */
+    public LineQuarantine(String source, String uploadId, long errorBudget, Consumer<List<QuarantinedLine>> sink) {
+        this(source, uploadId, errorBudget, sink, NO_LISTENER);
+    }
+
+    /**
+     * Creates the quarantine of an upload, notifying every malformed line as it is rejected.
+     *
+     * @param source         The name of the uploaded file.
+     * @param uploadId       The identifier of the upload, keying its lines.
+     * @param errorBudget    The maximum number of malformed lines set aside.
+     * @param sink           The store receiving the set aside lines, in batches.
+     * @param rejectListener Run for every malformed line, including the one failing the upload.
+     */
+    public LineQuarantine(String source, String uploadId, long errorBudget, Consumer<List<QuarantinedLine>> sink,
+                          Runnable rejectListener) {
+        this.source = source;
+        this.uploadId = uploadId;
+        this.errorBudget = Math.max(0, errorBudget);
+        this.sink = sink;
+        this.rejectListener = rejectListener;
+    }
+
+    /**
+     * @return A quarantine without budget, failing the upload at the first malformed line.
+     */
+    public static LineQuarantine strict() {
+        return STRICT;
+    }
+
+    /**
+     * Sets a malformed line aside, or fails the upload if the error budget is spent.
+     *
+     * @param lineNumber The number of the line within the file, counting from 1.
+     * @param offset     The position of the line within the file.
+     * @param buffer     The buffer holding the line.
+     * @param start      The position of the line within the buffer.
+     * @param length     The length of the line, without its terminator.
+     * @param cause      The error raised by the parser.
+     * @throws BuyParseException Thrown if the error budget is spent.
+     */
+    public void reject(long lineNumber, long offset, byte[] buffer, int start, int length, BuyParseException cause) {
+        QuarantinedLine line = admit(offset, buffer, start, length, cause);
+        line.setLineNumber(lineNumber);
+        setAside(line);
+    }
+
+    /**
+     * Counts a malformed line against the error budget, or fails the upload if the budget is spent. The line is
+     * returned without its number, to be handed to {@link #setAside} once numbered.
+     *
+     * @param offset The position of the line within the file.
+     * @param buffer The buffer holding the line.
+     * @param start  The position of the line within the buffer.
+     * @param length The length of the line, without its terminator.
+     * @param cause  The error raised by the parser.
+     * @return The line, holding a copy of its bytes.
+     * @throws BuyParseException Thrown if the error budget is spent.
+     */
+    public QuarantinedLine admit(long offset, byte[] buffer, int start, int length, BuyParseException cause) {
+        rejectListener.run();
+        synchronized (this) {
+            if (rejected >= errorBudget) {
+                if (errorBudget == 0) {
+                    throw cause;
+                }
+                throw new BuyParseException(cause.getPosition(), "More than " + errorBudget
+                        + " malformed lines in " + source + ", last at offset " + offset + ": "
+                        + cause.getSimpleMessage(), cause);
+            }
+            rejected++;
+        }
+        return new QuarantinedLine(null, source, uploadId, null, offset,
+                Arrays.copyOfRange(buffer, start, start + length), cause.getSimpleMessage(), new Date());
+    }
+
+    /**
+     * Sets aside a line admitted by {@link #admit} and numbered since, writing the lines set aside once a batch is
+     * full.
+     *
+     * @param line The admitted line, with its number within the file.
+     */
+    public void setAside(QuarantinedLine line) {
+        line.setId(uploadId + ":" + line.getLineNumber());
+        List<QuarantinedLine> lines;
+        synchronized (this) {
+            pending.add(line);
+            if (pending.size() < FLUSH_LINES) {
+                return;
+            }
+            lines = pending;
+            pending = new ArrayList<>();
+        }
+        sink.accept(lines);
+    }
+
+    /**
+     * Writes the lines set aside and not written yet.
+     *
+     * @return The number of lines admitted since the previous flush.
+     */
+    public long flush() {
+        List<QuarantinedLine> lines;
+        long count;
+        synchronized (this) {
+            lines = pending;
+            pending = new ArrayList<>();
+            count = rejected - reported;
+            reported = rejected;
+        }
+        if (!lines.isEmpty()) {
+            sink.accept(lines);
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of malformed lines set aside.
+     */
+    public synchronized long getRejected() {
+        return rejected;
+    }
+}
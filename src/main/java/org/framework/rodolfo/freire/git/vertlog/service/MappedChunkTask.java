@@ -0,0 +1,100 @@
+package org.framework.rodolfo.freire.git.vertlog.service;
+
+import org.framework.rodolfo.freire.git.vertlog.exception.BuyParseException;
+import org.framework.rodolfo.freire.git.vertlog.util.BuyRecord;
+import org.framework.rodolfo.freire.git.vertlog.util.BuyRecordParser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join task parsing newline-aligned regions of a memory-mapped file.
+ * <p>
+ * The task splits its regions in halves until a single region is left, parses it into a {@link BuyAggregate} and
+ * merges the results of both halves left to right, so the outcome does not depend on scheduling.
+ */
+class MappedChunkTask extends RecursiveTask<BuyAggregate> {
+
+    private final FileChannel channel;
+    private final long[] boundaries;
+    private final int from;
+    private final int to;
+    private final LineQuarantine quarantine;
+
+    /**
+     * Creates a task over the regions `from` (inclusive) to `to` (exclusive).
+     *
+     * @param channel    The channel of the file being parsed.
+     * @param boundaries The start of every region followed by the file size.
+     * @param from       The first region of the task.
+     * @param to         The region following the last region of the task.
+     * @param quarantine The quarantine admitting the malformed lines.
+     */
+    MappedChunkTask(FileChannel channel, long[] boundaries, int from, int to, LineQuarantine quarantine) {
+        this.channel = channel;
+        this.boundaries = boundaries;
+        this.from = from;
+        this.to = to;
+        this.quarantine = quarantine;
+    }
+
+    @Override
+    protected BuyAggregate compute() {
+        if (to - from == 1) {
+            return parseRegion(boundaries[from], boundaries[to]);
+        }
+        int middle = (from + to) >>> 1;
+        MappedChunkTask right = new MappedChunkTask(channel, boundaries, middle, to, quarantine);
+        right.fork();
+        BuyAggregate left = new MappedChunkTask(channel, boundaries, from, middle, quarantine).compute();
+        return left.merge(right.join());
+    }
+
+    private BuyAggregate parseRegion(long start, long end) {
+        BuyAggregate aggregate = new BuyAggregate();
+        if (start == end) {
+            return aggregate;
+        }
+        MappedByteBuffer region;
+        try {
+            region = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error mapping buy file region " + start + "-" + end, e);
+        }
+        BuyRecordParser parser = new BuyRecordParser();
+        BuyRecord record = new BuyRecord();
+        byte[] line = new byte[256];
+        int limit = region.limit();
+        int lineStart = 0;
+        for (int i = 0; i <= limit; i++) {
+            if (i < limit && region.get(i) != '\n') {
+                continue;
+            }
+            if (i < limit || lineStart < limit) {
+                aggregate.addRegionLine();
+            }
+            int length = i - lineStart;
+            if (length > 0 && region.get(i - 1) == '\r') {
+                length--;
+            }
+            if (length > 0) {
+                if (length > line.length) {
+                    line = Arrays.copyOf(line, Math.max(length, line.length * 2));
+                }
+                region.get(lineStart, line, 0, length);
+                try {
+                    parser.parse(line, 0, length, record);
+                    aggregate.add(record);
+                } catch (BuyParseException e) {
+                    aggregate.addRejected(quarantine.admit(start + lineStart, line, 0, length, e));
+                }
+            }
+            lineStart = i + 1;
+        }
+        return aggregate;
+    }
+}
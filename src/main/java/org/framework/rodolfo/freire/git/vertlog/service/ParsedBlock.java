@@ -0,0 +1,80 @@
+package org.framework.rodolfo.freire.git.vertlog.service;
+
+import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+import org.framework.rodolfo.freire.git.vertlog.document.QuarantinedLine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The users parsed from one block of a file by {@link FileService#parserBlockToBuys}, with its malformed lines.
+ * <p>
+ * Blocks are parsed in parallel, so the number of the first line of a block is known only once the blocks before it
+ * are counted. The malformed lines are admitted by the quarantine as they are found, numbered within the block, and
+ * set aside by the {@link IngestPipeline} aggregator, which takes the blocks in file order.
+ */
+class ParsedBlock {
+
+    private final List<Buy> users = new ArrayList<>();
+    private final List<QuarantinedLine> rejected = new ArrayList<>();
+    private long lines;
+    private long blockLines;
+
+    /**
+     * Counts a line of the block, empty and malformed lines included.
+     */
+    void addBlockLine() {
+        blockLines++;
+    }
+
+    /**
+     * Counts a parsed line.
+     */
+    void addLine() {
+        lines++;
+    }
+
+    /**
+     * Keeps a malformed line admitted by the quarantine, numbered as the last line counted by {@link #addBlockLine}.
+     *
+     * @param line The admitted line.
+     */
+    void addRejected(QuarantinedLine line) {
+        line.setLineNumber(blockLines);
+        rejected.add(line);
+    }
+
+    /**
+     * Sets the malformed lines of the block aside, numbered within the file.
+     *
+     * @param quarantine  The quarantine that admitted the lines.
+     * @param linesBefore The number of lines of the file before the block.
+     */
+    void setAside(LineQuarantine quarantine, long linesBefore) {
+        for (QuarantinedLine line : rejected) {
+            line.setLineNumber(linesBefore + line.getLineNumber());
+            quarantine.setAside(line);
+        }
+    }
+
+    /**
+     * @return The Buy objects of the block in line order; the first and last ones may continue in the blocks around.
+     */
+    List<Buy> getUsers() {
+        return users;
+    }
+
+    /**
+     * @return The number of lines parsed.
+     */
+    long getLines() {
+        return lines;
+    }
+
+    /**
+     * @return The number of lines of the block, empty and malformed lines included.
+     */
+    long getBlockLines() {
+        return blockLines;
+    }
+}
@@ -0,0 +1,73 @@
+package org.framework.rodolfo.freire.git.vertlog.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.framework.rodolfo.freire.git.vertlog.configuration.PropertiesIngest;
+import org.framework.rodolfo.freire.git.vertlog.document.QuarantinedLine;
+import org.framework.rodolfo.freire.git.vertlog.repository.QuarantinedLineRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Service class keeping the malformed lines set aside by tolerant ingests.
+ * <p>
+ * Tolerant ingests are enabled by `vertlog-ingest.tolerant.enabled`; otherwise the first malformed line fails the
+ * upload and nothing is stored.
+ */
+
+@Slf4j
+@Service
+public class QuarantineService {
+
+    private final QuarantinedLineRepository quarantinedLineRepository;
+    private final PropertiesIngest propertiesIngest;
+    private final IngestMetrics ingestMetrics;
+
+    /**
+     * Constructor that injects the `QuarantinedLineRepository` dependency.
+     *
+     * @param quarantinedLineRepository The repository providing access to `QuarantinedLine` entities.
+     * @param propertiesIngest          The settings of the file ingest process.
+     * @param ingestMetrics             The meters counting the malformed lines.
+     */
+    public QuarantineService(QuarantinedLineRepository quarantinedLineRepository, PropertiesIngest propertiesIngest,
+                             IngestMetrics ingestMetrics) {
+        this.quarantinedLineRepository = quarantinedLineRepository;
+        this.propertiesIngest = propertiesIngest;
+        this.ingestMetrics = ingestMetrics;
+    }
+
+    /**
+     * Opens the quarantine of an upload. Every malformed line is counted in the ingest meters as it is rejected.
+     *
+     * @param source   The name of the uploaded file, null when unknown.
+     * @param uploadId The identifier of the upload, keying its quarantined lines.
+     * @return A quarantine storing up to `vertlog-ingest.tolerant.error-budget` lines when tolerant ingests are
+     * enabled, a quarantine failing the upload at the first malformed line otherwise.
+     */
+    public LineQuarantine open(String source, String uploadId) {
+        String name = source != null ? source : "upload";
+        if (!propertiesIngest.isTolerantEnabled()) {
+            return new LineQuarantine(name, uploadId, 0, lines -> {
+            }, ingestMetrics::recordMalformedLine);
+        }
+        return new LineQuarantine(name, uploadId, propertiesIngest.getErrorBudget(), lines -> {
+            quarantinedLineRepository.bulkUpsert(lines);
+            log.warn("{} malformed lines of {} quarantined (upload {})", lines.size(), name, uploadId);
+        }, ingestMetrics::recordMalformedLine);
+    }
+
+    /**
+     * Finds the quarantined lines of an upload in file order.
+     *
+     * @param uploadId The identifier of the upload.
+     * @param limit    The maximum number of lines.
+     * @return The first quarantined lines of the upload.
+     */
+    public List<QuarantinedLine> findByUploadId(String uploadId, int limit) {
+        return quarantinedLineRepository.findByUploadId(uploadId,
+                PageRequest.of(0, limit, Sort.by("offset", "createdAt")));
+    }
+}
@@ -0,0 +1,121 @@
+package org.framework.rodolfo.freire.git.vertlog.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.framework.rodolfo.freire.git.vertlog.configuration.PropertiesIngest;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadFingerprint;
+import org.framework.rodolfo.freire.git.vertlog.exception.UploadInProgressException;
+import org.framework.rodolfo.freire.git.vertlog.repository.UploadFingerprintRepository;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Service class keeping the registry of processed files.
+ * <p>
+ * A file is registered by inserting its fingerprint as the document identifier, so checking and claiming a
+ * fingerprint is a single atomic insert, whatever the number of files already processed. Only a completed file is
+ * reported as a duplicate. A fingerprint left incomplete is held by its upload for `vertlog-ingest.fingerprint.lease`:
+ * sent again within the lease, the file is refused as in progress; after it, the claim is taken as left by an upload
+ * that crashed before its release ran, and claimed again atomically. An upload running longer than the lease can thus
+ * run alongside a re-send of its file; buys are written idempotently, so the file is still stored once.
+ */
+
+@Slf4j
+@Service
+public class UploadFingerprintService {
+
+    private final UploadFingerprintRepository uploadFingerprintRepository;
+    private final PropertiesIngest propertiesIngest;
+
+    /**
+     * Constructor that injects the `UploadFingerprintRepository` and `PropertiesIngest` dependencies.
+     *
+     * @param uploadFingerprintRepository The repository providing access to `UploadFingerprint` entities.
+     * @param propertiesIngest            The ingest settings, giving the lease of a claim.
+     */
+    public UploadFingerprintService(UploadFingerprintRepository uploadFingerprintRepository,
+                                    PropertiesIngest propertiesIngest) {
+        this.uploadFingerprintRepository = uploadFingerprintRepository;
+        this.propertiesIngest = propertiesIngest;
+    }
+
+    /**
+     * Claims a fingerprint for a new upload.
+     *
+     * @param fingerprint The fingerprint of the uploaded file.
+     * @param fileName    The name of the uploaded file.
+     * @return An empty `Optional` if the fingerprint was claimed, or the completed upload of the same content.
+     * @throws UploadInProgressException Thrown if another upload of the same content claimed it within the lease.
+     */
+    public Optional<UploadFingerprint> register(String fingerprint, String fileName) {
+        while (true) {
+            Date now = new Date();
+            try {
+                uploadFingerprintRepository.insert(new UploadFingerprint(fingerprint, fileName, now, false, 0, now));
+                return Optional.empty();
+            } catch (DuplicateKeyException e) {
+                Date leaseStart = new Date(now.getTime() - propertiesIngest.getFingerprintLease().toMillis());
+                UploadFingerprint reclaimed = uploadFingerprintRepository.reclaim(fingerprint, fileName, leaseStart);
+                if (reclaimed != null) {
+                    log.warn("File {} claimed again, its upload as {} never completed ({})", fileName,
+                            reclaimed.getFileName(), fingerprint);
+                    return Optional.empty();
+                }
+                Optional<UploadFingerprint> previous = uploadFingerprintRepository.findById(fingerprint);
+                if (previous.isPresent() && !previous.get().isCompleted()) {
+                    log.info("File {} refused, its upload as {} is still running ({})", fileName,
+                            previous.get().getFileName(), fingerprint);
+                    throw new UploadInProgressException("File " + fileName + " is already being uploaded as "
+                            + previous.get().getFileName() + ", try again later");
+                }
+                if (previous.isPresent()) {
+                    log.info("File {} already uploaded as {} ({})", fileName, previous.get().getFileName(),
+                            fingerprint);
+                    return previous;
+                }
+                // released between the insert and the reclaim: insert again
+            }
+        }
+    }
+
+    /**
+     * Claims a fingerprint for the resumed processing of an interrupted upload, whatever the age of the claim left by
+     * the interrupted processing. A fingerprint completed meanwhile by another upload of the same file is kept.
+     *
+     * @param fingerprint The fingerprint of the uploaded file.
+     * @param fileName    The name of the uploaded file.
+     */
+    public void resume(String fingerprint, String fileName) {
+        if (uploadFingerprintRepository.reclaim(fingerprint, fileName, null) != null) {
+            return;
+        }
+        Date now = new Date();
+        try {
+            uploadFingerprintRepository.insert(new UploadFingerprint(fingerprint, fileName, now, false, 0, now));
+        } catch (DuplicateKeyException e) {
+            log.debug("File {} completed or claimed meanwhile ({})", fileName, fingerprint);
+        }
+    }
+
+    /**
+     * Marks the upload of a fingerprint as processed.
+     *
+     * @param fingerprint The fingerprint of the uploaded file.
+     * @param lines       The number of lines of the file.
+     */
+    public void complete(String fingerprint, long lines) {
+        uploadFingerprintRepository.complete(fingerprint, lines);
+    }
+
+    /**
+     * Releases a fingerprint whose upload failed, so the same file can be uploaded again. A fingerprint completed
+     * meanwhile by another upload of the same file is kept.
+     *
+     * @param fingerprint The fingerprint of the uploaded file.
+     */
+    public void release(String fingerprint) {
+        uploadFingerprintRepository.deleteByFingerprintAndCompletedFalse(fingerprint);
+    }
+}
@@ -0,0 +1,273 @@
+package org.framework.rodolfo.freire.git.vertlog.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.framework.rodolfo.freire.git.vertlog.configuration.IngestMode;
+import org.framework.rodolfo.freire.git.vertlog.configuration.PropertiesIngest;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadJob;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadJobStatus;
+import org.framework.rodolfo.freire.git.vertlog.repository.UploadJobRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Service class responsible for running uploads asynchronously.
+ * <p>
+ * An uploaded file is spooled to disk and processed by {@link BuyService} on a bounded executor, while an
+ * {@link UploadJob} document records its progress. Progress of running jobs is read from memory, and the document
+ * is saved when the job starts, at every checkpoint and when it ends.
+ * <p>
+ * Jobs left queued or running by a stopped instance are resumed at startup from their last checkpoint. Checkpoints
+ * are taken in {@link IngestMode#STREAMING} mode only, so a job of another mode restarts from the start of its file.
+ * Either way, the buys written after the checkpoint are written again: a replacing write stores the same user again,
+ * and a merging write skips the product lines already stored. A job interrupted
+ * `vertlog-ingest.jobs.max-attempts` times is failed instead of resumed, so a file stopping the instance every time
+ * is not retried forever.
+ */
+
+@Slf4j
+@Service
+public class UploadJobService {
+
+    private final UploadJobRepository uploadJobRepository;
+    private final BuyService buyService;
+    private final ThreadPoolTaskExecutor ingestJobExecutor;
+    private final PropertiesIngest propertiesIngest;
+    private final Map<String, IngestReport> runningReports = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor that injects the dependencies of the service.
+     *
+     * @param uploadJobRepository The repository providing access to `UploadJob` entities.
+     * @param buyService          The service processing the uploaded files.
+     * @param ingestJobExecutor   The bounded executor running the jobs.
+     * @param propertiesIngest    The settings of the file ingest process.
+     */
+    public UploadJobService(UploadJobRepository uploadJobRepository, BuyService buyService,
+                            ThreadPoolTaskExecutor ingestJobExecutor, PropertiesIngest propertiesIngest) {
+        this.uploadJobRepository = uploadJobRepository;
+        this.buyService = buyService;
+        this.ingestJobExecutor = ingestJobExecutor;
+        this.propertiesIngest = propertiesIngest;
+    }
+
+    /**
+     * Creates an empty file in the spool directory to hold an upload until its job ends.
+     *
+     * @return The path of the created file.
+     * @throws IOException Thrown if the file cannot be created.
+     */
+    public Path createSpoolFile() throws IOException {
+        Path directory = Files.createDirectories(Paths.get(propertiesIngest.getSpoolDirectory()));
+        return Files.createTempFile(directory, "upload-", ".txt");
+    }
+
+    /**
+     * Queues the processing of a spooled file. The spooled file is deleted once the job ends or is refused.
+     *
+     * @param fileName  The original name of the uploaded file.
+     * @param spoolFile The spooled copy of the uploaded file.
+     * @return The job, in {@link UploadJobStatus#QUEUED} status.
+     * @throws TaskRejectedException Thrown if too many jobs are already waiting.
+     */
+    public UploadJob submit(String fileName, Path spoolFile) {
+        UploadJob job = new UploadJob();
+        job.setJobId(UUID.randomUUID().toString());
+        job.setFileName(fileName);
+        job.setStatus(UploadJobStatus.QUEUED);
+        job.setCreatedAt(new Date());
+        job.setSpoolFile(spoolFile.toString());
+        uploadJobRepository.save(job);
+        try {
+            ingestJobExecutor.execute(() -> run(job.getJobId(), spoolFile));
+        } catch (TaskRejectedException e) {
+            job.setStatus(UploadJobStatus.FAILED);
+            job.setFinishedAt(new Date());
+            job.getErrors().add("Too many upload jobs waiting");
+            uploadJobRepository.save(job);
+            deleteSpoolFile(spoolFile);
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Retrieves a job by its identifier, including the live progress of a running job.
+     *
+     * @param jobId The unique identifier of the job.
+     * @return An `Optional` containing the job, or an empty `Optional` if no job is found.
+     */
+    public Optional<UploadJob> findById(String jobId) {
+        return uploadJobRepository.findById(jobId).map(job -> {
+            IngestReport report = runningReports.get(jobId);
+            if (report != null) {
+                applyProgress(job, report, new Date());
+            }
+            return job;
+        });
+    }
+
+    /**
+     * Resumes the jobs left queued or running by a previous instance, once the application is ready.
+     * <p>
+     * A job whose spooled file is gone, or which was already run `vertlog-ingest.jobs.max-attempts` times, is marked
+     * as failed instead.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        if (!propertiesIngest.isResumeOnStartup()) {
+            return;
+        }
+        if (propertiesIngest.getMode() != IngestMode.STREAMING) {
+            log.info("Upload jobs take checkpoints in STREAMING mode only: interrupted {} jobs restart from the start "
+                    + "of their file", propertiesIngest.getMode());
+        }
+        for (UploadJob job : uploadJobRepository.findByStatusIn(
+                List.of(UploadJobStatus.QUEUED, UploadJobStatus.RUNNING))) {
+            Path spoolFile = job.getSpoolFile() == null ? null : Paths.get(job.getSpoolFile());
+            if (spoolFile == null || !Files.isRegularFile(spoolFile)) {
+                fail(job, "Interrupted and spool file lost, upload the file again");
+                continue;
+            }
+            if (job.getAttempts() >= propertiesIngest.getJobMaxAttempts()) {
+                fail(job, "Interrupted " + job.getAttempts() + " times, upload the file again");
+                deleteSpoolFile(spoolFile);
+                continue;
+            }
+            if (job.getCheckpointOffset() > 0) {
+                log.info("Resuming upload job {} of {} at line {}", job.getJobId(), job.getFileName(),
+                        job.getCheckpointLine());
+            } else {
+                log.info("Restarting upload job {} of {} from the start of the file", job.getJobId(),
+                        job.getFileName());
+            }
+            try {
+                ingestJobExecutor.execute(() -> run(job.getJobId(), spoolFile));
+            } catch (TaskRejectedException e) {
+                fail(job, "Too many upload jobs waiting");
+                deleteSpoolFile(spoolFile);
+            }
+        }
+    }
+
+    private void run(String jobId, Path spoolFile) {
+        UploadJob job = uploadJobRepository.findById(jobId).orElseThrow();
+        boolean resumed = job.getAttempts() > 0;
+        IngestReport report = new IngestReport(job.getFileName(), job.getJobId());
+        if (resumed) {
+            restoreProgress(job, report);
+        } else {
+            job.setStartedAt(new Date());
+        }
+        runningReports.put(job.getJobId(), report);
+        job.setStatus(UploadJobStatus.RUNNING);
+        job.setAttempts(job.getAttempts() + 1);
+        uploadJobRepository.save(job);
+        boolean interrupted = false;
+        try {
+            FileSystemResource source = new FileSystemResource(spoolFile);
+            Consumer<IngestCheckpoint> checkpoints = checkpoint -> checkpoint(job, report, checkpoint);
+            if (resumed) {
+                buyService.resumeFile(source, job.getFileName(), report,
+                        new IngestCheckpoint(job.getCheckpointOffset(), job.getCheckpointLine(),
+                                job.getCheckpointParsedLines()), checkpoints);
+            } else {
+                buyService.uploadFile(source, job.getFileName(), report, checkpoints);
+            }
+            job.setStatus(UploadJobStatus.COMPLETED);
+            job.setDuplicate(report.isDuplicate());
+            if (report.getFailed() > 0) {
+                job.getErrors().add(report.getFailed() + " buys could not be saved");
+            }
+        } catch (Exception e) {
+            if (propertiesIngest.isResumeOnStartup() && ingestJobExecutor.getThreadPoolExecutor().isShutdown()) {
+                // stopped by the shutdown: the document keeps the last checkpoint, resumed at the next startup
+                interrupted = true;
+                log.warn("Upload job {} interrupted at shutdown, resumed at next startup", job.getJobId());
+            } else {
+                log.error("Upload job {} failed", job.getJobId(), e);
+                job.setStatus(UploadJobStatus.FAILED);
+                job.getErrors().add(e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+            }
+        } finally {
+            runningReports.remove(job.getJobId());
+            if (!interrupted) {
+                applyProgress(job, report, new Date());
+                job.setFinishedAt(new Date());
+                uploadJobRepository.save(job);
+                deleteSpoolFile(spoolFile);
+            }
+        }
+        log.info("Upload job {} {}: {}", job.getJobId(), job.getStatus(), report);
+    }
+
+    /**
+     * Saves the progress of a job at a checkpoint, so an interrupted job resumes from it with the same counts.
+     */
+    private void checkpoint(UploadJob job, IngestReport report, IngestCheckpoint checkpoint) {
+        Date now = new Date();
+        applyProgress(job, report, now);
+        job.setCheckpointOffset(checkpoint.getOffset());
+        job.setCheckpointLine(checkpoint.getLineNumber());
+        job.setCheckpointParsedLines(checkpoint.getParsedLines());
+        job.setCheckpointedAt(now);
+        uploadJobRepository.save(job);
+        log.debug("Upload job {} checkpoint at {}", job.getJobId(), checkpoint);
+    }
+
+    /**
+     * Starts the report of a resumed job from the counts saved at its last checkpoint. The lines are the parsed lines
+     * before the checkpoint, not its line number, which counts the empty and malformed lines too.
+     */
+    private static void restoreProgress(UploadJob job, IngestReport report) {
+        report.addLines(job.getCheckpointParsedLines());
+        report.addSaved(job.getUsersSaved(), job.getOrdersSaved(), job.getProductsSaved());
+        report.addWritten(job.getInserted(), job.getUpdated(), job.getFailed(), job.getSkipped());
+        report.addQuarantined(job.getQuarantined());
+    }
+
+    private void fail(UploadJob job, String error) {
+        log.error("Upload job {} of {} failed: {}", job.getJobId(), job.getFileName(), error);
+        job.setStatus(UploadJobStatus.FAILED);
+        job.setFinishedAt(new Date());
+        job.getErrors().add(error);
+        uploadJobRepository.save(job);
+    }
+
+    private static void applyProgress(UploadJob job, IngestReport report, Date now) {
+        job.setLinesProcessed(report.getLines());
+        job.setUsersSaved(report.getUsers());
+        job.setOrdersSaved(report.getOrders());
+        job.setProductsSaved(report.getProducts());
+        job.setInserted(report.getInserted());
+        job.setUpdated(report.getUpdated());
+        job.setFailed(report.getFailed());
+        job.setSkipped(report.getSkipped());
+        job.setQuarantined(report.getQuarantined());
+        long elapsed = job.getStartedAt() == null ? 0 : now.getTime() - job.getStartedAt().getTime();
+        job.setLinesPerSecond(elapsed > 0 ? report.getLines() * 1000.0 / elapsed : 0.0);
+    }
+
+    private static void deleteSpoolFile(Path spoolFile) {
+        try {
+            Files.deleteIfExists(spoolFile);
+        } catch (IOException e) {
+            log.error("Could not delete spool file {}", spoolFile, e);
+        }
+    }
+}
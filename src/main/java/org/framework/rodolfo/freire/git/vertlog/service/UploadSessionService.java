@@ -0,0 +1,284 @@
+package org.framework.rodolfo.freire.git.vertlog.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.framework.rodolfo.freire.git.vertlog.configuration.PropertiesIngest;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadJob;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadSession;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadSessionStatus;
+import org.framework.rodolfo.freire.git.vertlog.exception.BadRequestException;
+import org.framework.rodolfo.freire.git.vertlog.exception.ResourceNotFoundException;
+import org.framework.rodolfo.freire.git.vertlog.repository.UploadSessionRepository;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Service class receiving files in chunks, so that a large upload survives a broken connection.
+ * <p>
+ * A session reserves a spool file for the whole file. Every chunk is streamed from the request straight to its place
+ * in the spool file, so chunks can arrive in any order and a failed chunk is sent again on its own, without holding
+ * the chunk in memory or in a temporary file. Once every chunk is received, completing the session hands the spool
+ * file to {@link UploadJobService}, which processes it like an asynchronous upload.
+ * <p>
+ * Sessions live in MongoDB next to their spool file, so an upload also continues after a restart of the server.
+ */
+
+@Slf4j
+@Service
+public class UploadSessionService {
+
+    /**
+     * The maximum number of chunks of a session, keeping the list of received chunks small.
+     */
+    static final int MAX_CHUNKS = 10_000;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UploadJobService uploadJobService;
+    private final PropertiesIngest propertiesIngest;
+
+    /**
+     * Constructor that injects the dependencies of the service.
+     *
+     * @param uploadSessionRepository The repository providing access to `UploadSession` entities.
+     * @param uploadJobService        The service processing the completed files.
+     * @param propertiesIngest        The settings of the file ingest process.
+     */
+    public UploadSessionService(UploadSessionRepository uploadSessionRepository, UploadJobService uploadJobService,
+                                PropertiesIngest propertiesIngest) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.uploadJobService = uploadJobService;
+        this.propertiesIngest = propertiesIngest;
+    }
+
+    /**
+     * Opens a session receiving a file in chunks.
+     *
+     * @param fileName  The name of the file.
+     * @param totalSize The number of bytes of the file, as uploaded.
+     * @param chunkSize The number of bytes of every chunk but the last one, null for
+     *                  `vertlog-ingest.sessions.chunk-size`.
+     * @return The session, in {@link UploadSessionStatus#OPEN} status.
+     * @throws BadRequestException Thrown if the file is empty or the chunk size is out of bounds.
+     * @throws IOException         Thrown if the spool file cannot be created.
+     */
+    public UploadSession open(String fileName, long totalSize, Long chunkSize) throws IOException {
+        if (totalSize <= 0) {
+            throw new BadRequestException("Uploaded file is empty");
+        }
+        long size = chunkSize != null ? chunkSize : propertiesIngest.getSessionChunkSize().toBytes();
+        long maxSize = propertiesIngest.getSessionMaxChunkSize().toBytes();
+        if (size <= 0 || size > maxSize) {
+            throw new BadRequestException("Invalid chunk size. chunk size must be between 1 and " + maxSize);
+        }
+        long chunkCount = (totalSize + size - 1) / size;
+        if (chunkCount > MAX_CHUNKS) {
+            throw new BadRequestException("Too many chunks: " + chunkCount + ", at most " + MAX_CHUNKS
+                    + " are allowed, use larger chunks");
+        }
+        Date now = new Date();
+        UploadSession session = new UploadSession();
+        session.setSessionId(UUID.randomUUID().toString());
+        session.setFileName(fileName);
+        session.setStatus(UploadSessionStatus.OPEN);
+        session.setTotalSize(totalSize);
+        session.setChunkSize(size);
+        session.setChunkCount((int) chunkCount);
+        session.setCreatedAt(now);
+        session.setUpdatedAt(now);
+        session.setSpoolFile(uploadJobService.createSpoolFile().toString());
+        uploadSessionRepository.save(session);
+        log.info("Upload session {} opened for {}: {} bytes in {} chunks", session.getSessionId(), fileName,
+                totalSize, chunkCount);
+        return session;
+    }
+
+    /**
+     * Writes a chunk of a file to its place in the spool file of the session. A chunk sent again replaces the
+     * previous copy, so a chunk whose request failed is simply sent again.
+     * <p>
+     * The body is first received into a part file next to the spool file and only copied into place once it holds
+     * exactly the bytes of the chunk, so a short, oversized or interrupted body leaves the spool file as it was,
+     * including a copy of the chunk received before.
+     *
+     * @param sessionId The unique identifier of the session.
+     * @param index     The index of the chunk, from 0.
+     * @param body      The content of the chunk, read up to its end.
+     * @return The session, including the chunk among the received ones.
+     * @throws ResourceNotFoundException Thrown if no session has this identifier.
+     * @throws BadRequestException       Thrown if the session is not open, the index is out of bounds or the body
+     *                                   does not hold exactly the bytes of the chunk.
+     * @throws IOException               Thrown if the body cannot be read or the spool file cannot be written.
+     */
+    public UploadSession writeChunk(String sessionId, int index, InputStream body) throws IOException {
+        UploadSession session = findOpen(sessionId);
+        if (index < 0 || index >= session.getChunkCount()) {
+            throw new BadRequestException("Invalid chunk index. index must be between 0 and "
+                    + (session.getChunkCount() - 1));
+        }
+        long position = index * session.getChunkSize();
+        long expected = Math.min(session.getChunkSize(), session.getTotalSize() - position);
+        Path spoolFile = Paths.get(session.getSpoolFile());
+        Path part = Files.createTempFile(spoolFile.getParent(), "chunk-", ".part");
+        try {
+            long received = receiveChunk(body, part, index, expected);
+            if (received != expected) {
+                throw new BadRequestException("Chunk " + index + " must hold " + expected + " bytes, received "
+                        + received);
+            }
+            try (FileChannel source = FileChannel.open(part, StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(spoolFile, StandardOpenOption.WRITE)) {
+                // chunks arrive in any order: the target position may lie past the end of the spool file
+                target.position(position);
+                long copied = 0;
+                while (copied < expected) {
+                    copied += source.transferTo(copied, expected - copied, target);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(part);
+        }
+        UploadSession updated = uploadSessionRepository.addReceivedChunk(sessionId, index);
+        if (updated == null) {
+            throw new BadRequestException("Upload session " + sessionId + " is no longer open");
+        }
+        log.debug("Upload session {} received chunk {} of {}", sessionId, index, updated.getChunkCount());
+        return updated;
+    }
+
+    /**
+     * Completes a session whose chunks were all received, queuing the processing of the file.
+     *
+     * @param sessionId The unique identifier of the session.
+     * @return The job processing the file, in queued status.
+     * @throws ResourceNotFoundException Thrown if no session has this identifier.
+     * @throws BadRequestException       Thrown if the session is not open or chunks are missing.
+     * @throws TaskRejectedException     Thrown if too many jobs are already waiting; the session is aborted then.
+     */
+    public UploadJob complete(String sessionId) {
+        UploadSession session = findOpen(sessionId);
+        List<Integer> missing = missingChunks(session);
+        if (!missing.isEmpty()) {
+            throw new BadRequestException("Upload session " + sessionId + " misses " + missing.size()
+                    + " chunks, first " + missing.subList(0, Math.min(10, missing.size())));
+        }
+        UploadSession committed = uploadSessionRepository.close(sessionId, UploadSessionStatus.COMMITTED);
+        if (committed == null) {
+            throw new BadRequestException("Upload session " + sessionId + " is no longer open");
+        }
+        try {
+            UploadJob job = uploadJobService.submit(committed.getFileName(), Paths.get(committed.getSpoolFile()));
+            committed.setJobId(job.getJobId());
+            uploadSessionRepository.save(committed);
+            log.info("Upload session {} committed as upload job {}", sessionId, job.getJobId());
+            return job;
+        } catch (TaskRejectedException e) {
+            // the job refused the spool file and deleted it
+            committed.setStatus(UploadSessionStatus.ABORTED);
+            uploadSessionRepository.save(committed);
+            throw e;
+        }
+    }
+
+    /**
+     * Retrieves a session by its identifier.
+     *
+     * @param sessionId The unique identifier of the session.
+     * @return An `Optional` containing the session, or an empty `Optional` if no session is found.
+     */
+    public Optional<UploadSession> findById(String sessionId) {
+        return uploadSessionRepository.findById(sessionId);
+    }
+
+    /**
+     * Lists the chunks of a session not received yet.
+     *
+     * @param session The session.
+     * @return The indexes of the missing chunks, in increasing order.
+     */
+    static List<Integer> missingChunks(UploadSession session) {
+        Set<Integer> received = new HashSet<>(session.getReceivedChunks());
+        List<Integer> missing = new ArrayList<>();
+        for (int index = 0; index < session.getChunkCount(); index++) {
+            if (!received.contains(index)) {
+                missing.add(index);
+            }
+        }
+        return missing;
+    }
+
+    private UploadSession findOpen(String sessionId) {
+        UploadSession session = uploadSessionRepository.findById(sessionId)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload session not found with ID: " + sessionId));
+        if (session.getStatus() != UploadSessionStatus.OPEN) {
+            throw new BadRequestException("Upload session " + sessionId + " is " + session.getStatus());
+        }
+        return session;
+    }
+
+    /**
+     * Receives the body of a chunk into its part file, refusing a body longer than the chunk as soon as it is.
+     *
+     * @return The number of bytes received.
+     */
+    private static long receiveChunk(InputStream body, Path part, int index, long expected) throws IOException {
+        long received = 0;
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                if (received + read > expected) {
+                    throw new BadRequestException("Chunk " + index + " must hold " + expected + " bytes, received more");
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                received += read;
+            }
+        }
+        return received;
+    }
+
+    /**
+     * Deletes the sessions untouched for `vertlog-ingest.sessions.expire-after`, with the spool files of the open
+     * ones. The spool file of a committed session belongs to its job.
+     * <p>
+     * Runs every `vertlog-ingest.sessions.purge-interval`, so abandoned spool files are removed even when no session
+     * is opened anymore.
+     */
+    @Scheduled(fixedDelayString = "#{@propertiesIngest.sessionPurgeInterval.toMillis()}",
+            initialDelayString = "#{@propertiesIngest.sessionPurgeInterval.toMillis()}")
+    public void discardExpired() {
+        Date expiry = new Date(System.currentTimeMillis() - propertiesIngest.getSessionExpireAfter().toMillis());
+        for (UploadSession session : uploadSessionRepository.findByUpdatedAtBefore(expiry)) {
+            if (session.getStatus() == UploadSessionStatus.OPEN) {
+                log.warn("Upload session {} of {} expired with {} of {} chunks", session.getSessionId(),
+                        session.getFileName(), session.getReceivedChunks().size(), session.getChunkCount());
+                try {
+                    Files.deleteIfExists(Paths.get(session.getSpoolFile()));
+                } catch (IOException e) {
+                    log.error("Could not delete spool file {}", session.getSpoolFile(), e);
+                }
+            }
+            uploadSessionRepository.delete(session);
+        }
+    }
+}
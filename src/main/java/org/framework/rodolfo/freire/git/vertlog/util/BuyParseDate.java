@@ -2,53 +2,147 @@ package org.framework.rodolfo.freire.git.vertlog.util;
 
 import org.framework.rodolfo.freire.git.vertlog.exception.BuyParseException;
 
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
 import java.util.Date;
 
 /**
  * Utility class for parsing dates used in the Buy system.
  * <p>
- * This class provides a static method `parseDate` that attempts to parse a String representation of a date into a `LocalDate` object.
- * It uses a predefined date format ("yyyy-MM-dd") for parsing.
+ * This class provides static methods that parse a String representation of a date into a `Date` or `LocalDate` object,
+ * using the file format ("yyyyMMdd") or the API format ("yyyy-MM-dd").
+ * <p>
+ * Parsing is backed by `java.time`. Since uploaded files repeat the same few hundred dates over millions of lines,
+ * recently decoded dates are kept in a small cache shared by all threads. Cached entries are immutable, so the cache
+ * needs no locking: a lost update only costs a new decoding.
  *
  * @see LocalDate
  */
 public class BuyParseDate {
 
+    private static final int CACHE_SIZE = 1024;
+    private static final DateTimeFormatter API_FORMATTER =
+            DateTimeFormatter.ofPattern("uuuu-M-d").withResolverStyle(ResolverStyle.STRICT);
+
+    private static final CachedDate[] CACHE = new CachedDate[CACHE_SIZE];
+
     /**
-     * Parses a String representation of a date into a `LocalDate` object.
+     * Parses a String representation of a date in the file format ("yyyyMMdd") into a `Date` object.
      * <p>
-     * This method attempts to parse the provided `dateString` according to the expected format ("yyyy-MM-dd").
-     * If the parsing is successful, it returns the corresponding `LocalDate` object.
+     * The returned `Date` is the start of that day in the system time zone.
      *
      * @param dateString The String representation of the date to be parsed.
-     * @return The parsed `LocalDate` object if successful, or throws a `BuyParseException` if the parsing fails.
-     * @throws BuyParseException Thrown if the provided `dateString` cannot be parsed into a valid `LocalDate` object using the expected format.
+     * @return The parsed `Date` object if successful, or throws a `BuyParseException` if the parsing fails.
+     * @throws BuyParseException Thrown if the provided `dateString` cannot be parsed into a valid date using the expected format.
      */
     public static Date parseDate(String dateString) throws BuyParseException {
-        DateFormat formatter = new SimpleDateFormat("yyyyMMdd");
-        formatter.setLenient(false);
+        return new Date(lookup(fileKey(dateString), dateString).epochMillis);
+    }
+
+    /**
+     * Parses a String representation of a date in the file format ("yyyyMMdd") into a `LocalDate` object.
+     *
+     * @param dateString The String representation of the date to be parsed.
+     * @return The parsed `LocalDate` object if successful, or throws a `BuyParseException` if the parsing fails.
+     * @throws BuyParseException Thrown if the provided `dateString` cannot be parsed into a valid date using the expected format.
+     */
+    public static LocalDate parseLocalDate(String dateString) throws BuyParseException {
+        return lookup(fileKey(dateString), dateString).localDate;
+    }
+
+    /**
+     * Parses a String representation of a date in the API format ("yyyy-MM-dd") into a `Date` object.
+     * <p>
+     * The returned `Date` is the start of that day in the system time zone.
+     *
+     * @param dateString The String representation of the date to be parsed.
+     * @return The parsed `Date` object if successful, or throws a `BuyParseException` if the parsing fails.
+     * @throws BuyParseException Thrown if the provided `dateString` cannot be parsed into a valid date using the expected format.
+     */
+    public static Date parseDateApi(String dateString) throws BuyParseException {
+        return new Date(lookup(apiKey(dateString), dateString).epochMillis);
+    }
+
+    /**
+     * Converts a date encoded as the number `yyyyMMdd` into a `Date` object at the start of that day in the system time zone.
+     *
+     * @param yyyyMMdd The date encoded as a number.
+     * @return The corresponding `Date` object.
+     * @throws BuyParseException Thrown if the number is not a valid date.
+     */
+    public static Date toDate(int yyyyMMdd) throws BuyParseException {
+        return new Date(lookup(yyyyMMdd, null).epochMillis);
+    }
+
+    private static CachedDate lookup(int key, String dateString) {
+        int index = (key ^ (key >>> 16)) & (CACHE_SIZE - 1);
+        CachedDate cached = CACHE[index];
+        if (cached != null && cached.key == key) {
+            return cached;
+        }
+        LocalDate localDate;
         try {
-            return formatter.parse(dateString);
-        } catch (ParseException e) {
-            throw new BuyParseException(0, "Invalid date format: " + dateString);
-        } catch (IllegalArgumentException e) {
+            localDate = LocalDate.of(key / 10000, key / 100 % 100, key % 100);
+        } catch (DateTimeException e) {
+            throw new BuyParseException(0, "Invalid date format: " + (dateString == null ? key : dateString));
+        }
+        cached = new CachedDate(key, localDate, localDate.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        CACHE[index] = cached;
+        return cached;
+    }
+
+    private static int fileKey(String dateString) {
+        if (dateString == null) {
             throw new BuyParseException(0, "Invalid date argument: " + dateString);
         }
+        if (dateString.length() != 8) {
+            throw new BuyParseException(0, "Invalid date format: " + dateString);
+        }
+        return digits(dateString, 0, 8);
     }
-    public static Date parseDateApi(String dateString) throws BuyParseException {
-        DateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
-        formatter.setLenient(false);
+
+    private static int apiKey(String dateString) {
+        if (dateString == null) {
+            throw new BuyParseException(0, "Invalid date argument: " + dateString);
+        }
+        if (dateString.length() == 10 && dateString.charAt(4) == '-' && dateString.charAt(7) == '-') {
+            return digits(dateString, 0, 4) * 10000 + digits(dateString, 5, 7) * 100 + digits(dateString, 8, 10);
+        }
         try {
-            return formatter.parse(dateString);
-        } catch (ParseException e) {
+            LocalDate localDate = LocalDate.parse(dateString, API_FORMATTER);
+            return localDate.getYear() * 10000 + localDate.getMonthValue() * 100 + localDate.getDayOfMonth();
+        } catch (DateTimeParseException e) {
             throw new BuyParseException(0, "Invalid date format: " + dateString);
-        } catch (IllegalArgumentException e) {
-            throw new BuyParseException(0, "Invalid date argument: " + dateString);
         }
     }
 
-}
\ No newline at end of file
+    private static int digits(String dateString, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = dateString.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new BuyParseException(0, "Invalid date format: " + dateString);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static final class CachedDate {
+
+        private final int key;
+        private final LocalDate localDate;
+        private final long epochMillis;
+
+        private CachedDate(int key, LocalDate localDate, long epochMillis) {
+            this.key = key;
+            this.localDate = localDate;
+            this.epochMillis = epochMillis;
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+package org.framework.rodolfo.freire.git.vertlog.util;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Holds the decoded columns of one line of the legacy fixed-width buy file.
+ * <p>
+ * Instances are reused by {@link BuyRecordParser} for every line, so values must be copied out before the next line is parsed.
+ */
+
+@Getter
+@ToString
+public class BuyRecord {
+
+    int userId;
+    String userName;
+    int buyId;
+    int productId;
+
+    /**
+     * The product value in cents.
+     */
+    long productValue;
+
+    /**
+     * The buy date encoded as the number `yyyyMMdd`.
+     */
+    int date;
+
+}
@@ -0,0 +1,42 @@
+package org.framework.rodolfo.freire.git.vertlog.util;
+
+import lombok.Getter;
+
+/**
+ * Describes the columns of a line of the legacy fixed-width buy file.
+ * <p>
+ * Each column is identified by its start (inclusive) and end (exclusive) position within the line.
+ * Positions are counted in bytes, which match characters for the single-byte content the legacy export writes.
+ */
+
+@Getter
+public enum BuyRecordLayout {
+
+    USER_ID(0, 10),
+    USER_NAME(11, 55),
+    BUY_ID(56, 65),
+    PRODUCT_ID(66, 75),
+    PRODUCT_VALUE(76, 86),
+    DATE(87, 95);
+
+    /**
+     * The minimum length of a line holding every column.
+     */
+    public static final int LINE_LENGTH = 95;
+
+    /**
+     * The position of the first byte of the column.
+     */
+    private final int start;
+
+    /**
+     * The position following the last byte of the column.
+     */
+    private final int end;
+
+    BuyRecordLayout(int start, int end) {
+        this.start = start;
+        this.end = end;
+    }
+
+}
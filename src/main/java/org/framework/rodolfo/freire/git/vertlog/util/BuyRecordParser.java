@@ -0,0 +1,238 @@
+package org.framework.rodolfo.freire.git.vertlog.util;
+
+import org.framework.rodolfo.freire.git.vertlog.exception.BuyParseException;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Month;
+import java.time.Year;
+import java.util.Date;
+
+import static org.framework.rodolfo.freire.git.vertlog.util.BuyRecordLayout.*;
+
+/**
+ * Decodes lines of the legacy fixed-width buy file into a {@link BuyRecord}.
+ * <p>
+ * Numeric and date columns are decoded straight from the line bytes, without intermediate Strings; the product value
+ * is decoded into exact cents.
+ * The user name is only turned into a String when it differs from the previous line, which happens once per user
+ * in the legacy export. Lines holding multi-byte characters are decoded as text first so that the column positions
+ * keep referring to characters.
+ * <p>
+ * Instances keep the last decoded name and are therefore not thread-safe.
+ */
+public class BuyRecordParser {
+
+    private static final int CENTS_SCALE = 2;
+    // factor turning a value with 0, 1 or 2 decimals into cents
+    private static final long[] CENTS_FACTORS = {100, 10, 1};
+
+    private final Charset charset;
+    private byte[] lastName = new byte[USER_NAME.getEnd() - USER_NAME.getStart()];
+    private int lastNameLength = -1;
+    private String lastUserName;
+
+    /**
+     * Creates a parser decoding user names as UTF-8.
+     */
+    public BuyRecordParser() {
+        this(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates a parser decoding user names with the given charset.
+     *
+     * @param charset The charset of the file being parsed.
+     */
+    public BuyRecordParser(Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * Decodes one line into the given record.
+     *
+     * @param buffer The buffer holding the line.
+     * @param offset The position of the first byte of the line within the buffer.
+     * @param length The number of bytes of the line, excluding the line terminator.
+     * @param record The record receiving the decoded columns.
+     * @throws BuyParseException Thrown if the line is too short or a column cannot be decoded.
+     */
+    public void parse(byte[] buffer, int offset, int length, BuyRecord record) throws BuyParseException {
+        if (length > LINE_LENGTH && !isAscii(buffer, offset, length)) {
+            parseText(new String(buffer, offset, length, charset), record);
+            return;
+        }
+        if (length < LINE_LENGTH) {
+            throw new BuyParseException(length, "Line too short: " + length + " of " + LINE_LENGTH + " characters");
+        }
+        record.userId = parseInt(buffer, offset, USER_ID);
+        record.userName = parseName(buffer, offset);
+        record.buyId = parseInt(buffer, offset, BUY_ID);
+        record.productId = parseInt(buffer, offset, PRODUCT_ID);
+        record.productValue = parseCents(buffer, offset, PRODUCT_VALUE);
+        record.date = parseDate(buffer, offset, DATE);
+    }
+
+    /**
+     * Converts the date of a record into a `Date` at the start of that day in the system time zone,
+     * as {@link BuyParseDate#parseDate(String)} does.
+     *
+     * @param record The record holding the date.
+     * @return The date of the record.
+     */
+    public static Date toDate(BuyRecord record) {
+        return BuyParseDate.toDate(record.date);
+    }
+
+    private void parseText(String line, BuyRecord record) {
+        if (line.length() < LINE_LENGTH) {
+            throw new BuyParseException(line.length(), "Line too short: " + line.length() + " of " + LINE_LENGTH + " characters");
+        }
+        byte[] columns = new byte[line.length()];
+        for (int i = 0; i < columns.length; i++) {
+            char c = line.charAt(i);
+            columns[i] = c < 0x80 ? (byte) c : (byte) '?';
+        }
+        parse(columns, 0, columns.length, record);
+        record.userName = line.substring(USER_NAME.getStart(), USER_NAME.getEnd()).trim();
+        lastNameLength = -1;
+    }
+
+    private String parseName(byte[] buffer, int offset) {
+        int from = offset + USER_NAME.getStart();
+        int to = offset + USER_NAME.getEnd();
+        while (from < to && buffer[from] == ' ') {
+            from++;
+        }
+        while (to > from && buffer[to - 1] == ' ') {
+            to--;
+        }
+        int length = to - from;
+        if (length == lastNameLength && equals(buffer, from, lastName, length)) {
+            return lastUserName;
+        }
+        System.arraycopy(buffer, from, lastName, 0, length);
+        lastNameLength = length;
+        lastUserName = new String(buffer, from, length, charset);
+        return lastUserName;
+    }
+
+    private static int parseInt(byte[] buffer, int offset, BuyRecordLayout column) {
+        int from = offset + column.getStart();
+        int to = offset + column.getEnd();
+        while (from < to && buffer[from] == ' ') {
+            from++;
+        }
+        while (to > from && buffer[to - 1] == ' ') {
+            to--;
+        }
+        if (from == to) {
+            throw invalid(buffer, offset, column, "Missing number");
+        }
+        boolean negative = buffer[from] == '-';
+        if (negative || buffer[from] == '+') {
+            from++;
+        }
+        if (from == to) {
+            throw invalid(buffer, offset, column, "Invalid number");
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalid(buffer, offset, column, "Invalid number");
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw invalid(buffer, offset, column, "Number out of range");
+        }
+        return (int) value;
+    }
+
+    private static long parseCents(byte[] buffer, int offset, BuyRecordLayout column) {
+        int from = offset + column.getStart();
+        int to = offset + column.getEnd();
+        while (from < to && buffer[from] == ' ') {
+            from++;
+        }
+        while (to > from && buffer[to - 1] == ' ') {
+            to--;
+        }
+        boolean negative = from < to && buffer[from] == '-';
+        if (negative || from < to && buffer[from] == '+') {
+            from++;
+        }
+        long unscaled = 0;
+        int scale = -1;
+        int digits = 0;
+        for (int i = from; i < to; i++) {
+            byte b = buffer[i];
+            if (b == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalid(buffer, offset, column, "Invalid value");
+            }
+            unscaled = unscaled * 10 + digit;
+            digits++;
+            if (scale >= 0) {
+                scale++;
+            }
+        }
+        if (digits == 0) {
+            throw invalid(buffer, offset, column, "Invalid value");
+        }
+        if (scale > CENTS_SCALE) {
+            throw invalid(buffer, offset, column, "Value with more than " + CENTS_SCALE + " decimals");
+        }
+        long cents = unscaled * CENTS_FACTORS[Math.max(scale, 0)];
+        return negative ? -cents : cents;
+    }
+
+    private static int parseDate(byte[] buffer, int offset, BuyRecordLayout column) {
+        int from = offset + column.getStart();
+        int value = 0;
+        for (int i = from; i < offset + column.getEnd(); i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalid(buffer, offset, column, "Invalid date format");
+            }
+            value = value * 10 + digit;
+        }
+        int year = value / 10000;
+        int month = value / 100 % 100;
+        int day = value % 100;
+        if (month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+            throw invalid(buffer, offset, column, "Invalid date format");
+        }
+        return value;
+    }
+
+    private static boolean isAscii(byte[] buffer, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (buffer[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equals(byte[] buffer, int from, byte[] other, int length) {
+        for (int i = 0; i < length; i++) {
+            if (buffer[from + i] != other[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static BuyParseException invalid(byte[] buffer, int offset, BuyRecordLayout column, String reason) {
+        String value = new String(buffer, offset + column.getStart(), column.getEnd() - column.getStart(),
+                StandardCharsets.ISO_8859_1);
+        return new BuyParseException(column.getStart(), reason + ": " + value.trim());
+    }
+}
@@ -0,0 +1,128 @@
+package org.framework.rodolfo.freire.git.vertlog.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.bson.types.Decimal128;
+import org.springframework.data.convert.PropertyValueConverter;
+import org.springframework.data.mongodb.core.convert.MongoConversionContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money amounts held as a `long` number of cents.
+ * <p>
+ * Values and totals are summed as cents, which is exact, and only converted at the edges: to a decimal number in
+ * JSON with {@link Serializer} and {@link Deserializer}, and to `Decimal128` in MongoDB with {@link MongoConverter}.
+ */
+public final class Cents {
+
+    private static final int SCALE = 2;
+
+    private Cents() {
+    }
+
+    /**
+     * Converts an amount in cents into a decimal amount.
+     *
+     * @param cents The amount in cents.
+     * @return The amount with two decimals.
+     */
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * Converts a decimal amount into cents.
+     *
+     * @param amount The amount, with at most two significant decimals.
+     * @return The amount in cents.
+     * @throws ArithmeticException Thrown if the amount has more than two significant decimals or does not fit a long.
+     */
+    public static long of(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Converts an amount read from MongoDB into cents.
+     * <p>
+     * Amounts are written as `Decimal128`; documents written before used a `double`, which is rounded to the
+     * nearest cent.
+     *
+     * @param stored The stored amount.
+     * @return The amount in cents.
+     */
+    public static long fromStored(Object stored) {
+        if (stored instanceof Decimal128 decimal) {
+            return of(decimal.bigDecimalValue());
+        }
+        if (stored instanceof Double || stored instanceof Float) {
+            return of(BigDecimal.valueOf(((Number) stored).doubleValue()).setScale(SCALE, RoundingMode.HALF_EVEN));
+        }
+        if (stored instanceof Number number) {
+            return of(BigDecimal.valueOf(number.longValue()));
+        }
+        throw new IllegalArgumentException("Not an amount: " + stored);
+    }
+
+    /**
+     * Writes an amount in cents as a JSON decimal number, such as `1024.48`.
+     */
+    public static class Serializer extends StdSerializer<Long> {
+
+        public Serializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public void serialize(Long cents, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeNumber(toBigDecimal(cents));
+        }
+    }
+
+    /**
+     * Reads a JSON decimal number, with at most two significant decimals, as an amount in cents.
+     */
+    public static class Deserializer extends StdDeserializer<Long> {
+
+        public Deserializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            BigDecimal amount = parser.getDecimalValue();
+            try {
+                return of(amount);
+            } catch (ArithmeticException e) {
+                throw InvalidFormatException.from(parser, "Amount must have at most two decimals", amount, Long.class);
+            }
+        }
+    }
+
+    /**
+     * Stores an amount in cents as `Decimal128`.
+     * <p>
+     * Writing also accepts a value already converted, as update operations may hand one over.
+     */
+    public static class MongoConverter implements PropertyValueConverter<Object, Object, MongoConversionContext> {
+
+        @Override
+        public Object read(Object value, MongoConversionContext context) {
+            return fromStored(value);
+        }
+
+        @Override
+        public Object write(Object value, MongoConversionContext context) {
+            return value instanceof Number cents && !(value instanceof Decimal128)
+                    ? new Decimal128(toBigDecimal(cents.longValue()))
+                    : value;
+        }
+    }
+}
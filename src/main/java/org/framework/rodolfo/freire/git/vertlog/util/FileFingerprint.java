@@ -0,0 +1,47 @@
+package org.framework.rodolfo.freire.git.vertlog.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Utility class computing the fingerprint of an uploaded file.
+ * <p>
+ * The fingerprint is the hexadecimal SHA-256 digest of the file content, so two uploads of the same bytes get the
+ * same fingerprint whatever their names.
+ */
+public class FileFingerprint {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private FileFingerprint() {
+    }
+
+    /**
+     * Reads a stream to its end and returns the fingerprint of its content. The stream is not closed.
+     *
+     * @param inputStream The content to fingerprint.
+     * @return The hexadecimal SHA-256 digest of the content.
+     * @throws IOException Thrown if the stream cannot be read.
+     */
+    public static String sha256(InputStream inputStream) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
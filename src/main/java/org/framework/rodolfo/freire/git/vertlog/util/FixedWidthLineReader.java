@@ -0,0 +1,155 @@
+package org.framework.rodolfo.freire.git.vertlog.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads lines from an InputStream into a reusable byte buffer, without creating a String per line.
+ * <p>
+ * After {@link #next()} returns true, the current line is available through {@link #buffer()}, {@link #start()} and
+ * {@link #length()} until the next call. Line terminators (`\n` or `\r\n`) are not part of the line and empty lines
+ * are skipped.
+ */
+public class FixedWidthLineReader implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream inputStream;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfStream;
+
+    private int start;
+    private int length;
+    private long lineNumber;
+    private long offset;
+    private long bufferOffset;
+
+    /**
+     * Creates a reader with a 64 KiB buffer.
+     *
+     * @param inputStream The InputStream to read lines from.
+     */
+    public FixedWidthLineReader(InputStream inputStream) {
+        this(inputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a reader with the given buffer size. The buffer grows if a line does not fit.
+     *
+     * @param inputStream The InputStream to read lines from.
+     * @param bufferSize  The initial size of the buffer in bytes.
+     */
+    public FixedWidthLineReader(InputStream inputStream, int bufferSize) {
+        this.inputStream = inputStream;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Advances to the next non-empty line.
+     *
+     * @return true if a line was read, false at the end of the stream.
+     * @throws IOException Thrown if the underlying InputStream cannot be read.
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            int newline = indexOfNewline();
+            while (newline < 0 && !endOfStream) {
+                fill();
+                newline = indexOfNewline();
+            }
+            if (newline < 0 && position == limit) {
+                return false;
+            }
+            int end = newline < 0 ? limit : newline;
+            start = position;
+            offset = bufferOffset + position;
+            length = end - start;
+            if (length > 0 && buffer[end - 1] == '\r') {
+                length--;
+            }
+            position = newline < 0 ? limit : newline + 1;
+            lineNumber++;
+            if (length > 0) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return The buffer holding the current line.
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * @return The position of the first byte of the current line within {@link #buffer()}.
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * @return The number of bytes of the current line, excluding the line terminator.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return The 1-based number of the current line within the stream, counting skipped empty lines.
+     */
+    public long lineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return The position of the first byte of the current line within the stream.
+     */
+    public long offset() {
+        return offset;
+    }
+
+    /**
+     * @return The position within the stream following the current line and its terminator.
+     */
+    public long nextOffset() {
+        return bufferOffset + position;
+    }
+
+    private int indexOfNewline() {
+        for (int i = position; i < limit; i++) {
+            if (buffer[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            bufferOffset += position;
+            limit -= position;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = inputStream.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            endOfStream = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
@@ -0,0 +1,377 @@
+package org.framework.rodolfo.freire.git.vertlog.util;
+
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * Hash map keyed by primitive ints, used to aggregate the lines of a buy file by user and order identifier.
+ * <p>
+ * Keys and values are kept in two parallel arrays with open addressing and linear probing, so a lookup allocates
+ * nothing: there is no boxed `Integer` per key and no entry object per mapping. The table keeps at most half of its
+ * slots used and doubles when full.
+ * <p>
+ * The primitive methods ({@link #get(int)}, {@link #put(int, Object)}, {@link #computeIfAbsent(int, IntFunction)})
+ * are the ones to use on hot paths; the {@link Map} view boxes keys and is meant for the consumers of the result.
+ * Null values are not supported, and the iterators of the views do not support removal.
+ *
+ * @param <V> The type of the mapped values.
+ */
+public class IntObjectMap<V> extends AbstractMap<Integer, V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    /**
+     * Constructs an empty map with the default capacity.
+     */
+    public IntObjectMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * Constructs an empty map able to hold the given number of mappings without resizing.
+     *
+     * @param expectedSize The expected number of mappings.
+     */
+    public IntObjectMap(int expectedSize) {
+        allocate(Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, expectedSize) * 2 - 1) << 1));
+    }
+
+    /**
+     * Returns the value mapped to a key.
+     *
+     * @param key The key.
+     * @return The mapped value, or null if the key is not mapped.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        for (int slot = slot(key); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tells whether a key is mapped.
+     *
+     * @param key The key.
+     * @return True if the key is mapped.
+     */
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps a key to a value, replacing the previous value of the key.
+     *
+     * @param key   The key.
+     * @param value The value, not null.
+     * @return The previous value of the key, or null if it was not mapped.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        Objects.requireNonNull(value, "value");
+        int slot = slot(key);
+        for (; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+        }
+        insert(slot, key, value);
+        return null;
+    }
+
+    /**
+     * Returns the value mapped to a key, mapping it first to the value created by the given function if absent.
+     *
+     * @param key      The key.
+     * @param function The function creating the value of an absent key, not returning null.
+     * @return The value mapped to the key.
+     */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(int key, IntFunction<? extends V> function) {
+        int slot = slot(key);
+        for (; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+        }
+        V value = Objects.requireNonNull(function.apply(key), "value");
+        insert(slot, key, value);
+        return value;
+    }
+
+    /**
+     * Removes the mapping of a key.
+     *
+     * @param key The key.
+     * @return The removed value, or null if the key was not mapped.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        for (int slot = slot(key); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Performs an action for every mapping, without boxing the keys.
+     *
+     * @param action The action receiving each key and its value.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachEntry(EntryConsumer<? super V> action) {
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                action.accept(keys[slot], (V) values[slot]);
+            }
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof Integer intKey ? get(intKey.intValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer intKey && containsKey(intKey.intValue());
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for (Object candidate : values) {
+            if (candidate != null && candidate.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public V put(Integer key, V value) {
+        return put(key.intValue(), value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return key instanceof Integer intKey ? remove(intKey.intValue()) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(values, null);
+            size = 0;
+        }
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new SlotIterator<>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    V at(int slot) {
+                        return (V) values[slot];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<Integer, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Integer, V>> iterator() {
+                return new SlotIterator<>() {
+                    @Override
+                    Entry<Integer, V> at(int slot) {
+                        return new SlotEntry(slot);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int slot(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void insert(int slot, int key, V value) {
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    /**
+     * Empties a slot, moving back the following entries of its probe sequence so that no lookup stops early.
+     */
+    private void shiftBack(int slot) {
+        int free = slot;
+        for (int next = (free + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+        values[free] = null;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slot(oldKeys[i]);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity / 2;
+    }
+
+    /**
+     * Action performed on a mapping by {@link #forEachEntry(EntryConsumer)}.
+     *
+     * @param <V> The type of the mapped values.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+
+        /**
+         * Performs the action on a mapping.
+         *
+         * @param key   The key.
+         * @param value The value mapped to the key.
+         */
+        void accept(int key, V value);
+    }
+
+    /**
+     * Iterates over the used slots of the table.
+     */
+    private abstract class SlotIterator<T> implements Iterator<T> {
+
+        private int next = advance(0);
+
+        @Override
+        public boolean hasNext() {
+            return next < values.length;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int slot = next;
+            next = advance(slot + 1);
+            return at(slot);
+        }
+
+        abstract T at(int slot);
+
+        private int advance(int from) {
+            int slot = from;
+            while (slot < values.length && values[slot] == null) {
+                slot++;
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * Mapping of a used slot, writing through to the table.
+     */
+    private final class SlotEntry implements Entry<Integer, V> {
+
+        private final int slot;
+
+        private SlotEntry(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public Integer getKey() {
+            return keys[slot];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            return (V) values[slot];
+        }
+
+        @Override
+        public V setValue(V value) {
+            V previous = getValue();
+            values[slot] = Objects.requireNonNull(value, "value");
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Entry<?, ?> entry
+                    && getKey().equals(entry.getKey()) && getValue().equals(entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return keys[slot] ^ values[slot].hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return keys[slot] + "=" + values[slot];
+        }
+    }
+}
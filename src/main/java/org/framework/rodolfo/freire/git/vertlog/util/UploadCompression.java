@@ -0,0 +1,105 @@
+package org.framework.rodolfo.freire.git.vertlog.util;
+
+import com.github.luben.zstd.ZstdIOException;
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Compression of an uploaded buy file, told by the extension following `.txt`.
+ * <p>
+ * Compressed files are decompressed on the fly while they are read, so neither the spooled copy of an upload nor the
+ * memory of the parser ever hold the decompressed file.
+ */
+public enum UploadCompression {
+
+    /**
+     * A plain `.txt` file.
+     */
+    NONE(".txt"),
+
+    /**
+     * A gzip compressed `.txt.gz` file.
+     */
+    GZIP(".txt.gz"),
+
+    /**
+     * A Zstandard compressed `.txt.zst` file.
+     */
+    ZSTD(".txt.zst");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String extension;
+
+    UploadCompression(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return The extension of the files using this compression, `.txt` included.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Finds the compression of a file from its name, ignoring case.
+     *
+     * @param fileName The name of the file, possibly null.
+     * @return The compression of the file, or null if the name is not one of a buy file.
+     */
+    public static UploadCompression fromFileName(String fileName) {
+        if (fileName == null) {
+            return null;
+        }
+        String name = fileName.toLowerCase(Locale.ROOT);
+        for (UploadCompression compression : values()) {
+            if (name.endsWith(compression.extension)) {
+                return compression;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Wraps the stream of a file so that it reads the decompressed content.
+     *
+     * @param inputStream The stream of the file as uploaded, closed with the returned stream.
+     * @return A stream of the decompressed content.
+     * @throws IOException Thrown if the compression header cannot be read; the given stream is closed then.
+     */
+    public InputStream decompress(InputStream inputStream) throws IOException {
+        try {
+            return switch (this) {
+                case NONE -> inputStream;
+                case GZIP -> new GZIPInputStream(inputStream, BUFFER_SIZE);
+                case ZSTD -> new ZstdInputStream(inputStream);
+            };
+        } catch (IOException | RuntimeException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Tells whether a failure reading a file comes from its content rather than from the server: a file that is not in
+     * the compression format of its name, such as an uncompressed file named `.txt.gz`, or a truncated file.
+     *
+     * @param failure The failure raised while reading, possibly wrapping the exception of the decompressor.
+     * @return Whether the failure or one of its causes reports malformed content.
+     */
+    public static boolean isMalformedContent(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ZipException || cause instanceof ZstdIOException || cause instanceof EOFException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,29 +1,66 @@
 package org.framework.rodolfo.freire.git.vertlog;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.framework.rodolfo.freire.git.vertlog.controller.BuyController;
 import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+import org.framework.rodolfo.freire.git.vertlog.document.QuarantinedLine;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadJob;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadSession;
+import org.framework.rodolfo.freire.git.vertlog.exception.BadRequestException;
 import org.framework.rodolfo.freire.git.vertlog.exception.BuyParseException;
 import org.framework.rodolfo.freire.git.vertlog.exception.ResourceNotFoundException;
+import org.framework.rodolfo.freire.git.vertlog.exception.UploadInProgressException;
 import org.framework.rodolfo.freire.git.vertlog.response.BadRequestResponse;
+import org.framework.rodolfo.freire.git.vertlog.response.BuyPageResponse;
+import org.framework.rodolfo.freire.git.vertlog.response.ConflictResponse;
+import org.framework.rodolfo.freire.git.vertlog.response.FileRequestResponse;
 import org.framework.rodolfo.freire.git.vertlog.response.InternalServerErrorResponse;
 import org.framework.rodolfo.freire.git.vertlog.response.NotFoundResponse;
+import org.framework.rodolfo.freire.git.vertlog.response.ServiceUnavailableResponse;
 import org.framework.rodolfo.freire.git.vertlog.service.BuyService;
+import org.framework.rodolfo.freire.git.vertlog.service.IngestReport;
+import org.framework.rodolfo.freire.git.vertlog.service.QuarantineService;
+import org.framework.rodolfo.freire.git.vertlog.service.UploadJobService;
+import org.framework.rodolfo.freire.git.vertlog.service.UploadSessionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class BuyControllerTest {
@@ -31,6 +68,18 @@ class BuyControllerTest {
     @Mock
     private BuyService buyService;
 
+    @Mock
+    private UploadJobService uploadJobService;
+
+    @Mock
+    private UploadSessionService uploadSessionService;
+
+    @Mock
+    private QuarantineService quarantineService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
     @InjectMocks
     private BuyController buyController;
 
@@ -90,6 +139,61 @@ class BuyControllerTest {
                 "Error when searching for buys: "), response.getBody());
     }
 
+    @Test
+    void testGetBuyPage_NextAfter() {
+        List<Buy> page = List.of(new Buy(3, "A"), new Buy(7, "B"));
+        when(buyService.findPage(null, 2)).thenReturn(page);
+
+        ResponseEntity<?> response = buyController.getBuyPage(null, 2);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        BuyPageResponse body = (BuyPageResponse) response.getBody();
+        assertEquals(page, body.getItems());
+        assertEquals(7, body.getNextAfter());
+    }
+
+    @Test
+    void testGetBuyPage_LastPage() {
+        when(buyService.findPage(7, 2)).thenReturn(List.of(new Buy(9, "C")));
+
+        BuyPageResponse body = (BuyPageResponse) buyController.getBuyPage(7, 2).getBody();
+
+        assertEquals(1, body.getSize());
+        assertNull(body.getNextAfter());
+    }
+
+    @Test
+    void testGetBuyPage_AfterNegativeUser() {
+        // users with an identifier of 0 or below are paged like any other
+        List<Buy> page = List.of(new Buy(-3, "A"), new Buy(0, "B"));
+        when(buyService.findPage(-5, 2)).thenReturn(page);
+
+        ResponseEntity<?> response = buyController.getBuyPage(-5, 2);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(0, ((BuyPageResponse) response.getBody()).getNextAfter());
+    }
+
+    @Test
+    void testGetBuyPage_InvalidLimit() {
+        ResponseEntity<?> response = buyController.getBuyPage(null, 0);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void testStreamAllBuy_Ndjson() throws Exception {
+        when(buyService.streamAll()).thenReturn(Stream.of(new Buy(1, "A"), new Buy(2, "B")));
+
+        ResponseEntity<StreamingResponseBody> response = buyController.streamAllBuy();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(2, objectMapper.readTree(lines[1]).get("user_id").asInt());
+    }
+
     @Test
     void testGetBuyById_ValidId() {
 
@@ -186,5 +290,235 @@ class BuyControllerTest {
     }
 
 
-}
 
+    @Test
+    void testUploadStream_GzipBodyDecompressed() throws Exception {
+        byte[] content = "0000000001 Sheldon Cooper".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(content);
+        }
+        List<byte[]> received = new ArrayList<>();
+        when(buyService.uploadStream(any(InputStream.class), any(IngestReport.class))).thenAnswer(invocation -> {
+            received.add(invocation.<InputStream>getArgument(0).readAllBytes());
+            return invocation.getArgument(1);
+        });
+
+        ResponseEntity<?> response = buyController.uploadStream("buys.txt.gz", (long) gzip.size(),
+                new ByteArrayInputStream(gzip.toByteArray()));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(new String(content, StandardCharsets.UTF_8), new String(received.get(0), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testUploadStream_UncompressedBodyNamedCompressed() {
+        when(buyService.uploadStream(any(InputStream.class), any(IngestReport.class))).thenAnswer(invocation -> {
+            try {
+                invocation.<InputStream>getArgument(0).readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error reading buy file", e);
+            }
+            return invocation.getArgument(1);
+        });
+        byte[] plain = "0000000001 Sheldon Cooper".getBytes(StandardCharsets.UTF_8);
+
+        // the gzip header is read before the upload starts, the zstd frame only once the body is read
+        ResponseEntity<?> gzip = buyController.uploadStream("buys.txt.gz", null, new ByteArrayInputStream(plain));
+        ResponseEntity<?> zstd = buyController.uploadStream("buys.txt.zst", null, new ByteArrayInputStream(plain));
+
+        assertEquals(HttpStatus.BAD_REQUEST, gzip.getStatusCode());
+        assertEquals(new BadRequestResponse("Content is not a valid .txt.gz file, or it is truncated",
+                "/upload/stream"), gzip.getBody());
+        assertEquals(HttpStatus.BAD_REQUEST, zstd.getStatusCode());
+        assertEquals(new BadRequestResponse("Content is not a valid .txt.zst file, or it is truncated",
+                "/upload/stream"), zstd.getBody());
+    }
+
+    @Test
+    void testUploadDocument_UncompressedFileNamedCompressed() throws Exception {
+        when(buyService.uploadFile(any(), eq("buys.txt.gz"), any(IngestReport.class)))
+                .thenThrow(new ZipException("Not in GZIP format"));
+
+        ResponseEntity<?> response = buyController.uploadDocument(
+                new MockMultipartFile("file", "buys.txt.gz", "text/plain", "0000000001".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(new BadRequestResponse("Content is not a valid .txt.gz file, or it is truncated",
+                "/buy/upload/"), response.getBody());
+    }
+
+    @Test
+    void testUploadStream_BadRequest() {
+        when(buyService.uploadStream(any(InputStream.class), any(IngestReport.class)))
+                .thenThrow(new BuyParseException(10, "Invalid user id"));
+
+        ResponseEntity<?> malformed = buyController.uploadStream("buys.txt", null,
+                new ByteArrayInputStream(new byte[]{'x'}));
+        ResponseEntity<?> csv = buyController.uploadStream("buys.csv", null, new ByteArrayInputStream(new byte[]{'x'}));
+        ResponseEntity<?> empty = buyController.uploadStream("buys.txt", 0L, new ByteArrayInputStream(new byte[0]));
+
+        assertEquals(HttpStatus.BAD_REQUEST, malformed.getStatusCode());
+        assertEquals(new BadRequestResponse("Invalid user id", "/upload/stream"), malformed.getBody());
+        assertEquals(HttpStatus.BAD_REQUEST, csv.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, empty.getStatusCode());
+        verify(buyService).uploadStream(any(InputStream.class), any(IngestReport.class));
+    }
+
+    @Test
+    void testUploadDocument_RunningUploadConflict() throws Exception {
+        when(buyService.uploadFile(any(), eq("buys.txt"), any(IngestReport.class)))
+                .thenThrow(new UploadInProgressException("File buys.txt is already being uploaded as buys.txt, try again later"));
+
+        ResponseEntity<?> response = buyController.uploadDocument(
+                new MockMultipartFile("file", "buys.txt", "text/plain", "0000000001".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals(new ConflictResponse("File buys.txt is already being uploaded as buys.txt, try again later",
+                "/buy/upload/"), response.getBody());
+    }
+
+    @Test
+    void testUploadStream_ReturnsUploadIdOfQuarantine() {
+        IngestReport report = new IngestReport("upload.txt", "upload-1");
+        report.addQuarantined(1);
+        when(buyService.uploadStream(any(InputStream.class), any(IngestReport.class))).thenReturn(report);
+        List<QuarantinedLine> lines = List.of(new QuarantinedLine("upload-1:2", "upload.txt", "upload-1", 2L, 26,
+                new byte[0], "Line too short", new Date()));
+        when(quarantineService.findByUploadId("upload-1", 100)).thenReturn(lines);
+
+        ResponseEntity<?> upload = buyController.uploadStream("upload.txt", null,
+                new ByteArrayInputStream(new byte[]{'x'}));
+        ResponseEntity<?> quarantine = buyController.getQuarantinedLines(
+                ((FileRequestResponse) upload.getBody()).getUploadId(), 100);
+
+        assertEquals(HttpStatus.OK, quarantine.getStatusCode());
+        assertSame(lines, quarantine.getBody());
+    }
+
+    @Test
+    void testUploadDocumentAsync_Accepted(@TempDir Path spoolDirectory) throws Exception {
+        Path spoolFile = Files.createTempFile(spoolDirectory, "upload-", ".txt");
+        UploadJob job = new UploadJob();
+        job.setJobId("job-1");
+        when(uploadJobService.createSpoolFile()).thenReturn(spoolFile);
+        when(uploadJobService.submit("buys.txt", spoolFile)).thenReturn(job);
+
+        ResponseEntity<?> response = buyController.uploadDocumentAsync(
+                new MockMultipartFile("file", "buys.txt", "text/plain", "0000000001".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(URI.create("/api/upload/jobs/job-1"), response.getHeaders().getLocation());
+        assertSame(job, response.getBody());
+        assertEquals("0000000001", Files.readString(spoolFile));
+    }
+
+    @Test
+    void testUploadDocumentAsync_QueueFull(@TempDir Path spoolDirectory) throws Exception {
+        when(uploadJobService.createSpoolFile()).thenReturn(Files.createTempFile(spoolDirectory, "upload-", ".txt"));
+        when(uploadJobService.submit(any(), any())).thenThrow(new TaskRejectedException("Queue full"));
+
+        ResponseEntity<?> response = buyController.uploadDocumentAsync(
+                new MockMultipartFile("file", "buys.txt", "text/plain", "0000000001".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals(new ServiceUnavailableResponse("Too many upload jobs waiting, try again later",
+                "/buy/upload/async/"), response.getBody());
+    }
+
+    @Test
+    void testOpenUploadSession_Created() throws Exception {
+        UploadSession session = new UploadSession();
+        session.setSessionId("session-1");
+        when(uploadSessionService.open("buys.txt", 1000, null)).thenReturn(session);
+
+        ResponseEntity<?> response = buyController.openUploadSession("buys.txt", 1000, null);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(URI.create("/api/upload/sessions/session-1"), response.getHeaders().getLocation());
+        assertSame(session, response.getBody());
+    }
+
+    @Test
+    void testOpenUploadSession_BadRequest() throws Exception {
+        when(uploadSessionService.open("buys.txt", 1000, 0L))
+                .thenThrow(new BadRequestException("Invalid chunk size. chunk size must be between 1 and 100"));
+
+        ResponseEntity<?> response = buyController.openUploadSession("buys.txt", 1000, 0L);
+        ResponseEntity<?> wrongFile = buyController.openUploadSession("buys.csv", 1000, null);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(new BadRequestResponse("Invalid chunk size. chunk size must be between 1 and 100",
+                "/upload/sessions"), response.getBody());
+        assertEquals(HttpStatus.BAD_REQUEST, wrongFile.getStatusCode());
+    }
+
+    @Test
+    void testUploadChunk_Responses() throws Exception {
+        UploadSession session = new UploadSession();
+        InputStream body = new ByteArrayInputStream(new byte[10]);
+        when(uploadSessionService.writeChunk("session-1", 0, body)).thenReturn(session);
+        when(uploadSessionService.writeChunk(eq("session-1"), eq(5), any()))
+                .thenThrow(new BadRequestException("Invalid chunk index 5, the session has 3 chunks"));
+        when(uploadSessionService.writeChunk(eq("gone"), anyInt(), any()))
+                .thenThrow(new ResourceNotFoundException("Upload session not found with ID: gone"));
+        when(uploadSessionService.writeChunk(eq("session-1"), eq(1), any())).thenThrow(new IOException("Broken pipe"));
+
+        ResponseEntity<?> received = buyController.uploadChunk("session-1", 0, body);
+        ResponseEntity<?> invalid = buyController.uploadChunk("session-1", 5, body);
+        ResponseEntity<?> notFound = buyController.uploadChunk("gone", 0, body);
+        ResponseEntity<?> broken = buyController.uploadChunk("session-1", 1, body);
+
+        assertEquals(HttpStatus.OK, received.getStatusCode());
+        assertSame(session, received.getBody());
+        assertEquals(new BadRequestResponse("Invalid chunk index 5, the session has 3 chunks",
+                "/upload/sessions/session-1/chunks/5"), invalid.getBody());
+        assertEquals(new NotFoundResponse("Upload session not found with ID: gone", "/upload/sessions/gone/chunks/0"),
+                notFound.getBody());
+        assertEquals(new InternalServerErrorResponse("Failed to receive chunk, send it again",
+                "/upload/sessions/session-1/chunks/1"), broken.getBody());
+    }
+
+    @Test
+    void testGetUploadSession_NotFound() {
+        UploadSession session = new UploadSession();
+        when(uploadSessionService.findById(anyString())).thenReturn(Optional.empty());
+        when(uploadSessionService.findById("session-1")).thenReturn(Optional.of(session));
+
+        assertSame(session, buyController.getUploadSession("session-1").getBody());
+        ResponseEntity<?> response = buyController.getUploadSession("gone");
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertEquals(new NotFoundResponse("Upload session not found with ID: gone", "/upload/sessions/gone"),
+                response.getBody());
+    }
+
+    @Test
+    void testCompleteUploadSession_Accepted() throws Exception {
+        UploadJob job = new UploadJob();
+        job.setJobId("job-1");
+        when(uploadSessionService.complete("session-1")).thenReturn(job);
+
+        ResponseEntity<?> response = buyController.completeUploadSession("session-1");
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(URI.create("/api/upload/jobs/job-1"), response.getHeaders().getLocation());
+        assertSame(job, response.getBody());
+    }
+
+    @Test
+    void testCompleteUploadSession_MissingChunksOrQueueFull() throws Exception {
+        when(uploadSessionService.complete("session-1"))
+                .thenThrow(new BadRequestException("Missing chunks of the session: [1]"))
+                .thenThrow(new TaskRejectedException("Queue full"));
+
+        ResponseEntity<?> missing = buyController.completeUploadSession("session-1");
+        ResponseEntity<?> queueFull = buyController.completeUploadSession("session-1");
+
+        assertEquals(new BadRequestResponse("Missing chunks of the session: [1]",
+                "/upload/sessions/session-1/complete"), missing.getBody());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, queueFull.getStatusCode());
+        assertEquals(new ServiceUnavailableResponse("Too many upload jobs waiting, upload the file again later",
+                "/upload/sessions/session-1/complete"), queueFull.getBody());
+    }
+}
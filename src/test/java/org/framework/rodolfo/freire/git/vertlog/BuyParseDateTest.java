@@ -0,0 +1,80 @@
+package org.framework.rodolfo.freire.git.vertlog;
+
+import org.framework.rodolfo.freire.git.vertlog.exception.BuyParseException;
+import org.framework.rodolfo.freire.git.vertlog.util.BuyParseDate;
+import org.junit.jupiter.api.Test;
+
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BuyParseDateTest {
+
+    @Test
+    void testParseDate_MatchesSimpleDateFormat() throws Exception {
+        SimpleDateFormat formatter = new SimpleDateFormat("yyyyMMdd");
+        formatter.setLenient(false);
+        LocalDate date = LocalDate.of(2019, 12, 1);
+        for (int i = 0; i < 3000; i++, date = date.plusDays(1)) {
+            String dateString = String.format("%04d%02d%02d", date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+            assertEquals(formatter.parse(dateString), BuyParseDate.parseDate(dateString));
+            assertEquals(date, BuyParseDate.parseLocalDate(dateString));
+        }
+    }
+
+    @Test
+    void testParseDateApi() throws Exception {
+        SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
+        formatter.setLenient(false);
+
+        assertEquals(formatter.parse("2023-01-31"), BuyParseDate.parseDateApi("2023-01-31"));
+        assertEquals(formatter.parse("2023-1-5"), BuyParseDate.parseDateApi("2023-1-5"));
+    }
+
+    @Test
+    void testParseDate_ReturnsIndependentInstances() {
+        assertNotSame(BuyParseDate.parseDate("20210308"), BuyParseDate.parseDate("20210308"));
+    }
+
+    @Test
+    void testParseDate_Invalid() {
+        assertThrows(BuyParseException.class, () -> BuyParseDate.parseDate("20230229"));
+        assertThrows(BuyParseException.class, () -> BuyParseDate.parseDate("2023-02-01"));
+        assertThrows(BuyParseException.class, () -> BuyParseDate.parseDate(null));
+        assertThrows(BuyParseException.class, () -> BuyParseDate.parseDateApi("invalid-date"));
+        assertThrows(BuyParseException.class, () -> BuyParseDate.parseDateApi("2023-13-01"));
+        assertThrows(BuyParseException.class, () -> BuyParseDate.toDate(20231301));
+    }
+
+    @Test
+    void testParseDate_Concurrent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                tasks.add(() -> {
+                    LocalDate date = LocalDate.of(2020, 1, 1);
+                    for (int i = 0; i < 20000; i++, date = date.plusDays(i % 7 == 0 ? 1 : 0)) {
+                        int key = date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+                        if (!BuyParseDate.parseLocalDate(String.valueOf(key)).equals(date)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                });
+            }
+            for (Future<Boolean> result : executor.invokeAll(tasks)) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
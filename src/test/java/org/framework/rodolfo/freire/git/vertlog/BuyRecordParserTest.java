@@ -0,0 +1,84 @@
+package org.framework.rodolfo.freire.git.vertlog;
+
+import org.framework.rodolfo.freire.git.vertlog.exception.BuyParseException;
+import org.framework.rodolfo.freire.git.vertlog.util.BuyParseDate;
+import org.framework.rodolfo.freire.git.vertlog.util.BuyRecord;
+import org.framework.rodolfo.freire.git.vertlog.util.BuyRecordParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BuyRecordParserTest {
+
+    private BuyRecordParser parser;
+    private BuyRecord record;
+
+    @BeforeEach
+    void setUp() {
+        parser = new BuyRecordParser();
+        record = new BuyRecord();
+    }
+
+    private void parse(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        parser.parse(bytes, 0, bytes.length, record);
+    }
+
+    @Test
+    void testParse() throws BuyParseException {
+        parse(FileServiceTest.line(70, "Palmer Prosacco", 753, 3, "1836.74", "20210308"));
+
+        assertEquals(70, record.getUserId());
+        assertEquals("Palmer Prosacco", record.getUserName());
+        assertEquals(753, record.getBuyId());
+        assertEquals(3, record.getProductId());
+        assertEquals(183674, record.getProductValue());
+        assertEquals(20210308, record.getDate());
+        assertEquals(BuyParseDate.parseDate("20210308"), BuyRecordParser.toDate(record));
+    }
+
+    @Test
+    void testParse_ReusesUserName() {
+        parse(FileServiceTest.line(70, "Palmer Prosacco", 753, 3, "1836.74", "20210308"));
+        String userName = record.getUserName();
+        parse(FileServiceTest.line(70, "Palmer Prosacco", 754, 4, "10", "20210309"));
+
+        assertSame(userName, record.getUserName());
+        assertEquals(1000, record.getProductValue());
+    }
+
+    @Test
+    void testParse_MultiByteName() {
+        parse(FileServiceTest.line(1, "Rodolfo Gonçalves", 2, 3, "0.99", "20240229"));
+
+        assertEquals("Rodolfo Gonçalves", record.getUserName());
+        assertEquals(2, record.getBuyId());
+        assertEquals(99, record.getProductValue());
+    }
+
+    @Test
+    void testParse_InvalidDate() {
+        assertThrows(BuyParseException.class,
+                () -> parse(FileServiceTest.line(1, "Sheldon Cooper", 2, 3, "1.00", "20230229")));
+    }
+
+    @Test
+    void testParse_InvalidNumber() {
+        assertThrows(BuyParseException.class,
+                () -> parse(FileServiceTest.line(1, "Sheldon Cooper", 2, 3, "1.0x", "20230228")));
+    }
+
+    @Test
+    void testParse_TooManyDecimals() {
+        assertThrows(BuyParseException.class,
+                () -> parse(FileServiceTest.line(1, "Sheldon Cooper", 2, 3, "1.005", "20230228")));
+    }
+
+    @Test
+    void testParse_ShortLine() {
+        assertThrows(BuyParseException.class, () -> parse("0000000001 Sheldon Cooper"));
+    }
+}
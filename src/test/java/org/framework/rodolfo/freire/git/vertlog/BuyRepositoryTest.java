@@ -0,0 +1,252 @@
+package org.framework.rodolfo.freire.git.vertlog;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+import org.framework.rodolfo.freire.git.vertlog.document.BuyOrder;
+import org.framework.rodolfo.freire.git.vertlog.document.Product;
+import org.framework.rodolfo.freire.git.vertlog.document.QuarantinedLine;
+import org.framework.rodolfo.freire.git.vertlog.exception.BuyParseException;
+import org.framework.rodolfo.freire.git.vertlog.repository.BulkSaveResult;
+import org.framework.rodolfo.freire.git.vertlog.repository.BuyRepository;
+import org.framework.rodolfo.freire.git.vertlog.repository.BuyRepositoryCustomImpl;
+import org.framework.rodolfo.freire.git.vertlog.repository.QuarantinedLineRepositoryCustomImpl;
+import org.framework.rodolfo.freire.git.vertlog.service.LineQuarantine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.DbCallback;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.aggregation.TypeBasedAggregationOperationContext;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BuyRepositoryTest {
+
+    private MongoTemplate mongoTemplate;
+    private BulkOperations orderOperations;
+    private BulkOperations lineOperations;
+    private BuyRepositoryCustomImpl buyRepository;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        orderOperations = mock(BulkOperations.class);
+        lineOperations = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.ORDERED), eq(Buy.class)))
+                .thenReturn(orderOperations, lineOperations);
+        BulkWriteResult orderResult = result(1);
+        when(orderOperations.execute()).thenReturn(orderResult);
+        buyRepository = new BuyRepositoryCustomImpl(mongoTemplate);
+    }
+
+    @Test
+    void testBulkMerge_LinesAlreadyStoredSkipped() {
+        // the first of the two lines is already stored, as after an interrupted upload or an overlapping file
+        BulkWriteResult lineResult = result(1);
+        when(lineOperations.execute()).thenReturn(lineResult);
+
+        BulkSaveResult result = buyRepository.bulkMerge(List.of(buy()));
+
+        assertEquals(1, result.getSkipped());
+        assertEquals(0, result.getFailed());
+        List<Query> queries = lineQueries(2);
+        assertEquals(storedLinesAtMost(7, 1, 0), queries.get(0).getQueryObject());
+        assertEquals(storedLinesAtMost(7, 2, 0), queries.get(1).getQueryObject());
+    }
+
+    @Test
+    void testBulkMerge_RepeatedProductKeyedOnOccurrence() {
+        List<Product> products = new ArrayList<>(List.of(new Product(1, 1050), new Product(1, 1050),
+                new Product(2, 725), new Product(1, 300)));
+        Buy buy = new Buy(3, "Sheldon Cooper", Set.of(new BuyOrder(7, 3125, new Date(0), products)));
+        BulkWriteResult lineResult = result(1);
+        when(lineOperations.execute()).thenReturn(lineResult);
+
+        BulkSaveResult result = buyRepository.bulkMerge(List.of(buy));
+
+        // a file continuing the order repeats its stored lines: only the next occurrence of product 1 is new
+        assertEquals(3, result.getSkipped());
+        List<Query> queries = lineQueries(4);
+        assertEquals(storedLinesAtMost(7, 1, 0), queries.get(0).getQueryObject());
+        assertEquals(storedLinesAtMost(7, 1, 1), queries.get(1).getQueryObject());
+        assertEquals(storedLinesAtMost(7, 2, 0), queries.get(2).getQueryObject());
+        assertEquals(storedLinesAtMost(7, 1, 2), queries.get(3).getQueryObject());
+    }
+
+    @Test
+    void testBulkMerge_OrderAndLineUpdates() {
+        BulkWriteResult lineResult = result(2);
+        when(lineOperations.execute()).thenReturn(lineResult);
+
+        buyRepository.bulkMerge(List.of(buy()));
+
+        // the user and its order are created empty when missing, then every line is pushed and added to the total
+        ArgumentCaptor<Update> userUpdate = ArgumentCaptor.forClass(Update.class);
+        verify(orderOperations).upsert(any(Query.class), userUpdate.capture());
+        assertEquals(new Document("userName", "Sheldon Cooper"), userUpdate.getValue().getUpdateObject()
+                .get("$set", Document.class));
+        assertEquals(new Document("orders", List.of()), userUpdate.getValue().getUpdateObject()
+                .get("$setOnInsert", Document.class));
+        ArgumentCaptor<Query> orderQuery = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> orderUpdate = ArgumentCaptor.forClass(Update.class);
+        verify(orderOperations).updateOne(orderQuery.capture(), orderUpdate.capture());
+        assertEquals(new Document("_id", 3).append("orders._id", new Document("$ne", 7)),
+                orderQuery.getValue().getQueryObject());
+        assertEquals(new BuyOrder(7, 0, new Date(0), new ArrayList<>()), orderUpdate.getValue().getUpdateObject()
+                .get("$push", Document.class).get("orders"));
+        List<Update> updates = lineUpdates(2);
+        assertEquals(new Product(1, 1050), updates.get(0).getUpdateObject().get("$push", Document.class)
+                .get("orders.$[order].products"));
+        assertEquals(new Document("orders.$[order].total", new Decimal128(new BigDecimal("10.50"))),
+                updates.get(0).getUpdateObject().get("$inc", Document.class));
+        assertEquals(new Product(2, 725), updates.get(1).getUpdateObject().get("$push", Document.class)
+                .get("orders.$[order].products"));
+        assertEquals(new Document("orders.$[order].total", new Decimal128(new BigDecimal("7.25"))),
+                updates.get(1).getUpdateObject().get("$inc", Document.class));
+    }
+
+    @Test
+    void testFindPageAfter_FirstPageWithoutLowerBound() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+
+        buyRepository.findPageAfter(null, 2);
+        buyRepository.findPageAfter(-5, 2);
+
+        verify(mongoTemplate, times(2)).find(query.capture(), eq(Buy.class));
+        assertTrue(query.getAllValues().get(0).getQueryObject().isEmpty());
+        assertEquals(new Document("_id", new Document("$gt", -5)), query.getAllValues().get(1).getQueryObject());
+        for (Query page : query.getAllValues()) {
+            assertEquals(new Document("_id", 1), page.getSortObject());
+            assertEquals(2, page.getLimit());
+        }
+    }
+
+    @Test
+    void testFindByDate_AggregationStages() {
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        // the parameters of the pipeline are bound with the codecs of the database
+        when(mongoTemplate.execute(any(DbCallback.class))).thenReturn(MongoClientSettings.getDefaultCodecRegistry());
+        List<Buy> found = List.of(buy());
+        when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(Buy.class)))
+                .thenReturn(new AggregationResults<>(found, new Document()));
+        BuyRepository repository = new MongoRepositoryFactory(mongoTemplate)
+                .getRepository(BuyRepository.class, RepositoryComposition.RepositoryFragments.just(buyRepository));
+        Date start = new Date(1_614_556_800_000L);
+        Date end = new Date(1_614_988_800_000L);
+
+        assertEquals(found, repository.findByDate(start, end));
+
+        ArgumentCaptor<TypedAggregation<?>> aggregation = ArgumentCaptor.forClass(TypedAggregation.class);
+        verify(mongoTemplate).aggregate(aggregation.capture(), eq(Buy.class));
+        assertEquals(Buy.class, aggregation.getValue().getInputType());
+        List<Document> stages = aggregation.getValue().toPipeline(
+                new TypeBasedAggregationOperationContext(Buy.class, mappingContext, new QueryMapper(converter)));
+        assertEquals(3, stages.size());
+        // both ends of the range bound the indexed orders.date through one $elemMatch
+        Document range = new Document("$gte", start).append("$lte", end);
+        assertEquals(new Document("orders", new Document("$elemMatch", new Document("date", range))),
+                stages.get(0).get("$match"));
+        Document filter = stages.get(1).get("$addFields", Document.class).get("orders", Document.class)
+                .get("$filter", Document.class);
+        assertEquals("$orders", filter.get("input"));
+        assertEquals("order", filter.get("as"));
+        assertEquals(new Document("$and", List.of(new Document("$gte", List.of("$$order.date", start)),
+                new Document("$lte", List.of("$$order.date", end)))), filter.get("cond"));
+        assertEquals(new Document("$sort", new Document("_id", 1)), stages.get(2));
+    }
+
+    @Test
+    void testBulkUpsert_QuarantinedLinesKeyedByUploadAndLine() {
+        BulkOperations quarantineOperations = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(QuarantinedLine.class)))
+                .thenReturn(quarantineOperations);
+        List<QuarantinedLine> quarantined = new ArrayList<>();
+        LineQuarantine quarantine = new LineQuarantine("buys.txt", "upload-1", 5, quarantined::addAll);
+        byte[] malformed = "0000000001 Sheldon Cooper".getBytes(StandardCharsets.UTF_8);
+        quarantine.reject(4, 291, malformed, 0, malformed.length, new BuyParseException(0, "Line too short"));
+        quarantine.flush();
+
+        new QuarantinedLineRepositoryCustomImpl(mongoTemplate).bulkUpsert(quarantined);
+
+        // a resumed upload replaces its quarantined lines instead of adding them twice
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(quarantineOperations).replaceOne(query.capture(), eq(quarantined.get(0)),
+                any(FindAndReplaceOptions.class));
+        assertEquals(new Document("_id", "upload-1:4"), query.getValue().getQueryObject());
+        verify(quarantineOperations).execute();
+    }
+
+    private List<Update> lineUpdates(int count) {
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(lineOperations, times(count)).updateOne(any(Query.class), update.capture());
+        for (Update lineUpdate : update.getAllValues()) {
+            assertEquals(1, lineUpdate.getArrayFilters().size());
+            assertEquals(new Document("order._id", 7), lineUpdate.getArrayFilters().get(0).asDocument());
+        }
+        return update.getAllValues();
+    }
+
+    private List<Query> lineQueries(int count) {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(lineOperations, times(count)).updateOne(query.capture(), any(Update.class));
+        return query.getAllValues();
+    }
+
+    /**
+     * The filter of user 3 while the order holds at most `occurrence` lines of the product.
+     */
+    private static Document storedLinesAtMost(int buyId, int productId, int occurrence) {
+        Document order = new Document("$filter", new Document("input", "$orders").append("as", "order")
+                .append("cond", new Document("$eq", List.of("$$order._id", buyId))));
+        Document orderLines = new Document("$reduce", new Document("input", order).append("initialValue", List.of())
+                .append("in", new Document("$concatArrays", List.of("$$value", "$$this.products"))));
+        Document storedLines = new Document("$size", new Document("$filter", new Document("input", orderLines)
+                .append("as", "product")
+                .append("cond", new Document("$eq", List.of("$$product._id", productId)))));
+        return new Document("_id", 3).append("$expr", new Document("$lte", List.of(storedLines, occurrence)));
+    }
+
+    private static Buy buy() {
+        List<Product> products = new ArrayList<>(List.of(new Product(1, 1050), new Product(2, 725)));
+        return new Buy(3, "Sheldon Cooper", Set.of(new BuyOrder(7, 1775, new Date(0), products)));
+    }
+
+    private static BulkWriteResult result(int modified) {
+        BulkWriteResult result = mock(BulkWriteResult.class);
+        when(result.getMatchedCount()).thenReturn(1);
+        when(result.getModifiedCount()).thenReturn(modified);
+        when(result.getUpserts()).thenReturn(List.of());
+        return result;
+    }
+}
@@ -1,27 +1,105 @@
 package org.framework.rodolfo.freire.git.vertlog;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.framework.rodolfo.freire.git.vertlog.configuration.IngestMode;
+import org.framework.rodolfo.freire.git.vertlog.configuration.IngestWriteMode;
+import org.framework.rodolfo.freire.git.vertlog.configuration.PropertiesIngest;
 import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+import org.framework.rodolfo.freire.git.vertlog.document.BuyOrder;
+import org.framework.rodolfo.freire.git.vertlog.document.QuarantinedLine;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadFingerprint;
+import org.framework.rodolfo.freire.git.vertlog.exception.BuyParseException;
+import org.framework.rodolfo.freire.git.vertlog.repository.BulkSaveResult;
 import org.framework.rodolfo.freire.git.vertlog.repository.BuyRepository;
+import org.framework.rodolfo.freire.git.vertlog.repository.PreparedBuys;
+import org.framework.rodolfo.freire.git.vertlog.service.BuyCache;
 import org.framework.rodolfo.freire.git.vertlog.service.BuyService;
+import org.framework.rodolfo.freire.git.vertlog.service.FileService;
+import org.framework.rodolfo.freire.git.vertlog.service.IngestCheckpoint;
+import org.framework.rodolfo.freire.git.vertlog.service.IngestMetrics;
+import org.framework.rodolfo.freire.git.vertlog.service.IngestProgressLogger;
+import org.framework.rodolfo.freire.git.vertlog.service.IngestReport;
+import org.framework.rodolfo.freire.git.vertlog.service.LineQuarantine;
+import org.framework.rodolfo.freire.git.vertlog.service.QuarantineService;
+import org.framework.rodolfo.freire.git.vertlog.service.UploadFingerprintService;
+import org.framework.rodolfo.freire.git.vertlog.util.FileFingerprint;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.util.unit.DataSize;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class BuyServiceTest {
 
+    private static final String SHELDON = FileServiceTest.line(1, "Sheldon Cooper", 10, 100, "10.50", "20210301");
+    private static final String SHELDON_LATER = FileServiceTest.line(1, "Sheldon Cooper", 11, 101, "4.50", "20210310");
+    private static final String LEONARD = FileServiceTest.line(2, "Leonard Hofstadter", 20, 200, "7.25", "20210303");
+    private static final String LEONARD_BAD_DATE =
+            FileServiceTest.line(2, "Leonard Hofstadter", 20, 200, "7.25", "20211399");
+    private static final String HOWARD = FileServiceTest.line(3, "Howard Wolowitz", 30, 300, "3.00", "20210304");
+
     @Mock
     private BuyRepository buyRepository;
 
+    @Mock
+    private PropertiesIngest propertiesIngest;
+
+    @Mock
+    private UploadFingerprintService uploadFingerprintService;
+
+    @Mock
+    private QuarantineService quarantineService;
+
+    @Spy
+    private BuyCache buyCache = new BuyCache(100, Duration.ofMinutes(5));
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private IngestMetrics ingestMetrics = new IngestMetrics(meterRegistry);
 
     @InjectMocks
     private BuyService buyService;
@@ -29,6 +107,8 @@ public class BuyServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.initMocks(this);
+        when(quarantineService.open(any(), any())).thenReturn(LineQuarantine.strict());
+        when(propertiesIngest.getProgressInterval()).thenReturn(Duration.ZERO);
     }
 
     @Test
@@ -84,4 +164,378 @@ public class BuyServiceTest {
 
         assertEquals(buyToSave, result);
     }
+
+    @Test
+    void testSaveProcessor_BulkBatches() {
+        when(propertiesIngest.getBulkBatchSize()).thenReturn(2);
+        when(buyRepository.bulkUpsert(anyList(), eq(false)))
+                .thenReturn(new BulkSaveResult(1, 1, 0))
+                .thenReturn(new BulkSaveResult(0, 0, 1));
+
+        IngestReport report = buyService.saveProcessor(buys(3));
+
+        verify(buyRepository, times(2)).bulkUpsert(anyList(), eq(false));
+        assertEquals(1, report.getInserted());
+        assertEquals(1, report.getUpdated());
+        assertEquals(1, report.getFailed());
+    }
+
+    @Test
+    void testSaveProcessor_PreparedAhead() {
+        stubIngest(IngestMode.MAP, IngestWriteMode.REPLACE);
+        when(propertiesIngest.getPrepareAhead()).thenReturn(2);
+        when(buyRepository.prepareUpsert(anyList()))
+                .thenAnswer(invocation -> new PreparedBuys(invocation.getArgument(0), List.of(new Document())));
+        when(buyRepository.bulkUpsert(any(PreparedBuys.class), eq(false))).thenReturn(new BulkSaveResult(1, 0, 0));
+
+        IngestReport report = ingestService().saveProcessor(buys(5));
+
+        ArgumentCaptor<PreparedBuys> written = ArgumentCaptor.forClass(PreparedBuys.class);
+        verify(buyRepository, times(5)).prepareUpsert(anyList());
+        verify(buyRepository, times(5)).bulkUpsert(written.capture(), eq(false));
+        verify(buyRepository, never()).bulkUpsert(anyList(), anyBoolean());
+        assertEquals(List.of(1, 2, 3, 4, 5),
+                written.getAllValues().stream().map(prepared -> prepared.getBuys().get(0).getUserId()).toList());
+        assertEquals(5, report.getInserted());
+    }
+
+    @Test
+    void testSaveProcessor_PreparationFailureAwaitsWrites() {
+        stubIngest(IngestMode.MAP, IngestWriteMode.REPLACE);
+        when(propertiesIngest.getPrepareAhead()).thenReturn(2);
+        when(propertiesIngest.getSaveConcurrency()).thenReturn(2);
+        when(buyRepository.prepareUpsert(anyList())).thenAnswer(invocation -> {
+            List<Buy> batch = invocation.getArgument(0);
+            if (batch.get(0).getUserId() == 3) {
+                throw new IllegalStateException("Unconvertible buy");
+            }
+            return new PreparedBuys(batch, List.of(new Document()));
+        });
+        List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+        when(buyRepository.bulkUpsert(any(PreparedBuys.class), eq(false))).thenAnswer(invocation -> {
+            Thread.sleep(100);
+            written.add(invocation.<PreparedBuys>getArgument(0).getBuys().get(0).getUserId());
+            return new BulkSaveResult(1, 0, 0);
+        });
+        BuyService concurrentService = ingestService(new SimpleAsyncTaskExecutor("test-save-"));
+
+        assertThrows(IllegalStateException.class, () -> concurrentService.saveProcessor(buys(3)));
+
+        // the writes started before the failure ended before it was thrown
+        assertEquals(List.of(1, 2), written.stream().sorted().toList());
+    }
+
+    @Test
+    void testUploadFile_PipelineMatchesMap() {
+        String[] lines = new String[60];
+        for (int i = 0; i < lines.length; i++) {
+            int userId = i / 7 + 1;
+            lines[i] = FileServiceTest.line(userId, "User " + userId, userId * 10 + i % 3, i, (i + 1) + ".25",
+                    "202103" + String.format("%02d", i % 28 + 1));
+        }
+        stubIngest(IngestMode.PIPELINE, IngestWriteMode.REPLACE);
+        when(propertiesIngest.getPipelineBlockSize()).thenReturn(DataSize.ofBytes(150));
+        when(propertiesIngest.getBulkBatchSize()).thenReturn(2);
+        List<Buy> written = Collections.synchronizedList(new ArrayList<>());
+        when(buyRepository.bulkUpsert(anyList(), eq(false))).thenAnswer(invocation -> {
+            List<Buy> batch = invocation.getArgument(0);
+            written.addAll(batch);
+            return new BulkSaveResult(batch.size(), 0, 0);
+        });
+
+        IngestReport report = ingestService().uploadFile(FileServiceTest.file(lines));
+
+        Map<Integer, Buy> expected = new FileService(ForkJoinPool.commonPool())
+                .parserFileToMap(FileServiceTest.file(lines));
+        assertEquals(60, report.getLines());
+        assertEquals(expected.size(), report.getInserted());
+        assertEquals(1, meterRegistry.get("vertlog.ingest.process").tag("mode", "pipeline").timer().count());
+        assertEquals(expected.keySet(), written.stream().map(Buy::getUserId).collect(Collectors.toSet()));
+        for (Buy buy : written) {
+            Buy expectedBuy = expected.get(buy.getUserId());
+            assertEquals(expectedBuy.getUserName(), buy.getUserName());
+            assertEquals(totals(expectedBuy), totals(buy));
+        }
+    }
+
+    @Test
+    void testUploadFile_PipelineParseFailure() {
+        stubIngest(IngestMode.PIPELINE, IngestWriteMode.REPLACE);
+        recordWrites();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(BuyParseException.class,
+                () -> ingestService().uploadFile(FileServiceTest.file(SHELDON, LEONARD_BAD_DATE, HOWARD))));
+    }
+
+    @Test
+    void testUploadFile_PipelineQuarantinesNumberedLines() {
+        // blocks of about two lines, with an empty line counted like the legacy export numbers it
+        InputStream content = FileServiceTest.file(SHELDON, SHELDON, "", SHELDON, LEONARD_BAD_DATE,
+                SHELDON.substring(0, 40), HOWARD);
+        stubIngest(IngestMode.PIPELINE, IngestWriteMode.REPLACE);
+        when(propertiesIngest.getPipelineBlockSize()).thenReturn(DataSize.ofBytes(200));
+        when(propertiesIngest.getBulkBatchSize()).thenReturn(10);
+        recordWrites();
+        List<QuarantinedLine> quarantined = new ArrayList<>();
+        when(quarantineService.open(any(), anyString())).thenAnswer(invocation ->
+                new LineQuarantine("buys.txt", invocation.getArgument(1), 5, quarantined::addAll));
+
+        IngestReport report = ingestService().uploadFile(content);
+
+        assertEquals(4, report.getLines());
+        assertEquals(2, report.getQuarantined());
+        assertEquals(List.of(5L, 6L), quarantined.stream().map(QuarantinedLine::getLineNumber).toList());
+        assertEquals(List.of(report.getUploadId() + ":5", report.getUploadId() + ":6"),
+                quarantined.stream().map(QuarantinedLine::getId).toList());
+        assertEquals(LEONARD_BAD_DATE, new String(quarantined.get(0).getRaw(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testUploadStream_SameFileNameQuarantinedApart() {
+        stubIngest(IngestMode.STREAMING, IngestWriteMode.REPLACE);
+        recordWrites();
+        List<QuarantinedLine> quarantined = new ArrayList<>();
+        when(quarantineService.open(any(), anyString())).thenAnswer(invocation ->
+                new LineQuarantine("upload.txt", invocation.getArgument(1), 5, quarantined::addAll));
+
+        IngestReport first = ingestService().uploadStream(FileServiceTest.file(SHELDON, LEONARD_BAD_DATE),
+                new IngestReport("upload.txt"));
+        IngestReport second = ingestService().uploadStream(FileServiceTest.file(SHELDON, LEONARD_BAD_DATE),
+                new IngestReport("upload.txt"));
+
+        // both uploads keep their own record of line 2 instead of the second replacing the first
+        assertEquals(List.of(first.getUploadId() + ":2", second.getUploadId() + ":2"),
+                quarantined.stream().map(QuarantinedLine::getId).toList());
+        assertEquals(2, quarantined.stream().map(QuarantinedLine::getId).distinct().count());
+    }
+
+    @Test
+    void testUploadFile_PipelineUserNotContiguous() {
+        stubIngest(IngestMode.PIPELINE, IngestWriteMode.REPLACE);
+        recordWrites();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(BuyParseException.class,
+                () -> ingestService().uploadFile(FileServiceTest.file(SHELDON, LEONARD, SHELDON_LATER))));
+    }
+
+    @Test
+    void testFindById_CachedUntilSaved() {
+        Buy buy = new Buy();
+        buy.setUserId(7);
+        when(buyRepository.findById(7)).thenReturn(Optional.of(buy));
+        when(propertiesIngest.getBulkBatchSize()).thenReturn(10);
+        when(buyRepository.bulkUpsert(anyList(), eq(false))).thenReturn(new BulkSaveResult(0, 1, 0));
+
+        buyService.findById(7);
+        buyService.findById(7);
+        verify(buyRepository, times(1)).findById(7);
+
+        buyService.saveProcessor(Map.of(7, buy));
+        buyService.findById(7);
+        verify(buyRepository, times(2)).findById(7);
+    }
+
+    @Test
+    void testSaveProcessor_MergeMode() {
+        Buy buy = new Buy();
+        buy.setUserId(1);
+        when(propertiesIngest.getBulkBatchSize()).thenReturn(10);
+        when(propertiesIngest.getWriteMode()).thenReturn(IngestWriteMode.MERGE);
+        when(buyRepository.bulkMerge(anyList())).thenReturn(new BulkSaveResult(0, 1, 0));
+
+        IngestReport report = buyService.saveProcessor(Map.of(1, buy));
+
+        ArgumentCaptor<List<Buy>> batch = ArgumentCaptor.forClass(List.class);
+        verify(buyRepository).bulkMerge(batch.capture());
+        assertEquals(List.of(buy), batch.getValue());
+        verify(buyRepository, never()).bulkUpsert(anyList(), anyBoolean());
+        assertEquals(1, report.getUpdated());
+    }
+
+    @Test
+    void testUploadStream_MergeResentSkipsStoredLines() {
+        stubIngest(IngestMode.STREAMING, IngestWriteMode.MERGE);
+        // stands for the content-based merge: lines already stored are left out and reported as skipped
+        Set<Integer> stored = new HashSet<>();
+        when(buyRepository.bulkMerge(anyList())).thenAnswer(invocation -> {
+            int inserted = 0;
+            int skipped = 0;
+            for (Buy buy : invocation.<List<Buy>>getArgument(0)) {
+                if (stored.add(buy.getUserId())) {
+                    inserted++;
+                } else {
+                    skipped += buy.getOrders().stream().mapToInt(order -> order.getProducts().size()).sum();
+                }
+            }
+            return new BulkSaveResult(inserted, 0, 0, Set.of(), skipped);
+        });
+
+        IngestReport first = ingestService().uploadStream(FileServiceTest.file(SHELDON, LEONARD), new IngestReport());
+        IngestReport second = ingestService().uploadStream(FileServiceTest.file(SHELDON, LEONARD), new IngestReport());
+
+        // a streamed body is not fingerprinted, yet sending it again adds nothing in MERGE mode
+        assertEquals(2, first.getInserted());
+        assertEquals(0, second.getInserted());
+        assertEquals(2, second.getSkipped());
+        verify(buyRepository, never()).bulkUpsert(anyList(), anyBoolean());
+        verify(uploadFingerprintService, never()).register(anyString(), anyString());
+    }
+
+    @Test
+    void testUploadFile_CheckpointsAfterAcknowledgedWrites() {
+        stubIngest(IngestMode.STREAMING, IngestWriteMode.REPLACE);
+        when(propertiesIngest.getCheckpointInterval()).thenReturn(DataSize.ofBytes(1));
+        List<Integer> written = recordWrites();
+        Map<Long, List<Integer>> writtenAtCheckpoint = new LinkedHashMap<>();
+
+        ingestService().uploadFile(FileServiceTest.file(SHELDON, LEONARD, HOWARD), new IngestReport(),
+                IngestCheckpoint.START,
+                checkpoint -> writtenAtCheckpoint.put(checkpoint.getLineNumber(), List.copyOf(written)));
+
+        assertEquals(Map.of(1L, List.of(1), 2L, List.of(1, 2), 3L, List.of(1, 2, 3)), writtenAtCheckpoint);
+    }
+
+    @Test
+    void testResumeFile_ClaimedFingerprintNotDuplicate() throws Exception {
+        byte[] content = (SHELDON + "\n" + LEONARD).getBytes(StandardCharsets.UTF_8);
+        stubIngest(IngestMode.MAP, IngestWriteMode.REPLACE);
+        when(propertiesIngest.isFingerprintEnabled()).thenReturn(true);
+        List<Integer> written = recordWrites();
+        IngestReport report = new IngestReport();
+
+        ingestService().resumeFile(new ByteArrayResource(content), "a.txt", report,
+                new IngestCheckpoint(SHELDON.length() + 1, 1, 1), null);
+
+        assertFalse(report.isDuplicate());
+        assertEquals(List.of(2), written);
+        // the claim of the interrupted processing may be recent: it is taken over, never refused as in progress
+        verify(uploadFingerprintService).resume(anyString(), eq("a.txt"));
+        verify(uploadFingerprintService, never()).register(anyString(), anyString());
+        verify(uploadFingerprintService).complete(anyString(), eq(1L));
+    }
+
+    @Test
+    void testUploadFile_DuplicateSkipped() throws Exception {
+        when(propertiesIngest.isFingerprintEnabled()).thenReturn(true);
+        when(uploadFingerprintService.register(anyString(), eq("a.txt")))
+                .thenReturn(Optional.of(new UploadFingerprint("hash", "a.txt", new Date(), true, 4, new Date())));
+
+        IngestReport report = buyService.uploadFile(new ByteArrayResource("content".getBytes()), "a.txt",
+                new IngestReport());
+
+        assertTrue(report.isDuplicate());
+        assertEquals(4, report.getSkipped());
+        verify(buyRepository, never()).bulkUpsert(anyList(), anyBoolean());
+    }
+
+    @Test
+    void testUploadFile_GzipFingerprintedDecompressed() throws Exception {
+        byte[] content = "content".getBytes();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream outputStream = new GZIPOutputStream(compressed)) {
+            outputStream.write(content);
+        }
+        when(propertiesIngest.isFingerprintEnabled()).thenReturn(true);
+        when(uploadFingerprintService.register(anyString(), eq("a.txt.gz")))
+                .thenReturn(Optional.of(new UploadFingerprint("hash", "a.txt", new Date(), true, 4, new Date())));
+
+        buyService.uploadFile(new ByteArrayResource(compressed.toByteArray()), "a.txt.gz", new IngestReport());
+
+        verify(uploadFingerprintService).register(FileFingerprint.sha256(new ByteArrayInputStream(content)),
+                "a.txt.gz");
+    }
+
+    @Test
+    void testUploadStream_SavesBeforeEndOfBody() {
+        byte[] head = (SHELDON + "\n" + LEONARD + "\n").getBytes(StandardCharsets.UTF_8);
+        byte[] tail = HOWARD.getBytes(StandardCharsets.UTF_8);
+        stubIngest(IngestMode.MAP, IngestWriteMode.REPLACE);
+        List<Integer> written = recordWrites();
+        List<Integer> writtenBeforeTail = new ArrayList<>();
+        InputStream body = new SequenceInputStream(new ByteArrayInputStream(head), new ByteArrayInputStream(tail) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                if (pos == 0) {
+                    writtenBeforeTail.addAll(written);
+                }
+                return super.read(b, off, len);
+            }
+        });
+
+        IngestReport report = ingestService().uploadStream(body, new IngestReport());
+
+        assertEquals(List.of(1), writtenBeforeTail);
+        assertEquals(List.of(1, 2, 3), written);
+        assertEquals(3, report.getInserted());
+        assertEquals(1, meterRegistry.get("vertlog.ingest.process").tag("mode", "streaming").timer().count());
+        assertEquals(0, meterRegistry.get("vertlog.ingest.process").tag("mode", "pipeline").timer().count());
+    }
+
+    @Test
+    void testUploadStream_UserNotContiguousInMapMode() {
+        stubIngest(IngestMode.MAP, IngestWriteMode.REPLACE);
+        recordWrites();
+
+        // the body is streamed even though MAP is configured, so the second part of user 1 cannot be grouped
+        assertThrows(BuyParseException.class, () -> ingestService()
+                .uploadStream(FileServiceTest.file(SHELDON, LEONARD, SHELDON_LATER), new IngestReport()));
+    }
+
+    /**
+     * Stubs the settings of an ingest writing every buy on its own: one buy per chunk and per bulk write, blocks of
+     * about one line, queues of one item and no checkpoint. A test stubs again the settings it depends on.
+     */
+    private void stubIngest(IngestMode mode, IngestWriteMode writeMode) {
+        when(propertiesIngest.getMode()).thenReturn(mode);
+        when(propertiesIngest.getWriteMode()).thenReturn(writeMode);
+        when(propertiesIngest.getChunkSize()).thenReturn(1);
+        when(propertiesIngest.getBulkBatchSize()).thenReturn(1);
+        when(propertiesIngest.getCheckpointInterval()).thenReturn(DataSize.ofBytes(0));
+        when(propertiesIngest.getPipelineBlockSize()).thenReturn(DataSize.ofBytes(100));
+        when(propertiesIngest.getPipelineParseQueueCapacity()).thenReturn(1);
+        when(propertiesIngest.getPipelineWriteQueueCapacity()).thenReturn(1);
+    }
+
+    /**
+     * Acknowledges every bulk upsert of unprepared buys as inserts.
+     *
+     * @return The users written, in the order of the writes.
+     */
+    private List<Integer> recordWrites() {
+        List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+        when(buyRepository.bulkUpsert(anyList(), eq(false))).thenAnswer(invocation -> {
+            List<Buy> batch = invocation.getArgument(0);
+            batch.forEach(buy -> written.add(buy.getUserId()));
+            return new BulkSaveResult(batch.size(), 0, 0);
+        });
+        return written;
+    }
+
+    private BuyService ingestService() {
+        return ingestService(new SyncTaskExecutor());
+    }
+
+    /**
+     * Creates a service with a real parser, stage executor and progress logger.
+     */
+    private BuyService ingestService(TaskExecutor ingestSaveExecutor) {
+        return new BuyService(buyRepository, new FileService(ForkJoinPool.commonPool()),
+                propertiesIngest, ingestSaveExecutor, ForkJoinPool.commonPool(),
+                new SimpleAsyncTaskExecutor("test-stage-"), buyCache, uploadFingerprintService,
+                quarantineService, new IngestProgressLogger(propertiesIngest), ingestMetrics);
+    }
+
+    private static Map<Integer, Buy> buys(int users) {
+        Map<Integer, Buy> buysMap = new TreeMap<>();
+        for (int userId = 1; userId <= users; userId++) {
+            Buy buy = new Buy();
+            buy.setUserId(userId);
+            buysMap.put(userId, buy);
+        }
+        return buysMap;
+    }
+
+    private static Map<Integer, Long> totals(Buy buy) {
+        return buy.getOrders().stream().collect(Collectors.toMap(BuyOrder::getBuyId, BuyOrder::getTotal));
+    }
 }
@@ -0,0 +1,57 @@
+package org.framework.rodolfo.freire.git.vertlog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.bson.types.Decimal128;
+import org.framework.rodolfo.freire.git.vertlog.document.BuyOrder;
+import org.framework.rodolfo.freire.git.vertlog.document.Product;
+import org.framework.rodolfo.freire.git.vertlog.util.Cents;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CentsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testJson_WritesDecimalAmounts() throws Exception {
+        BuyOrder order = new BuyOrder(10, 102498, null, List.of(new Product(1, 102448), new Product(2, 50)));
+
+        String json = objectMapper.writeValueAsString(order);
+
+        assertTrue(json.contains("\"total\":1024.98"), json);
+        assertTrue(json.contains("\"value\":1024.48"), json);
+        assertTrue(json.contains("\"value\":0.50"), json);
+    }
+
+    @Test
+    void testJson_ReadsDecimalAmounts() throws Exception {
+        Product product = objectMapper.readValue("{\"product_id\":1,\"value\":1024.4}", Product.class);
+
+        assertEquals(102440, product.getProductValue());
+        assertThrows(InvalidFormatException.class,
+                () -> objectMapper.readValue("{\"product_id\":1,\"value\":1.005}", Product.class));
+    }
+
+    @Test
+    void testFromStored() {
+        assertEquals(102448, Cents.fromStored(new Decimal128(new BigDecimal("1024.48"))));
+        // documents written before the amounts were stored as Decimal128
+        assertEquals(1836, Cents.fromStored(18.36));
+        assertEquals(1500, Cents.fromStored(15));
+    }
+
+    @Test
+    void testMongoConverter_WritesDecimal128() {
+        Cents.MongoConverter converter = new Cents.MongoConverter();
+        Decimal128 stored = new Decimal128(new BigDecimal("7.25"));
+
+        assertEquals(stored, converter.write(725L, null));
+        assertSame(stored, converter.write(stored, null));
+        assertEquals(725L, converter.read(stored, null));
+    }
+}
@@ -0,0 +1,310 @@
+package org.framework.rodolfo.freire.git.vertlog;
+
+import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+import org.framework.rodolfo.freire.git.vertlog.document.BuyOrder;
+import org.framework.rodolfo.freire.git.vertlog.document.QuarantinedLine;
+import org.framework.rodolfo.freire.git.vertlog.exception.BuyParseException;
+import org.framework.rodolfo.freire.git.vertlog.service.BuyColumns;
+import org.framework.rodolfo.freire.git.vertlog.service.FileService;
+import org.framework.rodolfo.freire.git.vertlog.service.IngestCheckpoint;
+import org.framework.rodolfo.freire.git.vertlog.service.IngestReport;
+import org.framework.rodolfo.freire.git.vertlog.service.LineQuarantine;
+import org.framework.rodolfo.freire.git.vertlog.util.Cents;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileServiceTest {
+
+    private FileService fileService;
+
+    @BeforeEach
+    void setUp() {
+        fileService = new FileService(ForkJoinPool.commonPool());
+    }
+
+    static String line(int userId, String name, int buyId, int productId, String value, String date) {
+        return String.format("%010d %44s %09d %09d %10s %8s", userId, name, buyId, productId, value, date);
+    }
+
+    static InputStream file(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static InputStream sample() {
+        return file(
+                line(1, "Sheldon Cooper", 10, 100, "10.50", "20210301"),
+                line(1, "Sheldon Cooper", 10, 101, "4.50", "20210301"),
+                line(1, "Sheldon Cooper", 11, 100, "1.00", "20210302"),
+                line(2, "Leonard Hofstadter", 20, 200, "7.25", "20210303"),
+                line(3, "Howard Wolowitz", 30, 300, "3.00", "20210304"));
+    }
+
+    @Test
+    void testParserFileToMap() {
+        Map<Integer, Buy> buys = fileService.parserFileToMap(sample());
+
+        assertEquals(3, buys.size());
+        assertEquals("Sheldon Cooper", buys.get(1).getUserName());
+        assertEquals(2, buys.get(1).getOrders().size());
+        assertEquals(1, buys.get(3).getOrders().size());
+    }
+
+    @Test
+    void testParserFileToChunks() {
+        List<List<Buy>> chunks = new ArrayList<>();
+
+        long lines = fileService.parserFileToChunks(sample(), 2, chunk -> chunks.add(new ArrayList<>(chunk)));
+
+        assertEquals(5, lines);
+        assertEquals(2, chunks.size());
+        assertEquals(2, chunks.get(0).size());
+        assertEquals(1, chunks.get(1).size());
+
+        Buy sheldon = chunks.get(0).get(0);
+        assertEquals(1, sheldon.getUserId());
+        assertEquals(2, sheldon.getOrders().size());
+        BuyOrder order = sheldon.getOrders().stream().filter(o -> o.getBuyId() == 10).findFirst().orElseThrow();
+        assertEquals(2, order.getProducts().size());
+        assertEquals(1500, order.getTotal());
+        assertEquals(3, chunks.get(1).get(0).getUserId());
+    }
+
+    @Test
+    void testParserFileToChunks_ResumesFromCheckpoint() throws IOException {
+        byte[] bytes = String.join("\n",
+                line(1, "Sheldon Cooper", 10, 100, "10.50", "20210301"),
+                line(1, "Sheldon Cooper", 10, 101, "4.50", "20210301"),
+                line(2, "Leonard Hofstadter", 20, 200, "7.25", "20210303"),
+                "",
+                line(3, "Howard Wolowitz", 30, 300, "3.00", "20210304"),
+                line(4, "Rajesh Koothrappali", 40, 400, "1.00", "20210305")).getBytes(StandardCharsets.UTF_8);
+        List<IngestCheckpoint> checkpoints = new ArrayList<>();
+
+        fileService.parserFileToChunks(new ByteArrayInputStream(bytes), IngestCheckpoint.START, 1,
+                (chunk, checkpoint) -> checkpoints.add(checkpoint), new IngestReport(), LineQuarantine.strict());
+
+        int lineBytes = line(1, "Sheldon Cooper", 10, 100, "10.50", "20210301").length() + 1;
+        // the empty line counts in the line numbers, not in the parsed lines
+        assertEquals(List.of(new IngestCheckpoint(2L * lineBytes, 2, 2), new IngestCheckpoint(3L * lineBytes + 1, 4, 3),
+                new IngestCheckpoint(4L * lineBytes + 1, 5, 4), new IngestCheckpoint(bytes.length, 6, 5)), checkpoints);
+
+        IngestCheckpoint from = checkpoints.get(0);
+        InputStream rest = new ByteArrayInputStream(bytes);
+        rest.skipNBytes(from.getOffset());
+        List<Integer> users = new ArrayList<>();
+        IngestReport report = new IngestReport();
+        fileService.parserFileToChunks(rest, from, 10,
+                (chunk, checkpoint) -> chunk.forEach(buy -> users.add(buy.getUserId())), report, LineQuarantine.strict());
+
+        assertEquals(List.of(2, 3, 4), users);
+        assertEquals(3, report.getLines());
+    }
+
+    @Test
+    void testParserFileToChunks_UserNotContiguous() {
+        byte[] bytes = String.join("\n",
+                line(1, "Sheldon Cooper", 10, 100, "10.50", "20210301"),
+                line(2, "Leonard Hofstadter", 20, 200, "7.25", "20210303"),
+                line(1, "Sheldon Cooper", 11, 101, "4.50", "20210310")).getBytes(StandardCharsets.UTF_8);
+        List<Integer> saved = new ArrayList<>();
+
+        BuyParseException e = assertThrows(BuyParseException.class, () -> fileService.parserFileToChunks(
+                new ByteArrayInputStream(bytes), 1, chunk -> chunk.forEach(buy -> saved.add(buy.getUserId()))));
+
+        assertTrue(e.getMessage().contains("user 1"));
+        assertTrue(e.getMessage().contains("line 3"));
+        // the first lines of the user were handed over before it reappeared
+        assertEquals(List.of(1), saved);
+    }
+
+    @Test
+    void testParserFileToMap_LargeOrderTotalIsExact() {
+        StringBuilder content = new StringBuilder();
+        double doubleTotal = 0.0;
+        for (int product = 0; product < 100_000; product++) {
+            content.append(line(1, "Sheldon Cooper", 10, product, "0.10", "20210301")).append('\n');
+            doubleTotal += 0.10;
+        }
+
+        Map<Integer, Buy> buys = fileService.parserFileToMap(
+                new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.UTF_8)));
+
+        BuyOrder order = buys.get(1).getOrders().iterator().next();
+        assertEquals(1_000_000, order.getTotal());
+        assertEquals(new BigDecimal("10000.00"), Cents.toBigDecimal(order.getTotal()));
+        // the former double summation drifts on the same order
+        assertNotEquals(10000.0, doubleTotal);
+    }
+
+    @Test
+    void testParserFileToChunks_EmptyFile() {
+        List<List<Buy>> chunks = new ArrayList<>();
+
+        long lines = fileService.parserFileToChunks(file(), 2, chunks::add);
+
+        assertEquals(0, lines);
+        assertEquals(0, chunks.size());
+    }
+
+    @Test
+    void testParserPathToMap_MatchesParserFileToMap(@TempDir Path directory) throws IOException {
+        Random random = new Random(7);
+        StringBuilder content = new StringBuilder();
+        int buyId = 0;
+        for (int userId = 1; userId <= 5000; userId++) {
+            int orders = 1 + random.nextInt(3);
+            for (int order = 0; order < orders; order++) {
+                buyId++;
+                int products = 1 + random.nextInt(4);
+                for (int product = 0; product < products; product++) {
+                    content.append(line(userId, "User " + userId, buyId, random.nextInt(100),
+                            random.nextInt(1000) + "." + random.nextInt(10), "202101" + (10 + order))).append('\n');
+                }
+            }
+        }
+        byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+        Path path = directory.resolve("buys.txt");
+        Files.write(path, bytes);
+
+        Map<Integer, Buy> expected = fileService.parserFileToMap(new ByteArrayInputStream(bytes));
+        Map<Integer, Buy> actual = fileService.parserPathToMap(path);
+
+        assertEquals(describe(expected), describe(actual));
+    }
+
+    @Test
+    void testParserFileToColumns_MatchesParserFileToMap() {
+        Random random = new Random(11);
+        List<String> lines = new ArrayList<>();
+        for (int buyId = 1; buyId <= 3000; buyId++) {
+            int userId = 1 + random.nextInt(500);
+            String date = "202102" + (10 + random.nextInt(18));
+            int products = 1 + random.nextInt(3);
+            for (int product = 0; product < products; product++) {
+                lines.add(line(userId, "User " + userId + (buyId % 7 == 0 ? " Jr" : ""), buyId, random.nextInt(100),
+                        random.nextInt(1000) + "." + random.nextInt(100), date));
+            }
+        }
+        // users are interleaved, unlike the legacy export
+        Collections.shuffle(lines, random);
+        byte[] bytes = (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8);
+
+        Map<Integer, Buy> expected = fileService.parserFileToMap(new ByteArrayInputStream(bytes));
+        BuyColumns columns = fileService.parserFileToColumns(new ByteArrayInputStream(bytes), new IngestReport());
+        Map<Integer, Buy> actual = new HashMap<>();
+        List<Integer> batchSizes = new ArrayList<>();
+        columns.forEachBatch(128, batch -> {
+            batchSizes.add(batch.size());
+            batch.forEach(buy -> actual.put(buy.getUserId(), buy));
+        });
+
+        assertEquals(lines.size(), columns.size());
+        assertEquals(describe(expected), describe(actual));
+        assertEquals(expected.size(), batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(128, batchSizes.get(0));
+    }
+
+    @Test
+    void testParserFileToMap_QuarantinesMalformedLines() {
+        List<QuarantinedLine> quarantined = new ArrayList<>();
+        LineQuarantine quarantine = new LineQuarantine("buys.txt", "upload-1", 2, quarantined::addAll);
+        String malformed = line(2, "Leonard Hofstadter", 20, 200, "7.25", "20211399");
+
+        Map<Integer, Buy> buys = fileService.parserFileToMap(file(
+                line(1, "Sheldon Cooper", 10, 100, "10.50", "20210301"),
+                malformed,
+                line(3, "Howard Wolowitz", 30, 300, "3.00", "20210304")), new IngestReport(), quarantine);
+        quarantine.flush();
+
+        assertEquals(Set.of(1, 3), buys.keySet());
+        assertEquals(1, quarantine.getRejected());
+        QuarantinedLine line = quarantined.get(0);
+        assertEquals("buys.txt", line.getSource());
+        assertEquals(2L, line.getLineNumber());
+        assertEquals(malformed.length() + 1, line.getOffset());
+        assertEquals(malformed, new String(line.getRaw(), StandardCharsets.UTF_8));
+        assertTrue(line.getReason().startsWith("Invalid date format"));
+    }
+
+    @Test
+    void testParserFileToChunks_ErrorBudgetSpent() {
+        LineQuarantine quarantine = new LineQuarantine("buys.txt", "upload-1", 1, lines -> {
+        });
+
+        BuyParseException e = assertThrows(BuyParseException.class, () -> fileService.parserFileToChunks(file(
+                line(1, "Sheldon Cooper", 10, 100, "ten", "20210301"),
+                line(2, "Leonard Hofstadter", 20, 200, "7.25", "20210303"),
+                line(3, "Howard Wolowitz", 30, 300, "3.00", "2021")), 10, chunk -> {
+        }, new IngestReport(), quarantine));
+
+        assertTrue(e.getMessage().contains("More than 1 malformed lines in buys.txt"));
+        assertEquals(1, quarantine.getRejected());
+    }
+
+    @Test
+    void testParserPathToMap_QuarantinesMalformedLines(@TempDir Path directory) throws IOException {
+        List<QuarantinedLine> quarantined = new ArrayList<>();
+        LineQuarantine quarantine = new LineQuarantine("buys.txt", "upload-1", 10, quarantined::addAll);
+        String valid = line(1, "Sheldon Cooper", 10, 100, "10.50", "20210301");
+        // large enough to be split in several regions, with malformed lines in the first and the last ones
+        String[] lines = new String[30_000];
+        Arrays.fill(lines, valid);
+        lines[1] = valid.substring(0, 40);
+        lines[2] = "";
+        lines[29_000] = valid.substring(0, 50);
+        Path path = directory.resolve("buys.txt");
+        Files.writeString(path, String.join("\n", lines));
+
+        Map<Integer, Buy> buys = fileService.parserPathToMap(path, new IngestReport(), quarantine);
+        quarantine.flush();
+
+        assertEquals(29_997, buys.get(1).getOrders().iterator().next().getProducts().size());
+        assertEquals(List.of(2L, 29_001L), quarantined.stream().map(QuarantinedLine::getLineNumber).toList());
+        assertEquals("upload-1:2", quarantined.get(0).getId());
+        assertEquals("upload-1", quarantined.get(0).getUploadId());
+        assertEquals(valid.length() + 1, quarantined.get(0).getOffset());
+        assertEquals(40, quarantined.get(0).getRaw().length);
+        assertEquals(29_000L * (valid.length() + 1) - 2L * valid.length() + 40, quarantined.get(1).getOffset());
+    }
+
+    @Test
+    void testLineQuarantine_SinkCalledOutsideLock() {
+        List<Boolean> lockHeld = new ArrayList<>();
+        LineQuarantine[] quarantine = new LineQuarantine[1];
+        quarantine[0] = new LineQuarantine("buys.txt", "upload-1", 2_000, lines -> lockHeld.add(Thread.holdsLock(quarantine[0])));
+        byte[] malformed = "0000000001 Sheldon Cooper".getBytes(StandardCharsets.UTF_8);
+
+        for (int line = 1; line <= 1_001; line++) {
+            quarantine[0].reject(line, 0, malformed, 0, malformed.length, new BuyParseException(0, "Line too short"));
+        }
+        quarantine[0].flush();
+
+        assertEquals(List.of(false, false), lockHeld);
+    }
+
+    private static List<String> describe(Map<Integer, Buy> buys) {
+        List<String> description = new ArrayList<>();
+        for (Buy buy : new TreeMap<>(buys).values()) {
+            description.add(buy.getUserId() + " " + buy.getUserName());
+            buy.getOrders().stream().sorted(Comparator.comparingInt(BuyOrder::getBuyId)).forEach(order ->
+                    description.add(order.getBuyId() + " " + order.getDate() + " " + order.getTotal() + " " + order.getProducts()));
+        }
+        return description;
+    }
+}
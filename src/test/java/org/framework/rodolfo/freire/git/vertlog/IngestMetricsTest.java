@@ -0,0 +1,95 @@
+package org.framework.rodolfo.freire.git.vertlog;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.framework.rodolfo.freire.git.vertlog.configuration.PropertiesIngest;
+import org.framework.rodolfo.freire.git.vertlog.exception.BuyParseException;
+import org.framework.rodolfo.freire.git.vertlog.repository.QuarantinedLineRepository;
+import org.framework.rodolfo.freire.git.vertlog.service.IngestMetrics;
+import org.framework.rodolfo.freire.git.vertlog.service.IngestReport;
+import org.framework.rodolfo.freire.git.vertlog.service.LineQuarantine;
+import org.framework.rodolfo.freire.git.vertlog.service.QuarantineService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+class IngestMetricsTest {
+
+    private static final byte[] LINE = "0000000001 Sheldon Cooper".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private QuarantinedLineRepository quarantinedLineRepository;
+
+    @Mock
+    private PropertiesIngest propertiesIngest;
+
+    private SimpleMeterRegistry meterRegistry;
+    private IngestMetrics ingestMetrics;
+    private QuarantineService quarantineService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        ingestMetrics = new IngestMetrics(meterRegistry);
+        quarantineService = new QuarantineService(quarantinedLineRepository, propertiesIngest, ingestMetrics);
+    }
+
+    @Test
+    void testMalformedLines_CountedAsRejected() {
+        when(propertiesIngest.isTolerantEnabled()).thenReturn(true);
+        when(propertiesIngest.getErrorBudget()).thenReturn(2L);
+        LineQuarantine quarantine = quarantineService.open("buys.txt", "upload-1");
+
+        quarantine.reject(1, 0, LINE, 0, LINE.length, new BuyParseException(0, "Line too short"));
+        assertEquals(1.0, malformedLines());
+        quarantine.reject(2, 26, LINE, 0, LINE.length, new BuyParseException(0, "Line too short"));
+        assertEquals(2.0, malformedLines());
+        assertThrows(BuyParseException.class,
+                () -> quarantine.reject(3, 52, LINE, 0, LINE.length, new BuyParseException(0, "Line too short")));
+
+        // the line spending the budget is counted too, and the end of the ingest adds nothing
+        assertEquals(3.0, malformedLines());
+        IngestReport report = new IngestReport("buys.txt");
+        report.addQuarantined(quarantine.flush());
+        ingestMetrics.recordIngest(report);
+        assertEquals(3.0, malformedLines());
+    }
+
+    @Test
+    void testMalformedLines_StrictIngestCountsFailingLine() {
+        when(propertiesIngest.isTolerantEnabled()).thenReturn(false);
+        LineQuarantine quarantine = quarantineService.open("buys.txt", "upload-1");
+
+        assertThrows(BuyParseException.class,
+                () -> quarantine.reject(1, 0, LINE, 0, LINE.length, new BuyParseException(0, "Line too short")));
+
+        assertEquals(1.0, malformedLines());
+    }
+
+    @Test
+    void testRecordIngest_AddsReportCounts() {
+        IngestReport report = new IngestReport("buys.txt");
+        report.addLines(5);
+        report.addSaved(2, 3, 5);
+        report.addBytes(480);
+
+        ingestMetrics.recordIngest(report);
+
+        assertEquals(5.0, meterRegistry.get("vertlog.ingest.lines").counter().count());
+        assertEquals(2.0, meterRegistry.get("vertlog.ingest.users").counter().count());
+        assertEquals(3.0, meterRegistry.get("vertlog.ingest.orders").counter().count());
+        assertEquals(5.0, meterRegistry.get("vertlog.ingest.products").counter().count());
+        assertEquals(480.0, meterRegistry.get("vertlog.ingest.bytes").counter().count());
+    }
+
+    private double malformedLines() {
+        return meterRegistry.get("vertlog.ingest.malformed.lines").counter().count();
+    }
+}
@@ -0,0 +1,101 @@
+package org.framework.rodolfo.freire.git.vertlog;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.framework.rodolfo.freire.git.vertlog.configuration.PropertiesIngest;
+import org.framework.rodolfo.freire.git.vertlog.service.IngestProgressLogger;
+import org.framework.rodolfo.freire.git.vertlog.service.IngestReport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+class IngestProgressLoggerTest {
+
+    @Mock
+    private PropertiesIngest propertiesIngest;
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(IngestProgressLogger.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private IngestProgressLogger ingestProgressLogger;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+        if (ingestProgressLogger != null) {
+            ingestProgressLogger.shutdown();
+        }
+    }
+
+    @Test
+    void testProgress_LoggedAtIntervalUntilClosed() throws InterruptedException {
+        when(propertiesIngest.getProgressInterval()).thenReturn(Duration.ofMillis(5));
+        ingestProgressLogger = new IngestProgressLogger(propertiesIngest);
+        IngestReport report = new IngestReport("buys.txt");
+        report.addLines(4);
+        report.addSaved(2, 3, 4);
+
+        IngestProgressLogger.Progress progress = ingestProgressLogger.start(report);
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (messages("Ingest progress").isEmpty()) {
+                Thread.sleep(5);
+            }
+        });
+        progress.close();
+        int progressRecords = messages("Ingest progress").size();
+        Thread.sleep(50);
+
+        // the periodic records stop with the ingest, which ends with one summary
+        assertEquals(progressRecords, messages("Ingest progress").size());
+        assertTrue(messages("Ingest progress").get(0)
+                .startsWith("Ingest progress source=buys.txt lines=4 linesPerSecond="));
+        assertTrue(messages("Ingest progress").get(0).endsWith(" users=2 orders=3 products=4"));
+        List<String> summary = messages("Ingest summary");
+        assertEquals(1, summary.size());
+        assertTrue(summary.get(0).contains(" lines=4 "));
+        assertTrue(summary.get(0).contains(" users=2 orders=3 products=4 "));
+    }
+
+    @Test
+    void testProgress_ZeroIntervalLogsOnlySummary() throws InterruptedException {
+        when(propertiesIngest.getProgressInterval()).thenReturn(Duration.ZERO);
+        ingestProgressLogger = new IngestProgressLogger(propertiesIngest);
+        IngestReport report = new IngestReport("buys.txt");
+
+        try (IngestProgressLogger.Progress progress = ingestProgressLogger.start(report)) {
+            report.addLines(2);
+            Thread.sleep(20);
+        }
+
+        assertTrue(messages("Ingest progress").isEmpty());
+        assertEquals(1, messages("Ingest summary").size());
+        assertTrue(messages("Ingest summary").get(0).startsWith("Ingest summary source=buys.txt bytes=0 lines=2 "));
+    }
+
+    private List<String> messages(String prefix) {
+        synchronized (appender) {
+            return appender.list.stream()
+                    .map(ILoggingEvent::getFormattedMessage)
+                    .filter(message -> message.startsWith(prefix))
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.framework.rodolfo.freire.git.vertlog;
+
+import org.framework.rodolfo.freire.git.vertlog.util.IntObjectMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntObjectMapTest {
+
+    @Test
+    void testPutAndGet() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+
+        assertNull(map.put(7, "a"));
+        assertNull(map.put(-7, "b"));
+        assertEquals("a", map.put(7, "c"));
+
+        assertEquals(2, map.size());
+        assertEquals("c", map.get(7));
+        assertEquals("b", map.get(-7));
+        assertEquals("b", map.get((Object) (-7)));
+        assertNull(map.get(8));
+        assertNull(map.get("7"));
+        assertTrue(map.containsKey(7));
+        assertFalse(map.containsKey(0));
+    }
+
+    @Test
+    void testComputeIfAbsent() {
+        IntObjectMap<List<Integer>> map = new IntObjectMap<>();
+
+        map.computeIfAbsent(1, key -> new ArrayList<>()).add(10);
+        map.computeIfAbsent(1, key -> new ArrayList<>()).add(11);
+
+        assertEquals(List.of(10, 11), map.get(1));
+        assertThrows(NullPointerException.class, () -> map.computeIfAbsent(2, key -> null));
+        assertFalse(map.containsKey(2));
+    }
+
+    @Test
+    void testRandomOperations_MatchHashMap() {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            // a small key range forces collisions, removals in the middle of probe sequences and reinsertions
+            int key = random.nextInt(5000) - 2500;
+            Integer value = i;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+    }
+
+    @Test
+    void testForEachEntryAndClear() {
+        IntObjectMap<String> map = new IntObjectMap<>(2);
+        for (int key = 0; key < 100; key++) {
+            map.put(key * 1024, "v" + key);
+        }
+        Map<Integer, String> visited = new HashMap<>();
+
+        map.forEachEntry(visited::put);
+        map.clear();
+
+        assertEquals(100, visited.size());
+        assertEquals("v99", visited.get(99 * 1024));
+        assertTrue(map.isEmpty());
+        assertNull(map.get(0));
+        assertNull(map.put(0, "again"));
+        assertEquals(1, map.size());
+    }
+}
@@ -0,0 +1,63 @@
+package org.framework.rodolfo.freire.git.vertlog;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import org.framework.rodolfo.freire.git.vertlog.util.UploadCompression;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadCompressionTest {
+
+    private static final byte[] CONTENT = (FileServiceTest.line(1, "Sheldon Cooper", 10, 100, "10.50", "20210301")
+            + "\n" + FileServiceTest.line(2, "Leonard Hofstadter", 20, 200, "7.25", "20210303"))
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void testFromFileName() {
+        assertEquals(UploadCompression.NONE, UploadCompression.fromFileName("buys.txt"));
+        assertEquals(UploadCompression.GZIP, UploadCompression.fromFileName("BUYS.TXT.GZ"));
+        assertEquals(UploadCompression.ZSTD, UploadCompression.fromFileName("buys.txt.zst"));
+        assertNull(UploadCompression.fromFileName("buys.gz"));
+        assertNull(UploadCompression.fromFileName("buys.csv"));
+        assertNull(UploadCompression.fromFileName(null));
+    }
+
+    @Test
+    void testDecompress_Gzip() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new GZIPOutputStream(compressed)) {
+            outputStream.write(CONTENT);
+        }
+
+        try (InputStream inputStream = UploadCompression.GZIP.decompress(
+                new ByteArrayInputStream(compressed.toByteArray()))) {
+            assertArrayEquals(CONTENT, inputStream.readAllBytes());
+        }
+    }
+
+    @Test
+    void testDecompress_Zstd() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new ZstdOutputStream(compressed)) {
+            outputStream.write(CONTENT);
+        }
+
+        try (InputStream inputStream = UploadCompression.ZSTD.decompress(
+                new ByteArrayInputStream(compressed.toByteArray()))) {
+            assertArrayEquals(CONTENT, inputStream.readAllBytes());
+        }
+    }
+
+    @Test
+    void testDecompress_NotGzip() {
+        assertThrows(IOException.class, () -> UploadCompression.GZIP.decompress(new ByteArrayInputStream(CONTENT)));
+    }
+}
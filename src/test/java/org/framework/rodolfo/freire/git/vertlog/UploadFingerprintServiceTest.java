@@ -0,0 +1,197 @@
+package org.framework.rodolfo.freire.git.vertlog;
+
+import org.bson.Document;
+import org.framework.rodolfo.freire.git.vertlog.configuration.PropertiesIngest;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadFingerprint;
+import org.framework.rodolfo.freire.git.vertlog.exception.UploadInProgressException;
+import org.framework.rodolfo.freire.git.vertlog.repository.UploadFingerprintRepository;
+import org.framework.rodolfo.freire.git.vertlog.repository.UploadFingerprintRepositoryCustomImpl;
+import org.framework.rodolfo.freire.git.vertlog.service.UploadFingerprintService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UploadFingerprintServiceTest {
+
+    @Mock
+    private UploadFingerprintRepository uploadFingerprintRepository;
+
+    @Mock
+    private PropertiesIngest propertiesIngest;
+
+    @InjectMocks
+    private UploadFingerprintService uploadFingerprintService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(propertiesIngest.getFingerprintLease()).thenReturn(Duration.ofHours(1));
+    }
+
+    @Test
+    void testRegister_CrashedUploadClaimedAgain() {
+        // the first upload crashed after its claim: neither complete nor release ran
+        when(uploadFingerprintRepository.insert(any(UploadFingerprint.class)))
+                .thenThrow(new DuplicateKeyException("hash"));
+        when(uploadFingerprintRepository.reclaim(eq("hash"), eq("a.txt"), any(Date.class)))
+                .thenReturn(new UploadFingerprint("hash", "a.txt", new Date(0), false, 0, new Date()));
+
+        assertTrue(uploadFingerprintService.register("hash", "a.txt").isEmpty());
+        verify(uploadFingerprintRepository, never()).findById(any());
+    }
+
+    @Test
+    void testRegister_CompletedUploadDuplicate() {
+        UploadFingerprint completed = new UploadFingerprint("hash", "a.txt", new Date(0), true, 4, new Date(0));
+        when(uploadFingerprintRepository.insert(any(UploadFingerprint.class)))
+                .thenThrow(new DuplicateKeyException("hash"));
+        when(uploadFingerprintRepository.reclaim(eq("hash"), eq("b.txt"), any(Date.class))).thenReturn(null);
+        when(uploadFingerprintRepository.findById("hash")).thenReturn(Optional.of(completed));
+
+        assertEquals(Optional.of(completed), uploadFingerprintService.register("hash", "b.txt"));
+    }
+
+    @Test
+    void testRegister_ReleasedMeanwhileInsertedAgain() {
+        when(uploadFingerprintRepository.insert(any(UploadFingerprint.class)))
+                .thenThrow(new DuplicateKeyException("hash"))
+                .thenReturn(null);
+        when(uploadFingerprintRepository.reclaim(eq("hash"), eq("a.txt"), any(Date.class))).thenReturn(null);
+        when(uploadFingerprintRepository.findById("hash")).thenReturn(Optional.empty());
+
+        assertTrue(uploadFingerprintService.register("hash", "a.txt").isEmpty());
+        verify(uploadFingerprintRepository, times(2)).insert(any(UploadFingerprint.class));
+    }
+
+    @Test
+    void testRegister_RunningUploadRefused() {
+        UploadFingerprint running = new UploadFingerprint("hash", "a.txt", new Date(), false, 0, new Date());
+        when(uploadFingerprintRepository.insert(any(UploadFingerprint.class)))
+                .thenThrow(new DuplicateKeyException("hash"));
+        when(uploadFingerprintRepository.reclaim(eq("hash"), eq("b.txt"), any(Date.class))).thenReturn(null);
+        when(uploadFingerprintRepository.findById("hash")).thenReturn(Optional.of(running));
+
+        assertThrows(UploadInProgressException.class, () -> uploadFingerprintService.register("hash", "b.txt"));
+    }
+
+    @Test
+    void testRegister_ReclaimsOnlyClaimsOlderThanLease() {
+        ArgumentCaptor<Date> claimedBefore = ArgumentCaptor.forClass(Date.class);
+        when(uploadFingerprintRepository.insert(any(UploadFingerprint.class)))
+                .thenThrow(new DuplicateKeyException("hash"));
+        when(uploadFingerprintRepository.reclaim(eq("hash"), eq("a.txt"), claimedBefore.capture()))
+                .thenReturn(new UploadFingerprint("hash", "a.txt", new Date(0), false, 0, new Date()));
+        long now = System.currentTimeMillis();
+
+        uploadFingerprintService.register("hash", "a.txt");
+
+        long leaseStart = now - Duration.ofHours(1).toMillis();
+        assertTrue(Math.abs(claimedBefore.getValue().getTime() - leaseStart) < 10_000);
+    }
+
+    @Test
+    void testResume_TakesOverRecentClaim() {
+        when(uploadFingerprintRepository.reclaim("hash", "a.txt", null))
+                .thenReturn(new UploadFingerprint("hash", "a.txt", new Date(), false, 0, new Date()));
+
+        uploadFingerprintService.resume("hash", "a.txt");
+
+        verify(uploadFingerprintRepository, never()).insert(any(UploadFingerprint.class));
+    }
+
+    @Test
+    void testResume_ReleasedClaimInserted() {
+        when(uploadFingerprintRepository.reclaim("hash", "a.txt", null)).thenReturn(null);
+
+        uploadFingerprintService.resume("hash", "a.txt");
+
+        verify(uploadFingerprintRepository).insert(any(UploadFingerprint.class));
+    }
+
+    @Test
+    void testComplete_SingleUpsert() {
+        uploadFingerprintService.complete("hash", 4);
+
+        verify(uploadFingerprintRepository).complete("hash", 4);
+        verify(uploadFingerprintRepository, never()).findById(any());
+        verify(uploadFingerprintRepository, never()).save(any());
+    }
+
+    @Test
+    void testRelease_KeepsCompletedFingerprint() {
+        uploadFingerprintService.release("hash");
+
+        verify(uploadFingerprintRepository).deleteByFingerprintAndCompletedFalse("hash");
+        verify(uploadFingerprintRepository, never()).deleteById(any());
+    }
+
+    @Test
+    void testReclaim_OnlyIncompleteFingerprint() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+
+        new UploadFingerprintRepositoryCustomImpl(mongoTemplate).reclaim("hash", "a.txt", new Date(1000));
+
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class),
+                eq(UploadFingerprint.class));
+        assertEquals("hash", query.getValue().getQueryObject().get("_id"));
+        assertEquals(false, query.getValue().getQueryObject().get("completed"));
+        assertEquals(new Document("$lt", new Date(1000)), query.getValue().getQueryObject()
+                .getList("$or", Document.class).get(0).get("claimedAt"));
+        assertEquals("a.txt", update.getValue().getUpdateObject().get("$set", Document.class)
+                .get("fileName"));
+    }
+
+    @Test
+    void testReclaim_WithoutLeaseAnyClaimDate() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+
+        new UploadFingerprintRepositoryCustomImpl(mongoTemplate).reclaim("hash", "a.txt", null);
+
+        verify(mongoTemplate).findAndModify(query.capture(), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UploadFingerprint.class));
+        assertFalse(query.getValue().getQueryObject().containsKey("$or"));
+    }
+
+    @Test
+    void testComplete_UpsertSetsCompletedAndLines() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+
+        new UploadFingerprintRepositoryCustomImpl(mongoTemplate).complete("hash", 4);
+
+        verify(mongoTemplate).upsert(query.capture(), update.capture(), eq(UploadFingerprint.class));
+        assertEquals("hash", query.getValue().getQueryObject().get("_id"));
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertEquals(true, set.get("completed"));
+        assertEquals(4L, set.get("lines"));
+        assertTrue(update.getValue().getUpdateObject().get("$setOnInsert", Document.class).containsKey("createdAt"));
+    }
+}
@@ -0,0 +1,291 @@
+package org.framework.rodolfo.freire.git.vertlog;
+
+import org.framework.rodolfo.freire.git.vertlog.configuration.IngestMode;
+import org.framework.rodolfo.freire.git.vertlog.configuration.PropertiesIngest;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadJob;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadJobStatus;
+import org.framework.rodolfo.freire.git.vertlog.repository.UploadJobRepository;
+import org.framework.rodolfo.freire.git.vertlog.service.BuyService;
+import org.framework.rodolfo.freire.git.vertlog.service.IngestCheckpoint;
+import org.framework.rodolfo.freire.git.vertlog.service.IngestReport;
+import org.framework.rodolfo.freire.git.vertlog.service.UploadJobService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UploadJobServiceTest {
+
+    @TempDir
+    Path spoolDirectory;
+
+    @Mock
+    private UploadJobRepository uploadJobRepository;
+
+    @Mock
+    private BuyService buyService;
+
+    @Mock
+    private ThreadPoolTaskExecutor ingestJobExecutor;
+
+    @Mock
+    private PropertiesIngest propertiesIngest;
+
+    @InjectMocks
+    private UploadJobService uploadJobService;
+
+    private final Map<String, UploadJob> stored = new HashMap<>();
+    private final ThreadPoolExecutor threadPoolExecutor = mock(ThreadPoolExecutor.class);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(propertiesIngest.isResumeOnStartup()).thenReturn(true);
+        when(propertiesIngest.getJobMaxAttempts()).thenReturn(3);
+        when(propertiesIngest.getMode()).thenReturn(IngestMode.STREAMING);
+        when(uploadJobRepository.save(any(UploadJob.class))).thenAnswer(invocation -> {
+            UploadJob job = invocation.getArgument(0);
+            stored.put(job.getJobId(), job);
+            return job;
+        });
+        when(uploadJobRepository.findById(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(stored.get(invocation.<String>getArgument(0))));
+        // jobs run on the calling thread
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(ingestJobExecutor).execute(any(Runnable.class));
+        when(ingestJobExecutor.getThreadPoolExecutor()).thenReturn(threadPoolExecutor);
+    }
+
+    @Test
+    void testSubmit_RunsAndReportsStatus() throws IOException {
+        Path spoolFile = Files.createTempFile(spoolDirectory, "upload-", ".txt");
+        List<Runnable> queued = new ArrayList<>();
+        doAnswer(invocation -> queued.add(invocation.getArgument(0))).when(ingestJobExecutor).execute(any(Runnable.class));
+        List<Object> whileRunning = new ArrayList<>();
+        when(buyService.uploadFile(any(InputStreamSource.class), eq("buys.txt"), any(IngestReport.class), any()))
+                .thenAnswer(invocation -> {
+                    IngestReport report = invocation.getArgument(2);
+                    report.addLines(4);
+                    report.addWritten(2, 0, 0, 0);
+                    UploadJob running = uploadJobService.findById(currentJobId()).orElseThrow();
+                    whileRunning.add(running.getStatus());
+                    whileRunning.add(running.getLinesProcessed());
+                    return report;
+                });
+
+        UploadJob job = uploadJobService.submit("buys.txt", spoolFile);
+
+        assertEquals(UploadJobStatus.QUEUED, uploadJobService.findById(job.getJobId()).orElseThrow().getStatus());
+        assertEquals(1, queued.size());
+        queued.get(0).run();
+
+        // the live report of the running job is read from memory
+        assertEquals(List.of(UploadJobStatus.RUNNING, 4L), whileRunning);
+        UploadJob finished = uploadJobService.findById(job.getJobId()).orElseThrow();
+        assertEquals(UploadJobStatus.COMPLETED, finished.getStatus());
+        assertEquals(2, finished.getInserted());
+        assertEquals(1, finished.getAttempts());
+        assertNotNull(finished.getStartedAt());
+        assertNotNull(finished.getFinishedAt());
+        assertFalse(Files.exists(spoolFile));
+    }
+
+    @Test
+    void testSubmit_RejectedDeletesSpoolFile() throws IOException {
+        Path spoolFile = Files.createTempFile(spoolDirectory, "upload-", ".txt");
+        doThrow(new TaskRejectedException("Queue full")).when(ingestJobExecutor).execute(any(Runnable.class));
+
+        assertThrows(TaskRejectedException.class, () -> uploadJobService.submit("buys.txt", spoolFile));
+
+        assertFalse(Files.exists(spoolFile));
+        UploadJob job = stored.values().iterator().next();
+        assertEquals(UploadJobStatus.FAILED, job.getStatus());
+        assertEquals(List.of("Too many upload jobs waiting"), job.getErrors());
+        verify(buyService, never()).uploadFile(any(InputStreamSource.class), anyString(), any(), any());
+    }
+
+    @Test
+    void testResumeInterruptedJobs_RestoresFromCheckpoint() throws IOException {
+        Path spoolFile = Files.createTempFile(spoolDirectory, "upload-", ".txt");
+        UploadJob job = interruptedJob("job-1", spoolFile, 1);
+        // the third line before the checkpoint was malformed: two lines were parsed
+        job.setCheckpointOffset(288);
+        job.setCheckpointLine(3);
+        job.setCheckpointParsedLines(2);
+        job.setUsersSaved(1);
+        job.setOrdersSaved(1);
+        job.setProductsSaved(2);
+        job.setInserted(1);
+        when(uploadJobRepository.findByStatusIn(any())).thenReturn(List.of(job));
+        long[] restored = new long[3];
+        when(buyService.resumeFile(any(InputStreamSource.class), eq("buys.txt"), any(IngestReport.class),
+                eq(new IngestCheckpoint(288, 3, 2)), any())).thenAnswer(invocation -> {
+            IngestReport report = invocation.getArgument(2);
+            restored[0] = report.getLines();
+            restored[1] = report.getInserted();
+            restored[2] = report.getProducts();
+            // the quarantined lines of every run of the job are keyed on the job
+            assertEquals("job-1", report.getUploadId());
+            report.addLines(2);
+            report.addWritten(1, 0, 0, 0);
+            return report;
+        });
+
+        uploadJobService.resumeInterruptedJobs();
+
+        assertEquals(2, restored[0]);
+        assertEquals(1, restored[1]);
+        assertEquals(2, restored[2]);
+        verify(buyService, never()).uploadFile(any(InputStreamSource.class), anyString(), any(), any());
+        assertEquals(UploadJobStatus.COMPLETED, job.getStatus());
+        assertEquals(2, job.getAttempts());
+        assertEquals(4, job.getLinesProcessed());
+        assertEquals(2, job.getProductsSaved());
+        assertEquals(2, job.getInserted());
+        assertFalse(Files.exists(spoolFile));
+    }
+
+    @Test
+    void testRun_CheckpointSavesParsedLinesAndProducts() throws IOException {
+        Path spoolFile = Files.createTempFile(spoolDirectory, "upload-", ".txt");
+        List<UploadJob> atCheckpoint = new ArrayList<>();
+        when(buyService.uploadFile(any(InputStreamSource.class), eq("buys.txt"), any(IngestReport.class), any()))
+                .thenAnswer(invocation -> {
+                    IngestReport report = invocation.getArgument(2);
+                    report.addSaved(1, 1, 3);
+                    invocation.<Consumer<IngestCheckpoint>>getArgument(3).accept(new IngestCheckpoint(288, 4, 3));
+                    UploadJob job = stored.values().iterator().next();
+                    atCheckpoint.add(job);
+                    assertEquals(3, job.getCheckpointParsedLines());
+                    assertEquals(3, job.getProductsSaved());
+                    return report;
+                });
+
+        uploadJobService.submit("buys.txt", spoolFile);
+
+        assertEquals(1, atCheckpoint.size());
+        assertEquals(4, atCheckpoint.get(0).getCheckpointLine());
+    }
+
+    @Test
+    void testResumeInterruptedJobs_AttemptsExhausted() throws IOException {
+        Path spoolFile = Files.createTempFile(spoolDirectory, "upload-", ".txt");
+        UploadJob job = interruptedJob("job-1", spoolFile, 3);
+        when(uploadJobRepository.findByStatusIn(any())).thenReturn(List.of(job));
+
+        uploadJobService.resumeInterruptedJobs();
+
+        verify(ingestJobExecutor, never()).execute(any(Runnable.class));
+        assertEquals(UploadJobStatus.FAILED, job.getStatus());
+        assertTrue(job.getErrors().get(0).contains("3 times"));
+        assertFalse(Files.exists(spoolFile));
+    }
+
+    @Test
+    void testResumeInterruptedJobs_SpoolFileLost() {
+        UploadJob job = interruptedJob("job-1", spoolDirectory.resolve("gone.txt"), 1);
+        when(uploadJobRepository.findByStatusIn(any())).thenReturn(List.of(job));
+
+        uploadJobService.resumeInterruptedJobs();
+
+        verify(ingestJobExecutor, never()).execute(any(Runnable.class));
+        assertEquals(UploadJobStatus.FAILED, job.getStatus());
+        assertNotNull(job.getFinishedAt());
+    }
+
+    @Test
+    void testResumeInterruptedJobs_Disabled() {
+        when(propertiesIngest.isResumeOnStartup()).thenReturn(false);
+
+        uploadJobService.resumeInterruptedJobs();
+
+        verify(uploadJobRepository, never()).findByStatusIn(any());
+    }
+
+    @Test
+    void testRun_InterruptedByShutdownKeptForResume() throws IOException {
+        Path spoolFile = Files.createTempFile(spoolDirectory, "upload-", ".txt");
+        UploadJob job = interruptedJob("job-1", spoolFile, 1);
+        job.setCheckpointOffset(288);
+        job.setCheckpointLine(3);
+        job.setCheckpointParsedLines(3);
+        when(uploadJobRepository.findByStatusIn(any())).thenReturn(List.of(job));
+        when(threadPoolExecutor.isShutdown()).thenReturn(true);
+        when(buyService.resumeFile(any(InputStreamSource.class), anyString(), any(IngestReport.class), any(), any()))
+                .thenThrow(new IllegalStateException("Interrupted"));
+
+        uploadJobService.resumeInterruptedJobs();
+
+        assertEquals(UploadJobStatus.RUNNING, job.getStatus());
+        assertEquals(2, job.getAttempts());
+        assertNull(job.getFinishedAt());
+        assertTrue(job.getErrors().isEmpty());
+        assertTrue(Files.exists(spoolFile));
+    }
+
+    @Test
+    void testRun_FailureOutsideShutdown() throws IOException {
+        Path spoolFile = Files.createTempFile(spoolDirectory, "upload-", ".txt");
+        UploadJob job = interruptedJob("job-1", spoolFile, 1);
+        when(uploadJobRepository.findByStatusIn(any())).thenReturn(List.of(job));
+        when(threadPoolExecutor.isShutdown()).thenReturn(false);
+        when(buyService.resumeFile(any(InputStreamSource.class), anyString(), any(IngestReport.class), any(), any()))
+                .thenThrow(new IllegalStateException("Broken file"));
+
+        uploadJobService.resumeInterruptedJobs();
+
+        assertEquals(UploadJobStatus.FAILED, job.getStatus());
+        assertEquals(List.of("Broken file"), job.getErrors());
+        assertNotNull(job.getFinishedAt());
+        assertFalse(Files.exists(spoolFile));
+    }
+
+    private String currentJobId() {
+        return stored.keySet().iterator().next();
+    }
+
+    private UploadJob interruptedJob(String jobId, Path spoolFile, int attempts) {
+        UploadJob job = new UploadJob();
+        job.setJobId(jobId);
+        job.setFileName("buys.txt");
+        job.setStatus(UploadJobStatus.RUNNING);
+        job.setAttempts(attempts);
+        job.setSpoolFile(spoolFile.toString());
+        stored.put(jobId, job);
+        return job;
+    }
+}
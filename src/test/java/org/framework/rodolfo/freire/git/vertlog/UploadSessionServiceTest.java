@@ -0,0 +1,187 @@
+package org.framework.rodolfo.freire.git.vertlog;
+
+import org.framework.rodolfo.freire.git.vertlog.configuration.PropertiesIngest;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadJob;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadSession;
+import org.framework.rodolfo.freire.git.vertlog.document.UploadSessionStatus;
+import org.framework.rodolfo.freire.git.vertlog.exception.BadRequestException;
+import org.framework.rodolfo.freire.git.vertlog.repository.UploadSessionRepository;
+import org.framework.rodolfo.freire.git.vertlog.service.UploadJobService;
+import org.framework.rodolfo.freire.git.vertlog.service.UploadSessionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UploadSessionServiceTest {
+
+    private static final byte[] CONTENT = (FileServiceTest.line(1, "Sheldon Cooper", 10, 100, "10.50", "20210301")
+            + "\n" + FileServiceTest.line(2, "Leonard Hofstadter", 20, 200, "7.25", "20210303"))
+            .getBytes(StandardCharsets.UTF_8);
+    private static final int CHUNK_SIZE = 64;
+
+    @TempDir
+    Path spoolDirectory;
+
+    @Mock
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Mock
+    private UploadJobService uploadJobService;
+
+    @Mock
+    private PropertiesIngest propertiesIngest;
+
+    @InjectMocks
+    private UploadSessionService uploadSessionService;
+
+    private UploadSession stored;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MockitoAnnotations.initMocks(this);
+        when(propertiesIngest.getSessionChunkSize()).thenReturn(DataSize.ofBytes(100));
+        when(propertiesIngest.getSessionMaxChunkSize()).thenReturn(DataSize.ofBytes(100));
+        when(propertiesIngest.getSessionExpireAfter()).thenReturn(Duration.ofHours(24));
+        when(uploadJobService.createSpoolFile()).thenReturn(Files.createTempFile(spoolDirectory, "upload-", ".txt"));
+        when(uploadSessionRepository.findByUpdatedAtBefore(any())).thenReturn(List.of());
+        when(uploadSessionRepository.save(any())).thenAnswer(invocation -> {
+            stored = invocation.getArgument(0);
+            return stored;
+        });
+        when(uploadSessionRepository.findById(anyString())).thenAnswer(invocation -> Optional.ofNullable(stored));
+        when(uploadSessionRepository.addReceivedChunk(anyString(), anyInt())).thenAnswer(invocation -> {
+            int index = invocation.getArgument(1);
+            if (!stored.getReceivedChunks().contains(index)) {
+                stored.getReceivedChunks().add(index);
+            }
+            return stored;
+        });
+        when(uploadSessionRepository.close(anyString(), any())).thenAnswer(invocation -> {
+            stored.setStatus(invocation.getArgument(1));
+            return stored;
+        });
+    }
+
+    @Test
+    void testCompleteSession_ChunksOutOfOrderAndRetried() throws IOException {
+        UploadSession session = uploadSessionService.open("buys.txt", CONTENT.length, (long) CHUNK_SIZE);
+        assertEquals(3, session.getChunkCount());
+        UploadJob job = new UploadJob();
+        job.setJobId("job-1");
+        when(uploadJobService.submit(eq("buys.txt"), any())).thenReturn(job);
+
+        uploadSessionService.writeChunk(session.getSessionId(), 2, chunk(2));
+        uploadSessionService.writeChunk(session.getSessionId(), 0, chunk(0));
+        assertThrows(BadRequestException.class,
+                () -> uploadSessionService.writeChunk(session.getSessionId(), 1, new ByteArrayInputStream(CONTENT, CHUNK_SIZE, 10)));
+        uploadSessionService.writeChunk(session.getSessionId(), 1, chunk(1));
+        uploadSessionService.writeChunk(session.getSessionId(), 1, chunk(1));
+
+        assertSame(job, uploadSessionService.complete(session.getSessionId()));
+        Path spoolFile = Path.of(session.getSpoolFile());
+        verify(uploadJobService).submit("buys.txt", spoolFile);
+        assertArrayEquals(CONTENT, Files.readAllBytes(spoolFile));
+        assertEquals(UploadSessionStatus.COMMITTED, stored.getStatus());
+        assertEquals("job-1", stored.getJobId());
+        assertEquals(3, stored.getReceivedChunks().size());
+    }
+
+    @Test
+    void testCompleteSession_MissingChunkRejected() throws IOException {
+        UploadSession session = uploadSessionService.open("buys.txt", CONTENT.length, null);
+        uploadSessionService.writeChunk(session.getSessionId(), 0, new ByteArrayInputStream(CONTENT, 0, 100));
+
+        BadRequestException e = assertThrows(BadRequestException.class,
+                () -> uploadSessionService.complete(session.getSessionId()));
+        assertTrue(e.getMessage().contains("[1]"));
+        assertEquals(UploadSessionStatus.OPEN, stored.getStatus());
+        verify(uploadJobService, never()).submit(any(), any());
+    }
+
+    @Test
+    void testWriteChunk_OversizedBodyNotRecorded() throws IOException {
+        UploadSession session = uploadSessionService.open("buys.txt", CONTENT.length, (long) CHUNK_SIZE);
+
+        assertThrows(BadRequestException.class,
+                () -> uploadSessionService.writeChunk(session.getSessionId(), 0,
+                        new ByteArrayInputStream(CONTENT, 0, CHUNK_SIZE + 1)));
+        assertThrows(BadRequestException.class,
+                () -> uploadSessionService.writeChunk(session.getSessionId(), 3, chunk(0)));
+        assertEquals(new ArrayList<Integer>(), stored.getReceivedChunks());
+    }
+
+    @Test
+    void testWriteChunk_InvalidRetryKeepsReceivedCopy() throws IOException {
+        UploadSession session = uploadSessionService.open("buys.txt", CONTENT.length, (long) CHUNK_SIZE);
+        uploadSessionService.writeChunk(session.getSessionId(), 1, chunk(1));
+        byte[] other = new byte[CHUNK_SIZE + 1];
+        Arrays.fill(other, (byte) 'x');
+
+        // a short and an oversized retry of chunk 1, both refused once their bytes were read
+        assertThrows(BadRequestException.class, () -> uploadSessionService.writeChunk(session.getSessionId(), 1,
+                new ByteArrayInputStream(other, 0, 10)));
+        assertThrows(BadRequestException.class, () -> uploadSessionService.writeChunk(session.getSessionId(), 1,
+                new ByteArrayInputStream(other)));
+
+        byte[] spooled = Files.readAllBytes(Path.of(session.getSpoolFile()));
+        assertArrayEquals(Arrays.copyOfRange(CONTENT, CHUNK_SIZE, 2 * CHUNK_SIZE),
+                Arrays.copyOfRange(spooled, CHUNK_SIZE, 2 * CHUNK_SIZE));
+        try (Stream<Path> files = Files.list(spoolDirectory)) {
+            assertEquals(List.of(Path.of(session.getSpoolFile())), files.toList());
+        }
+    }
+
+    @Test
+    void testOpenSession_ChunkSizeOutOfBounds() {
+        assertThrows(BadRequestException.class, () -> uploadSessionService.open("buys.txt", CONTENT.length, 101L));
+        assertThrows(BadRequestException.class, () -> uploadSessionService.open("buys.txt", 0, 40L));
+        assertThrows(BadRequestException.class, () -> uploadSessionService.open("buys.txt", 10_001, 1L));
+    }
+
+    @Test
+    void testDiscardExpired_OpenSpoolFileDeleted() throws IOException {
+        UploadSession open = uploadSessionService.open("buys.txt", CONTENT.length, null);
+        UploadSession committed = new UploadSession();
+        committed.setStatus(UploadSessionStatus.COMMITTED);
+        committed.setSpoolFile(Files.createTempFile(spoolDirectory, "upload-", ".txt").toString());
+        when(uploadSessionRepository.findByUpdatedAtBefore(any())).thenReturn(List.of(open, committed));
+
+        uploadSessionService.discardExpired();
+
+        // the spool file of a committed session belongs to its job
+        assertFalse(Files.exists(Path.of(open.getSpoolFile())));
+        assertTrue(Files.exists(Path.of(committed.getSpoolFile())));
+        verify(uploadSessionRepository).delete(open);
+        verify(uploadSessionRepository).delete(committed);
+    }
+
+    private static ByteArrayInputStream chunk(int index) {
+        int start = index * CHUNK_SIZE;
+        return new ByteArrayInputStream(CONTENT, start, Math.min(CHUNK_SIZE, CONTENT.length - start));
+    }
+}
@@ -16,7 +16,19 @@ import org.junit.platform.suite.api.SuiteDisplayName;
 @SuiteDisplayName("VertLog Test Suite")
 @SelectClasses({
         BuyControllerTest.class,
-        BuyServiceTest.class
+        BuyServiceTest.class,
+        BuyParseDateTest.class,
+        BuyRecordParserTest.class,
+        FileServiceTest.class,
+        IntObjectMapTest.class,
+        CentsTest.class,
+        UploadCompressionTest.class,
+        UploadSessionServiceTest.class,
+        UploadFingerprintServiceTest.class,
+        UploadJobServiceTest.class,
+        IngestMetricsTest.class,
+        IngestProgressLoggerTest.class,
+        BuyRepositoryTest.class
 })
 class VertLogApplicationTests {
 
@@ -0,0 +1,54 @@
+package org.framework.rodolfo.freire.git.vertlog.benchmark;
+
+import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+import org.framework.rodolfo.freire.git.vertlog.repository.BulkSaveResult;
+import org.framework.rodolfo.freire.git.vertlog.repository.BuyRepository;
+import org.framework.rodolfo.freire.git.vertlog.repository.BuyRepositoryCustomImpl;
+import org.framework.rodolfo.freire.git.vertlog.repository.PreparedBuys;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bulk writes of a `BuyRepository` acknowledged without touching MongoDB.
+ * <p>
+ * The buys are still converted into documents by {@link BuyRepositoryCustomImpl#prepareUpsert(List)}; each bulk write
+ * then waits for a simulated round trip and reports every buy as inserted. The template is only used for its
+ * converter, so its client never needs a running MongoDB.
+ */
+class AcknowledgingBuyRepository extends BuyRepositoryCustomImpl {
+
+    private final long writeNanos;
+
+    private AcknowledgingBuyRepository(MongoTemplate mongoTemplate, long writeNanos) {
+        super(mongoTemplate);
+        this.writeNanos = writeNanos;
+    }
+
+    /**
+     * Creates a repository whose bulk writes are acknowledged after `writeNanos`.
+     *
+     * @param mongoTemplate The template converting the buys into documents.
+     * @param writeNanos    The simulated duration of each bulk write.
+     * @return The repository.
+     */
+    static BuyRepository create(MongoTemplate mongoTemplate, long writeNanos) {
+        return new MongoRepositoryFactory(mongoTemplate).getRepository(BuyRepository.class,
+                RepositoryFragments.just(new AcknowledgingBuyRepository(mongoTemplate, writeNanos)));
+    }
+
+    @Override
+    public BulkSaveResult bulkUpsert(PreparedBuys prepared, boolean ordered) {
+        LockSupport.parkNanos(writeNanos);
+        return new BulkSaveResult(prepared.getBuys().size(), 0, 0);
+    }
+
+    @Override
+    public BulkSaveResult bulkMerge(List<Buy> buys) {
+        LockSupport.parkNanos(writeNanos);
+        return new BulkSaveResult(buys.size(), 0, 0);
+    }
+}
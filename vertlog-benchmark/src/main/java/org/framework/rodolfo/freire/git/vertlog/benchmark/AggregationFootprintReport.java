@@ -0,0 +1,137 @@
+package org.framework.rodolfo.freire.git.vertlog.benchmark;
+
+import org.framework.rodolfo.freire.git.vertlog.service.BuyColumns;
+import org.framework.rodolfo.freire.git.vertlog.service.FileService;
+import org.framework.rodolfo.freire.git.vertlog.service.IngestReport;
+import org.framework.rodolfo.freire.git.vertlog.util.BuyRecord;
+import org.framework.rodolfo.freire.git.vertlog.util.BuyRecordParser;
+import org.framework.rodolfo.freire.git.vertlog.util.FixedWidthLineReader;
+import org.framework.rodolfo.freire.git.vertlog.util.IntObjectMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Reports the memory footprint of the aggregation stage on a generated file, comparing the former `HashMap` based
+ * aggregation with the {@link IntObjectMap} based one of {@link FileService#parserFileToMap}.
+ * <p>
+ * Two figures are printed:
+ * <ul>
+ *     <li>the heap retained by the user and order indexes alone, filled with the identifiers of the file;</li>
+ *     <li>the bytes allocated and the time spent by each parser on the whole file, plus the heap retained by its
+ *     result, the {@link BuyColumns} staging included.</li>
+ * </ul>
+ * Retained sizes are measured as the used heap after a full GC, so run with a stop-the-world collector:
+ * `java -XX:+UseSerialGC -Xmx8g -cp benchmarks.jar
+ * org.framework.rodolfo.freire.git.vertlog.benchmark.AggregationFootprintReport [lines]` (default 5 million).
+ */
+public class AggregationFootprintReport {
+
+    private static final Object VALUE = new Object();
+    private static final double MB = 1024 * 1024;
+
+    public static void main(String[] args) throws IOException {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        byte[] file = FixedWidthFileGenerator.generate(lines);
+        int[][] ids = identifiers(file, lines);
+        System.out.printf("file: %,d lines, %,.1f MB%n", lines, file.length / MB);
+
+        report("users index", ids[0]);
+        report("orders index", ids[1]);
+
+        FileService fileService = new FileService(ForkJoinPool.commonPool());
+        // warm both parsers up so the measured runs do not include compilation
+        LegacyFileParser.parserFileToMap(new ByteArrayInputStream(file));
+        fileService.parserFileToMap(new ByteArrayInputStream(file));
+        fileService.parserFileToColumns(new ByteArrayInputStream(file), new IngestReport());
+        parse("parse HashMap", () -> LegacyFileParser.parserFileToMap(new ByteArrayInputStream(file)));
+        parse("parse IntObjectMap", () -> fileService.parserFileToMap(new ByteArrayInputStream(file)));
+        parse("stage BuyColumns",
+                () -> fileService.parserFileToColumns(new ByteArrayInputStream(file), new IngestReport()));
+    }
+
+    private static void report(String name, int[] keys) {
+        long boxed = retained(() -> {
+            Map<Integer, Object> map = new HashMap<>();
+            for (int key : keys) {
+                map.put(key, VALUE);
+            }
+            return map;
+        });
+        long primitive = retained(() -> {
+            IntObjectMap<Object> map = new IntObjectMap<>();
+            for (int key : keys) {
+                map.put(key, VALUE);
+            }
+            return map;
+        });
+        System.out.printf("%-20s %,d keys: HashMap %,.1f MB, IntObjectMap %,.1f MB (%.0f%% less)%n", name,
+                distinct(keys), boxed / MB, primitive / MB, 100.0 * (boxed - primitive) / boxed);
+    }
+
+    private static void parse(String name, Supplier<Object> parser) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] allocated = new long[1];
+        long[] nanos = new long[1];
+        long retained = retained(() -> {
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            Object result = parser.get();
+            nanos[0] = System.nanoTime() - start;
+            allocated[0] = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            return result;
+        });
+        System.out.printf("%-20s allocated %,.1f MB, retained %,.1f MB, %,d ms%n", name,
+                allocated[0] / MB, retained / MB, nanos[0] / 1_000_000);
+    }
+
+    /**
+     * Returns the heap retained by the object built by the supplier, as the heap freed once it is dropped.
+     */
+    private static long retained(Supplier<Object> supplier) {
+        Object object = supplier.get();
+        long withObject = usedHeap();
+        Reference.reachabilityFence(object);
+        object = null;
+        return withObject - usedHeap();
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Reads the user and order identifiers of every line of the file.
+     */
+    private static int[][] identifiers(byte[] file, int lines) throws IOException {
+        int[] userIds = new int[lines];
+        int[] buyIds = new int[lines];
+        BuyRecordParser parser = new BuyRecordParser();
+        BuyRecord record = new BuyRecord();
+        try (FixedWidthLineReader reader = new FixedWidthLineReader(new ByteArrayInputStream(file))) {
+            for (int line = 0; reader.next(); line++) {
+                parser.parse(reader.buffer(), reader.start(), reader.length(), record);
+                userIds[line] = record.getUserId();
+                buyIds[line] = record.getBuyId();
+            }
+        }
+        return new int[][]{userIds, buyIds};
+    }
+
+    private static int distinct(int[] keys) {
+        IntObjectMap<Object> map = new IntObjectMap<>();
+        for (int key : keys) {
+            map.put(key, VALUE);
+        }
+        return map.size();
+    }
+}
@@ -0,0 +1,123 @@
+package org.framework.rodolfo.freire.git.vertlog.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Closed-loop load test of `GET /api/buy/{id}` against a running VertLog instance.
+ * <p>
+ * Each client thread sends one request at a time for a random user id for the given duration. At the end the
+ * throughput, the p50/p99/max latencies and the live/peak JVM thread counts reported by the actuator are printed,
+ * so a run with `spring.threads.virtual.enabled=false` can be compared with a run with it set to true.
+ * <p>
+ * Usage: `java -cp benchmarks.jar org.framework.rodolfo.freire.git.vertlog.benchmark.BuyByIdLoadTest
+ * [baseUrl] [clients] [seconds] [maxUserId]`
+ */
+public class BuyByIdLoadTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int maxUserId = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            results.add(pool.submit(() -> runClient(client, baseUrl, maxUserId, deadline)));
+        }
+
+        List<long[]> latencies = new ArrayList<>();
+        long errors = 0;
+        int total = 0;
+        for (Future<long[]> result : results) {
+            long[] clientLatencies = result.get();
+            // the last slot of each client holds its error count
+            errors += clientLatencies[clientLatencies.length - 1];
+            latencies.add(Arrays.copyOf(clientLatencies, clientLatencies.length - 1));
+            total += clientLatencies.length - 1;
+        }
+        pool.shutdown();
+
+        long[] all = new long[total];
+        int position = 0;
+        for (long[] clientLatencies : latencies) {
+            System.arraycopy(clientLatencies, 0, all, position, clientLatencies.length);
+            position += clientLatencies.length;
+        }
+        Arrays.sort(all);
+
+        System.out.printf("requests=%d errors=%d throughput=%.1f req/s%n", total, errors, (double) total / seconds);
+        if (total > 0) {
+            System.out.printf("latency p50=%.2f ms p99=%.2f ms max=%.2f ms%n",
+                    percentile(all, 0.50), percentile(all, 0.99), all[total - 1] / 1_000_000.0);
+        }
+        System.out.printf("server threads live=%s peak=%s%n",
+                metric(client, baseUrl, "jvm.threads.live"), metric(client, baseUrl, "jvm.threads.peak"));
+    }
+
+    private static long[] runClient(HttpClient client, String baseUrl, int maxUserId, long deadline) {
+        long[] latencies = new long[1024];
+        int count = 0;
+        long errors = 0;
+        while (System.nanoTime() < deadline) {
+            int userId = ThreadLocalRandom.current().nextInt(1, maxUserId + 1);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/buy/" + userId)).GET().build();
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() >= 500) {
+                    errors++;
+                }
+            } catch (IOException e) {
+                errors++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - start;
+        }
+        long[] result = Arrays.copyOf(latencies, count + 1);
+        result[count] = errors;
+        return result;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static String metric(HttpClient client, String baseUrl, String name) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/" + name)).GET().build();
+            JsonNode body = MAPPER.readTree(client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+            return body.path("measurements").path(0).path("value").asText("n/a");
+        } catch (IOException e) {
+            return "n/a";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "n/a";
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.framework.rodolfo.freire.git.vertlog.benchmark;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.framework.rodolfo.freire.git.vertlog.configuration.MongoIndexConfiguration;
+import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+import org.framework.rodolfo.freire.git.vertlog.document.BuyOrder;
+import org.framework.rodolfo.freire.git.vertlog.document.Product;
+import org.framework.rodolfo.freire.git.vertlog.repository.BuyRepository;
+import org.framework.rodolfo.freire.git.vertlog.repository.BuyRepositoryCustomImpl;
+import org.framework.rodolfo.freire.git.vertlog.util.BuyParseDate;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures `BuyRepository.findByDate` for a one-week range over a seeded collection of growing size, with and
+ * without the `orders.date` index.
+ * <p>
+ * Needs a running MongoDB, given by `-Dvertlog.benchmark.mongo-uri` (default `mongodb://localhost:27017`). The
+ * data goes to the `vertlog-benchmark` database, which is dropped and seeded again for every parameter set: each user
+ * has five orders spread over three years, so a week matches about 0.5% of the users at every size. With the index
+ * the time grows with the matching users only; without it every document is scanned.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuyDateRangeBenchmark {
+
+    private static final int ORDERS_PER_USER = 5;
+    private static final int DAYS = 3 * 365;
+    private static final int SEED_BATCH = 5000;
+
+    @Param({"10000", "100000", "1000000"})
+    public int users;
+
+    @Param({"true", "false"})
+    public boolean indexed;
+
+    private MongoClient mongoClient;
+    private BuyRepository buyRepository;
+    private Date startDate;
+    private Date endDate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mongoClient = MongoClients.create(System.getProperty("vertlog.benchmark.mongo-uri", "mongodb://localhost:27017"));
+        MongoTemplate mongoTemplate = new MongoTemplate(mongoClient, "vertlog-benchmark");
+        mongoTemplate.dropCollection(Buy.class);
+        seed(mongoTemplate);
+        if (indexed) {
+            new MongoIndexConfiguration(mongoTemplate).createIndexes();
+        }
+        buyRepository = new MongoRepositoryFactory(mongoTemplate)
+                .getRepository(BuyRepository.class, RepositoryFragments.just(new BuyRepositoryCustomImpl(mongoTemplate)));
+        startDate = BuyParseDate.toDate(20220601);
+        endDate = BuyParseDate.toDate(20220607);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mongoClient.close();
+    }
+
+    @Benchmark
+    public List<Buy> findByDate() {
+        return buyRepository.findByDate(startDate, endDate);
+    }
+
+    private void seed(MongoTemplate mongoTemplate) {
+        Random random = new Random(42);
+        long firstDay = BuyParseDate.toDate(20210101).getTime();
+        List<Buy> batch = new ArrayList<>(SEED_BATCH);
+        for (int userId = 1; userId <= users; userId++) {
+            Buy buy = new Buy();
+            buy.setUserId(userId);
+            buy.setUserName("User " + userId);
+            for (int order = 0; order < ORDERS_PER_USER; order++) {
+                Date date = new Date(firstDay + TimeUnit.DAYS.toMillis(random.nextInt(DAYS)));
+                long value = random.nextInt(100_000);
+                buy.getOrders().add(new BuyOrder(userId * ORDERS_PER_USER + order, value, date,
+                        List.of(new Product(random.nextInt(1000), value))));
+            }
+            batch.add(buy);
+            if (batch.size() == SEED_BATCH) {
+                mongoTemplate.insert(batch, Buy.class);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            mongoTemplate.insert(batch, Buy.class);
+        }
+    }
+}
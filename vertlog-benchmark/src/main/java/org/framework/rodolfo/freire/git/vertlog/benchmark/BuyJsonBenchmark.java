@@ -0,0 +1,66 @@
+package org.framework.rodolfo.freire.git.vertlog.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+import org.framework.rodolfo.freire.git.vertlog.service.FileService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Jackson serialization of large {@link Buy} graphs, as returned by `GET /api/buy` (one JSON array) and
+ * `GET /api/buy/stream` (one JSON document per line).
+ * <p>
+ * The mapper is built like Spring Boot builds the application one, and the output is discarded, so only the
+ * serialization is measured.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuyJsonBenchmark {
+
+    private static final int LINES_PER_USER = 6;
+
+    @Param({"1000", "10000", "100000"})
+    public int users;
+
+    private List<Buy> buys;
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        byte[] file = FixedWidthFileGenerator.generate(users * LINES_PER_USER);
+        buys = new ArrayList<>(new FileService(ForkJoinPool.commonPool())
+                .parserFileToMap(new ByteArrayInputStream(file)).values());
+        buys.sort(Comparator.comparingInt(Buy::getUserId));
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Benchmark
+    public void writeArray() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), buys);
+    }
+
+    @Benchmark
+    public void writeNdjson() throws IOException {
+        OutputStream outputStream = OutputStream.nullOutputStream();
+        ObjectWriter writer = objectMapper.writerFor(Buy.class);
+        for (Buy buy : buys) {
+            outputStream.write(writer.writeValueAsBytes(buy));
+            outputStream.write('\n');
+        }
+    }
+}
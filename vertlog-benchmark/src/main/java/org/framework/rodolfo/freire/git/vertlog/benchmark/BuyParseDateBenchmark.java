@@ -0,0 +1,55 @@
+package org.framework.rodolfo.freire.git.vertlog.benchmark;
+
+import org.framework.rodolfo.freire.git.vertlog.util.BuyParseDate;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-line cost of decoding the date column, before (a `SimpleDateFormat` per call) and after
+ * (`java.time` with the cache of recently seen dates).
+ * <p>
+ * The input repeats a few hundred distinct dates, like the legacy files do. Run with `-t 4` to also compare
+ * the behavior under concurrent uploads.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuyParseDateBenchmark {
+
+    private static final int DATES = 4096;
+
+    @Param({"365"})
+    public int distinctDates;
+
+    private String[] dates;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDate first = LocalDate.of(2021, 1, 1);
+        dates = new String[DATES];
+        for (int i = 0; i < DATES; i++) {
+            LocalDate date = first.plusDays(random.nextInt(distinctDates));
+            dates[i] = String.format("%04d%02d%02d", date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+        }
+    }
+
+    @Benchmark
+    public Date simpleDateFormat() {
+        return LegacyBuyParseDate.parseDate(dates[index++ & (DATES - 1)]);
+    }
+
+    @Benchmark
+    public Date cachedJavaTime() {
+        return BuyParseDate.parseDate(dates[index++ & (DATES - 1)]);
+    }
+}
@@ -0,0 +1,70 @@
+package org.framework.rodolfo.freire.git.vertlog.benchmark;
+
+import org.framework.rodolfo.freire.git.vertlog.util.BuyRecord;
+import org.framework.rodolfo.freire.git.vertlog.util.BuyRecordParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-line cost of the substring based parsing formerly done in `FileService` with {@link BuyRecordParser}.
+ * <p>
+ * Run with `java -jar target/benchmarks.jar BuyRecordParserBenchmark -prof gc` to also compare allocations.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuyRecordParserBenchmark {
+
+    private static final int LINES = 1024;
+
+    private String[] lines;
+    private byte[][] lineBytes;
+    private BuyRecordParser parser;
+    private BuyRecord record;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        lines = new String[LINES];
+        lineBytes = new byte[LINES][];
+        for (int i = 0; i < LINES; i++) {
+            int userId = 1 + i / 8;
+            lines[i] = String.format("%010d %44s %09d %09d %10s %8s", userId, "User " + userId,
+                    userId * 10 + i % 3, random.nextInt(1000),
+                    String.format("%d.%02d", random.nextInt(2000), random.nextInt(100)),
+                    String.format("2021%02d%02d", 1 + random.nextInt(12), 1 + random.nextInt(28)));
+            lineBytes[i] = lines[i].getBytes(StandardCharsets.UTF_8);
+        }
+        parser = new BuyRecordParser();
+        record = new BuyRecord();
+    }
+
+    @Benchmark
+    public void substringParser(Blackhole blackhole) {
+        String line = lines[index++ & (LINES - 1)];
+        blackhole.consume(Integer.parseInt(line.substring(0, 10).trim()));
+        blackhole.consume(line.substring(11, 55).trim());
+        blackhole.consume(Integer.parseInt(line.substring(56, 65).trim()));
+        blackhole.consume(Integer.parseInt(line.substring(66, 75).trim()));
+        blackhole.consume(Double.parseDouble(line.substring(76, 86).trim()));
+        Date date = LegacyBuyParseDate.parseDate(line.substring(87, 95).trim());
+        blackhole.consume(date);
+    }
+
+    @Benchmark
+    public BuyRecord recordParser() {
+        byte[] line = lineBytes[index++ & (LINES - 1)];
+        parser.parse(line, 0, line.length, record);
+        return record;
+    }
+}
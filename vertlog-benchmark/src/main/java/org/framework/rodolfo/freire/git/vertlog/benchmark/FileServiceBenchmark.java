@@ -0,0 +1,71 @@
+package org.framework.rodolfo.freire.git.vertlog.benchmark;
+
+import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+import org.framework.rodolfo.freire.git.vertlog.service.FileService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the parse and aggregate stage of an upload: {@link FileService} turning a whole generated file into
+ * {@link Buy} objects, for growing file sizes.
+ * <p>
+ * `parserFileToMap` and `parserFileToChunks` read the file from memory, `parserPathToMap` from a temporary file with
+ * the fork-join pool sized to the available processors. Run with `-prof gc` to also compare allocations.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FileServiceBenchmark {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    @Param({"10000", "100000", "1000000"})
+    public int lines;
+
+    private byte[] file;
+    private Path path;
+    private ForkJoinPool forkJoinPool;
+    private FileService fileService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = FixedWidthFileGenerator.generate(lines);
+        path = Files.createTempFile("vertlog-benchmark", ".txt");
+        Files.write(path, file);
+        forkJoinPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        fileService = new FileService(forkJoinPool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        forkJoinPool.shutdown();
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    public Map<Integer, Buy> parserFileToMap() {
+        return fileService.parserFileToMap(new ByteArrayInputStream(file));
+    }
+
+    @Benchmark
+    public long parserFileToChunks(Blackhole blackhole) {
+        return fileService.parserFileToChunks(new ByteArrayInputStream(file), CHUNK_SIZE, blackhole::consume);
+    }
+
+    @Benchmark
+    public Map<Integer, Buy> parserPathToMap() {
+        return fileService.parserPathToMap(path);
+    }
+}
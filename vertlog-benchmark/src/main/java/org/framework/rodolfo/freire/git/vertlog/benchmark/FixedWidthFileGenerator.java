@@ -0,0 +1,93 @@
+package org.framework.rodolfo.freire.git.vertlog.benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generates synthetic buy files in the legacy fixed-width layout, so the benchmarks run without real exports.
+ * <p>
+ * Lines of the same user are contiguous, as the legacy export writes them: each user has one to four orders of one
+ * to four products, dated in 2021. The same seed always produces the same file.
+ * <p>
+ * Usage: `java -cp benchmarks.jar org.framework.rodolfo.freire.git.vertlog.benchmark.FixedWidthFileGenerator
+ * [path] [lines]`
+ */
+public class FixedWidthFileGenerator {
+
+    private static final long SEED = 42;
+
+    private FixedWidthFileGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path path = Path.of(args.length > 0 ? args[0] : "data_1.txt");
+        int lines = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        write(path, lines);
+        System.out.printf("%s: %d lines, %d bytes%n", path, lines, Files.size(path));
+    }
+
+    /**
+     * Generates a file of the given number of lines in memory.
+     *
+     * @param lines The number of lines of the file.
+     * @return The content of the file.
+     */
+    public static byte[] generate(int lines) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(lines * 96);
+        try {
+            generate(lines, outputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Generates a file of the given number of lines on disk.
+     *
+     * @param path  The path of the file, replaced if it exists.
+     * @param lines The number of lines of the file.
+     */
+    public static void write(Path path, int lines) {
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16)) {
+            generate(lines, outputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing " + path, e);
+        }
+    }
+
+    private static void generate(int lines, OutputStream outputStream) throws IOException {
+        Random random = new Random(SEED);
+        int userId = 0;
+        int buyId = 0;
+        int ordersLeft = 0;
+        int productsLeft = 0;
+        String userName = null;
+        String date = null;
+        for (int line = 0; line < lines; line++) {
+            if (productsLeft == 0) {
+                if (ordersLeft == 0) {
+                    userId++;
+                    userName = "User " + userId;
+                    ordersLeft = 1 + random.nextInt(4);
+                }
+                buyId++;
+                ordersLeft--;
+                productsLeft = 1 + random.nextInt(4);
+                date = String.format("2021%02d%02d", 1 + random.nextInt(12), 1 + random.nextInt(28));
+            }
+            productsLeft--;
+            String value = String.format("%d.%02d", random.nextInt(2000), random.nextInt(100));
+            String text = String.format("%010d %44s %09d %09d %10s %8s\n", userId, userName, buyId,
+                    random.nextInt(1000), value, date);
+            outputStream.write(text.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+}
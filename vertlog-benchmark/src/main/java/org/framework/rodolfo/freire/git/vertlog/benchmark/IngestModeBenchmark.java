@@ -0,0 +1,89 @@
+package org.framework.rodolfo.freire.git.vertlog.benchmark;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.framework.rodolfo.freire.git.vertlog.configuration.IngestMode;
+import org.framework.rodolfo.freire.git.vertlog.configuration.IngestWriteMode;
+import org.framework.rodolfo.freire.git.vertlog.configuration.PropertiesIngest;
+import org.framework.rodolfo.freire.git.vertlog.repository.BuyRepository;
+import org.framework.rodolfo.freire.git.vertlog.service.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a whole `BuyService.uploadFile`, from the bytes of a generated file to acknowledged bulk writes, in
+ * {@link IngestMode#STREAMING} mode (parse and write in turn) and {@link IngestMode#PIPELINE} mode (parse and write
+ * in concurrent stages).
+ * <p>
+ * The {@link AcknowledgingBuyRepository} converts each batch into documents and simulates a round trip of
+ * `writeMillis` per bulk write, see `SaveProcessorBenchmark`.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class IngestModeBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int lines;
+
+    @Param({"STREAMING", "PIPELINE"})
+    public IngestMode mode;
+
+    @Param({"0", "2"})
+    public int writeMillis;
+
+    private MongoClient mongoClient;
+    private byte[] file;
+    private BuyService buyService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        file = FixedWidthFileGenerator.generate(lines);
+        ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
+
+        PropertiesIngest propertiesIngest = new PropertiesIngest();
+        propertiesIngest.setMode(mode);
+        propertiesIngest.setChunkSize(1000);
+        propertiesIngest.setWriteMode(IngestWriteMode.REPLACE);
+        propertiesIngest.setBulkBatchSize(1000);
+        propertiesIngest.setSaveConcurrency(1);
+        propertiesIngest.setPrepareAhead(2);
+        propertiesIngest.setPipelineBlockSize(DataSize.ofMegabytes(1));
+        propertiesIngest.setPipelineParseQueueCapacity(8);
+        propertiesIngest.setPipelineWriteQueueCapacity(4);
+        propertiesIngest.setProgressInterval(Duration.ZERO);
+        propertiesIngest.setDebugSampleRate(1000);
+        mongoClient = MongoClients.create();
+        BuyRepository buyRepository = AcknowledgingBuyRepository.create(
+                new MongoTemplate(mongoClient, "vertlog-benchmark"), TimeUnit.MILLISECONDS.toNanos(writeMillis));
+        IngestMetrics ingestMetrics = new IngestMetrics(new SimpleMeterRegistry());
+        buyService = new BuyService(buyRepository, new FileService(forkJoinPool), propertiesIngest,
+                new SyncTaskExecutor(), forkJoinPool, new SimpleAsyncTaskExecutor("ingest-stage-"),
+                new BuyCache(1000, Duration.ofMinutes(5)), null,
+                new QuarantineService(null, propertiesIngest, ingestMetrics),
+                new IngestProgressLogger(propertiesIngest), ingestMetrics);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mongoClient.close();
+    }
+
+    @Benchmark
+    public IngestReport uploadFile() {
+        return buyService.uploadFile(new ByteArrayInputStream(file));
+    }
+}
@@ -0,0 +1,29 @@
+package org.framework.rodolfo.freire.git.vertlog.benchmark;
+
+import org.framework.rodolfo.freire.git.vertlog.exception.BuyParseException;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Copy of the former `BuyParseDate.parseDate`, which created a `SimpleDateFormat` per call, kept as a baseline.
+ */
+final class LegacyBuyParseDate {
+
+    private LegacyBuyParseDate() {
+    }
+
+    static Date parseDate(String dateString) throws BuyParseException {
+        DateFormat formatter = new SimpleDateFormat("yyyyMMdd");
+        formatter.setLenient(false);
+        try {
+            return formatter.parse(dateString);
+        } catch (ParseException e) {
+            throw new BuyParseException(0, "Invalid date format: " + dateString);
+        } catch (IllegalArgumentException e) {
+            throw new BuyParseException(0, "Invalid date argument: " + dateString);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.framework.rodolfo.freire.git.vertlog.benchmark;
+
+import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+import org.framework.rodolfo.freire.git.vertlog.document.BuyOrder;
+import org.framework.rodolfo.freire.git.vertlog.document.Product;
+import org.framework.rodolfo.freire.git.vertlog.util.BuyRecord;
+import org.framework.rodolfo.freire.git.vertlog.util.BuyRecordParser;
+import org.framework.rodolfo.freire.git.vertlog.util.FixedWidthLineReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.framework.rodolfo.freire.git.vertlog.util.BuyRecordParser.toDate;
+
+/**
+ * Copy of the former `FileService.parserFileToMap`, which aggregated the lines in `HashMap`s keyed by boxed
+ * identifiers, kept as a baseline.
+ */
+final class LegacyFileParser {
+
+    private LegacyFileParser() {
+    }
+
+    static Map<Integer, Buy> parserFileToMap(InputStream inputStream) {
+        Map<Integer, Buy> buysMap = new HashMap<>();
+        Map<Integer, BuyOrder> buyOrdersMap = new HashMap<>();
+        BuyRecordParser parser = new BuyRecordParser();
+        BuyRecord record = new BuyRecord();
+
+        try (FixedWidthLineReader reader = new FixedWidthLineReader(inputStream)) {
+            while (reader.next()) {
+                parser.parse(reader.buffer(), reader.start(), reader.length(), record);
+
+                Buy buy = buysMap.get(record.getUserId());
+                if (buy == null) {
+                    buy = new Buy();
+                    buy.setUserId(record.getUserId());
+                    buysMap.put(record.getUserId(), buy);
+                }
+                buy.setUserName(record.getUserName());
+
+                BuyOrder currentBuyOrder = buyOrdersMap.get(record.getBuyId());
+                if (currentBuyOrder == null) {
+                    currentBuyOrder = new BuyOrder(record.getBuyId(), 0, toDate(record), new ArrayList<>());
+                    buyOrdersMap.put(record.getBuyId(), currentBuyOrder);
+                    buy.addOrder(currentBuyOrder);
+                }
+                currentBuyOrder.getProducts().add(new Product(record.getProductId(), record.getProductValue()));
+                currentBuyOrder.setTotal(currentBuyOrder.getTotal() + record.getProductValue());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buysMap;
+    }
+}
@@ -0,0 +1,71 @@
+package org.framework.rodolfo.freire.git.vertlog.benchmark;
+
+import org.framework.rodolfo.freire.git.vertlog.util.Cents;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of summing the product values of an order as `double` (the former representation), as `long`
+ * cents (the current one) and as `BigDecimal`.
+ * <p>
+ * Only the cents and `BigDecimal` sums are exact; `FileServiceTest` shows the `double` sum drifting on a large order.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderTotalBenchmark {
+
+    @Param({"4", "100", "10000"})
+    public int products;
+
+    private double[] doubleValues;
+    private long[] centValues;
+    private BigDecimal[] decimalValues;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        doubleValues = new double[products];
+        centValues = new long[products];
+        decimalValues = new BigDecimal[products];
+        for (int i = 0; i < products; i++) {
+            centValues[i] = random.nextInt(200_000);
+            doubleValues[i] = centValues[i] / 100.0;
+            decimalValues[i] = Cents.toBigDecimal(centValues[i]);
+        }
+    }
+
+    @Benchmark
+    public double doubleTotal() {
+        double total = 0.0;
+        for (double value : doubleValues) {
+            total += value;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long centsTotal() {
+        long total = 0;
+        for (long value : centValues) {
+            total += value;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalTotal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal value : decimalValues) {
+            total = total.add(value);
+        }
+        return total;
+    }
+}
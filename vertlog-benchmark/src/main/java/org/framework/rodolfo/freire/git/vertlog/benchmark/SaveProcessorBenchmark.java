@@ -0,0 +1,87 @@
+package org.framework.rodolfo.freire.git.vertlog.benchmark;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.framework.rodolfo.freire.git.vertlog.configuration.IngestWriteMode;
+import org.framework.rodolfo.freire.git.vertlog.configuration.PropertiesIngest;
+import org.framework.rodolfo.freire.git.vertlog.document.Buy;
+import org.framework.rodolfo.freire.git.vertlog.repository.BuyRepository;
+import org.framework.rodolfo.freire.git.vertlog.service.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the in-memory part of the save stage: `BuyService.saveProcessor` splitting the buys of a generated file
+ * into bulk writes, against an {@link AcknowledgingBuyRepository} converting every batch into documents and
+ * acknowledging the write without touching MongoDB.
+ * <p>
+ * `prepareAhead` 0 converts each batch within its write, on the calling thread; above 0 the batches are converted on
+ * the fork-join pool ahead of their write. `writeMillis` simulates the round trip of each bulk write, which the
+ * conversion of the next batches overlaps with.
+ * <p>
+ * The buys are parsed once per trial and are not modified by the save stage, so every invocation does the same work.
+ * Order totals are computed while parsing, see `OrderTotalBenchmark`.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SaveProcessorBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int lines;
+
+    @Param({"0", "2"})
+    public int prepareAhead;
+
+    @Param({"0", "2"})
+    public int writeMillis;
+
+    private MongoClient mongoClient;
+    private Map<Integer, Buy> buysMap;
+    private BuyService buyService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
+        FileService fileService = new FileService(forkJoinPool);
+        buysMap = fileService.parserFileToMap(new ByteArrayInputStream(FixedWidthFileGenerator.generate(lines)));
+
+        PropertiesIngest propertiesIngest = new PropertiesIngest();
+        propertiesIngest.setWriteMode(IngestWriteMode.REPLACE);
+        propertiesIngest.setBulkBatchSize(1000);
+        propertiesIngest.setSaveConcurrency(1);
+        propertiesIngest.setPrepareAhead(prepareAhead);
+        propertiesIngest.setProgressInterval(Duration.ofSeconds(10));
+        propertiesIngest.setDebugSampleRate(1000);
+        mongoClient = MongoClients.create();
+        BuyRepository buyRepository = AcknowledgingBuyRepository.create(
+                new MongoTemplate(mongoClient, "vertlog-benchmark"), TimeUnit.MILLISECONDS.toNanos(writeMillis));
+        IngestMetrics ingestMetrics = new IngestMetrics(new SimpleMeterRegistry());
+        buyService = new BuyService(buyRepository, fileService, propertiesIngest, new SyncTaskExecutor(),
+                forkJoinPool, new SyncTaskExecutor(), new BuyCache(1000, Duration.ofMinutes(5)), null,
+                new QuarantineService(null, propertiesIngest, ingestMetrics), new IngestProgressLogger(propertiesIngest),
+                ingestMetrics);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mongoClient.close();
+    }
+
+    @Benchmark
+    public IngestReport saveProcessor() {
+        return buyService.saveProcessor(buysMap);
+    }
+}